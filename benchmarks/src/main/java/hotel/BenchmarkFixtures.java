@@ -0,0 +1,127 @@
+package hotel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+/* helpers building the buildings and the traces used by the benchmarks */
+final class BenchmarkFixtures {
+
+	/* directory containing the traffic files, by default the working directory or its parent */
+	private static final String TRACE_DIR_PROPERTY = "elevators.traces";
+
+	private BenchmarkFixtures() {
+	}
+
+	/* build a building whose elevators are all moving up with the given number of queued stops */
+	static Building loadedBuilding(int floors, int nbElevators, int stopsPerCar, long seed) {
+		Building b = new Building(floors, 0, nbElevators, 10);
+		Random rnd = new Random(seed);
+		int requestId = 0;
+
+		for (Elevator e : b.getElevators()) {
+			for (int i = 0; i < stopsPerCar; i++) {
+				int start = 2 + rnd.nextInt(floors - 2);
+				int dest = start + 1 + rnd.nextInt(floors - start);
+				Request r = new Request(requestId++, start, dest, 0);
+
+				/* half of the requests are already on board, the other half wait to be picked up */
+				if ( (i & 1) == 0 ){
+					r.setRequestTaken(true);
+					e.addStop(dest, r);
+				}else{
+					e.addStop(start, r);
+				}
+			}
+			e.setInitialDirection(floors, floors);
+		}
+		return b;
+	}
+
+	/* read a traffic file in the time,start,dest format
+	 * return the three columns as parallel arrays */
+	static int[][] readTrace(String name) throws IOException {
+		File file = locate(name);
+		int[] times = new int[1024];
+		int[] starts = new int[1024];
+		int[] dests = new int[1024];
+		int n = 0;
+		String line;
+
+		BufferedReader input = new BufferedReader(new FileReader(file));
+		try {
+			while ( (line = input.readLine()) != null ){
+				if ( n == times.length ){
+					times = grow(times);
+					starts = grow(starts);
+					dests = grow(dests);
+				}
+				StringTokenizer tok = new StringTokenizer(line, ",");
+				times[n] = Integer.parseInt(tok.nextToken());
+				starts[n] = Integer.parseInt(tok.nextToken());
+				dests[n] = Integer.parseInt(tok.nextToken());
+				n++;
+			}
+		} finally {
+			input.close();
+		}
+		return new int[][] { trim(times, n), trim(starts, n), trim(dests, n) };
+	}
+
+	/* replay a parsed trace the same way simulation.Main does, with the engine of the given name:
+	 * tick for nextSimulationStep at each time unit, events or arrays */
+	static ElevatorsSW replay(Building b, int[][] trace, String engineName) {
+		ElevatorsSW sw = new ElevatorsSW(b);
+		SimulationEngine engine = null;
+		if ( engineName.equals("events") ){
+			engine = new EventDrivenEngine(sw);
+		}else if ( engineName.equals("arrays") ){
+			engine = new ArrayTickEngine(sw);
+		}
+		int[] times = trace[0];
+		int[] starts = trace[1];
+		int[] dests = trace[2];
+
+		for (int i = 0; i < times.length; i++) {
+			if ( engine != null ){
+				engine.advanceTo(times[i]);
+			}else{
+				while ( times[i] > sw.getTime() ) sw.nextSimulationStep();
+			}
+			sw.assignElevator(new Request(i, starts[i], dests[i], times[i]));
+		}
+		if ( engine != null ){
+			engine.runUntilSatisfied();
+		}else{
+			while ( sw.elaboratingRequests() ) sw.nextSimulationStep();
+		}
+		return sw;
+	}
+
+	private static File locate(String name) throws IOException {
+		String dir = System.getProperty(TRACE_DIR_PROPERTY);
+		File file = dir != null ? new File(dir, name) : new File(name);
+		if ( !file.exists() && dir == null ){
+			file = new File("..", name);
+		}
+		if ( !file.exists() ){
+			throw new IOException("trace " + name + " not found, set -D" + TRACE_DIR_PROPERTY);
+		}
+		return file;
+	}
+
+	private static int[] grow(int[] a) {
+		int[] b = new int[a.length * 2];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+
+	private static int[] trim(int[] a, int n) {
+		int[] b = new int[n];
+		System.arraycopy(a, 0, b, 0, n);
+		return b;
+	}
+}
@@ -0,0 +1,102 @@
+package hotel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/* run the benchmarks with the GC profiler and compare the results with a saved baseline
+ *
+ * usage: java -jar benchmarks.jar [-baseline <file.csv>] [-out <file.csv>] [jmh options]
+ * the results are written in CSV: keep the file to use it as baseline for the next run */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException, IOException, CommandLineOptionException {
+		String baseline = null;
+		String out = "jmh-result.csv";
+		ArrayList<String> jmhArgs = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if ( args[i].equals("-baseline") && i + 1 < args.length ){
+				baseline = args[++i];
+			}else if ( args[i].equals("-out") && i + 1 < args.length ){
+				out = args[++i];
+			}else{
+				jmhArgs.add(args[i]);
+			}
+		}
+
+		Options opts = new OptionsBuilder()
+				.parent(new CommandLineOptions(jmhArgs.toArray(new String[jmhArgs.size()])))
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.CSV)
+				.result(out)
+				.build();
+		new Runner(opts).run();
+
+		if ( baseline != null ){
+			compare(readResults(new File(baseline)), readResults(new File(out)));
+		}
+	}
+
+	/* print the relative change of every score present in both files */
+	private static void compare(Map<String, Double> before, Map<String, Double> after) {
+		System.out.println();
+		System.out.println("Comparison with baseline (after / before):");
+		for (Map.Entry<String, Double> entry : after.entrySet()) {
+			Double old = before.get(entry.getKey());
+			if ( old == null || old == 0 ) continue;
+			double ratio = entry.getValue() / old;
+			System.out.println(String.format("%8.3f  %s", ratio, entry.getKey()));
+		}
+	}
+
+	/* read a JMH CSV result: the key is made of all the columns except the measured ones */
+	private static Map<String, Double> readResults(File file) throws IOException {
+		Map<String, Double> results = new LinkedHashMap<String, Double>();
+		BufferedReader input = new BufferedReader(new FileReader(file));
+		try {
+			String[] header = splitCsv(input.readLine());
+			String line;
+			while ( (line = input.readLine()) != null ){
+				String[] cols = splitCsv(line);
+				StringBuilder key = new StringBuilder();
+				double score = Double.NaN;
+				for (int i = 0; i < cols.length && i < header.length; i++) {
+					if ( header[i].equals("Score") ){
+						score = Double.parseDouble(cols[i]);
+					}else if ( header[i].startsWith("Param: ") ){
+						/* parameters not used by a benchmark are left empty */
+						if ( cols[i].length() > 0 ) key.append(header[i].substring(7)).append('=').append(cols[i]).append(' ');
+					}else if ( !header[i].equals("Samples") && !header[i].startsWith("Score Error") ){
+						key.append(cols[i]).append(' ');
+					}
+				}
+				results.put(key.toString().trim(), score);
+			}
+		} finally {
+			input.close();
+		}
+		return results;
+	}
+
+	private static String[] splitCsv(String line) {
+		String[] cols = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
+		for (int i = 0; i < cols.length; i++) {
+			cols[i] = cols[i].replace("\"", "");
+		}
+		return cols;
+	}
+}
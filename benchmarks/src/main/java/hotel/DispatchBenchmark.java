@@ -0,0 +1,70 @@
+package hotel;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* cost of scoring a new request against every elevator of the building */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+	private static final int REQUESTS = 1024;
+
+	@Param({ "20", "100", "400" })
+	public int floors;
+
+	@Param({ "4", "16", "64" })
+	public int elevators;
+
+	@Param({ "0", "8", "32" })
+	public int stopsPerCar;
+
+	private Building building;
+	private ElevatorsSW sw;
+	private int[] starts = new int[REQUESTS];
+	private int[] dests = new int[REQUESTS];
+	private int next;
+
+	@Setup
+	public void setup() {
+		building = BenchmarkFixtures.loadedBuilding(floors, elevators, stopsPerCar, 42);
+		sw = new ElevatorsSW(building);
+
+		Random rnd = new Random(7);
+		for (int i = 0; i < REQUESTS; i++) {
+			starts[i] = rnd.nextInt(floors + 1);
+			do {
+				dests[i] = rnd.nextInt(floors + 1);
+			} while ( dests[i] == starts[i] );
+		}
+	}
+
+	/* score one request against all the elevators, as assignElevator does */
+	@Benchmark
+	public int calculateGlobalDelay() {
+		int i = next++ & (REQUESTS - 1);
+		int minTime = Integer.MAX_VALUE;
+
+		for (Elevator e : building.getElevators()) {
+			int extraTime = sw.calculateGlobalDelay(e, starts[i], dests[i]);
+			if ( extraTime < minTime && extraTime > -1 ) minTime = extraTime;
+		}
+		return minTime;
+	}
+}
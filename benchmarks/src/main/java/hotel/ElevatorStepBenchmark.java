@@ -0,0 +1,74 @@
+package hotel;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* cost of the per-tick work done on a single elevator */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElevatorStepBenchmark {
+
+	@Param({ "20", "100", "400" })
+	public int floors;
+
+	@Param({ "1", "8", "32" })
+	public int stopsPerCar;
+
+	/* elevator bouncing between the bottom and the top floor */
+	private Elevator travelling;
+
+	/* elevator delivering requests at its current floor */
+	private Elevator stopping;
+	private ElevatorsSW sw;
+	private Request[] arriving;
+
+	@Setup
+	public void setup() {
+		Building b = BenchmarkFixtures.loadedBuilding(floors, 2, stopsPerCar, 42);
+		sw = new ElevatorsSW(b);
+
+		travelling = b.getElevators().get(0);
+		travelling.addStop(0, null);
+		travelling.addStop(floors, null);
+
+		stopping = b.getElevators().get(1);
+		arriving = new Request[stopsPerCar];
+		for (int i = 0; i < stopsPerCar; i++) {
+			arriving[i] = new Request(i, floors, stopping.getCurrentFloor(), 0);
+			arriving[i].setRequestTaken(true);
+		}
+	}
+
+	/* one move of a car that never reaches the end of its stops */
+	@Benchmark
+	public int moveNext() {
+		travelling.moveNext(0);
+		return travelling.getCurrentFloor();
+	}
+
+	/* queue the deliveries at the current floor and let checkStop serve them */
+	@Benchmark
+	public int checkStop() {
+		int floor = stopping.getCurrentFloor();
+		for (Request r : arriving) {
+			stopping.addStop(floor, r);
+		}
+		sw.checkStop(stopping);
+		return stopping.countStops();
+	}
+}
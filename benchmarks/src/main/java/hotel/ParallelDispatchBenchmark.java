@@ -0,0 +1,62 @@
+package hotel;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* selection of the elevator for a request, scoring the candidates sequentially or in parallel */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelDispatchBenchmark {
+
+	private static final int REQUESTS = 1024;
+
+	@Param({ "16", "64", "256" })
+	public int elevators;
+
+	@Param({ "8", "32" })
+	public int stopsPerCar;
+
+	@Param({ "sequential", "parallel" })
+	public String dispatch;
+
+	private ElevatorsSW sw;
+	private int[] starts = new int[REQUESTS];
+	private int[] dests = new int[REQUESTS];
+	private int next;
+
+	@Setup
+	public void setup() {
+		sw = new ElevatorsSW(BenchmarkFixtures.loadedBuilding(100, elevators, stopsPerCar, 42));
+		if ( dispatch.equals("parallel") ) sw.setParallelDispatch(1);
+
+		Random rnd = new Random(7);
+		for (int i = 0; i < REQUESTS; i++) {
+			starts[i] = rnd.nextInt(101);
+			do {
+				dests[i] = rnd.nextInt(101);
+			} while ( dests[i] == starts[i] );
+		}
+	}
+
+	@Benchmark
+	public int selectElevator() {
+		int i = next++ & (REQUESTS - 1);
+		return sw.selectElevator(starts[i], dests[i]);
+	}
+}
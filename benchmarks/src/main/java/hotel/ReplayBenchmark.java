@@ -0,0 +1,52 @@
+package hotel;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* full replay of the traffic files shipped with the project */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReplayBenchmark {
+
+	@Param({ "elevator_traffic_1.txt", "elevator_traffic_2.txt" })
+	public String trace;
+
+	/* the traces use floors 0 to 100, larger buildings only add empty floors */
+	@Param({ "100", "400" })
+	public int floors;
+
+	@Param({ "4", "16" })
+	public int elevators;
+
+	@Param({ "tick", "events", "arrays" })
+	public String engine;
+
+	private int[][] requests;
+
+	@Setup
+	public void setup() throws IOException {
+		requests = BenchmarkFixtures.readTrace(trace);
+	}
+
+	@Benchmark
+	public int replay() {
+		Building b = new Building(floors, 0, elevators, 10);
+		return BenchmarkFixtures.replay(b, requests, engine).getTime();
+	}
+}
@@ -0,0 +1,70 @@
+package hotel;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* cost of the dispatch strategies: choice of the elevator for a loaded building
+ * and full replay of the traffic files. The wait times of each strategy are compared
+ * by simulation.Sweep with strategy=greedy,nearest,zoned,eta */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrategyBenchmark {
+
+	@Param({ "greedy", "nearest", "zoned", "eta" })
+	public String strategy;
+
+	@Param({ "elevator_traffic_1.txt" })
+	public String trace;
+
+	private static final int REQUESTS = 1024;
+
+	private ElevatorsSW sw;
+	private int[] starts = new int[REQUESTS];
+	private int[] dests = new int[REQUESTS];
+	private int next;
+	private int[][] requests;
+
+	@Setup
+	public void setup() throws IOException {
+		Building b = BenchmarkFixtures.loadedBuilding(100, 16, 8, 42);
+		b.setDispatchStrategy(DispatchStrategies.forName(strategy, b));
+		sw = new ElevatorsSW(b);
+		Random random = new Random(7);
+		for (int i = 0; i < REQUESTS; i++) {
+			starts[i] = random.nextInt(101);
+			dests[i] = (starts[i] + 1 + random.nextInt(100)) % 101;
+		}
+		requests = BenchmarkFixtures.readTrace(trace);
+	}
+
+	@Benchmark
+	public int selectElevator() {
+		int i = next++ & (REQUESTS - 1);
+		return sw.selectElevator(starts[i], dests[i]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int replay() {
+		Building b = new Building(100, 0, 4, 10);
+		b.setDispatchStrategy(DispatchStrategies.forName(strategy, b));
+		return BenchmarkFixtures.replay(b, requests, "tick").getTime();
+	}
+}
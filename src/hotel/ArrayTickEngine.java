@@ -0,0 +1,162 @@
+package hotel;
+
+/* simulation engine running every time unit over the state of the elevators kept in parallel arrays.
+ * At each time unit a single loop without branches, made only of int operations on the arrays
+ * so that the JIT can vectorize it, closes a bit more the door of the elevators stopped at a floor
+ * and moves one floor the elevators heading to their next stop. The elevators having an event,
+ * reaching the floor of their next stop or closing the door, are then brought up to date
+ * and run by ElevatorsSW.nextAction in index order, as nextSimulationStep does.
+ * While some requests are waiting, the elevators are brought up to date at each time unit
+ * for the waiting requests to be retried, and only the ones given a request are loaded again.
+ * Between two runs the elevators may be given requests, but their time units must be run by this engine.
+ * The results are the same as calling ElevatorsSW.nextSimulationStep at each time unit.
+ * A journal, an eta table or a listener is told of the end of each time unit having an event,
+ * the elevators being brought up to date first, and of the end of each run.
+ * Measured with ReplayBenchmark the engine is not faster than nextSimulationStep, the dispatch taking
+ * most of the time, and slower than EventDrivenEngine on sparse traffic: Main does not offer it,
+ * it is kept for the benchmarks */
+public class ArrayTickEngine implements SimulationEngine {
+
+	private ElevatorsSW sw;
+	private Elevator[] elevators;
+
+	/* state of each elevator: 1 if it is moving, current floor, floor change of a move (1 or -1),
+	 * time units before the door closes, floor of its next event */
+	private int[] moving;
+	private int[] floor;
+	private int[] step;
+	private int[] door;
+	private int[] target;
+	/* 1 if the elevator has an event in the current time unit */
+	private int[] event;
+	/* time from which the elevator object has still to be brought up to date */
+	private int[] syncedTime;
+	/* changes of the elevator object when it was loaded in the arrays */
+	private int[] changes;
+	private boolean loaded;
+
+	public ArrayTickEngine( ElevatorsSW sw ) {
+		super();
+		this.sw = sw;
+		this.elevators = sw.getBuilding().getElevators().toArray(new Elevator[0]);
+		int n = elevators.length;
+		moving = new int[n];
+		floor = new int[n];
+		step = new int[n];
+		door = new int[n];
+		target = new int[n];
+		event = new int[n];
+		syncedTime = new int[n];
+		changes = new int[n];
+	}
+
+	public void advanceTo(int time){
+		run(time, false);
+	}
+
+	public void runUntilSatisfied(){
+		run(Integer.MAX_VALUE, true);
+	}
+
+	private void run(int until, boolean untilSatisfied){
+		loadAll();
+
+		while ( sw.getTime() < until ){
+			if ( untilSatisfied && !sw.elaboratingRequests() ) break;
+
+			int now = sw.getTime();
+			int active = 0;
+			for (int i = 0; i < moving.length; i++) active += moving[i];
+			if ( active == 0 && !sw.hasWaitingRequests() ){
+				/* nothing happens before the target: every elevator is idle */
+				if ( !untilSatisfied ) sw.setTime(until);
+				break;
+			}
+
+			int events = tick();
+			if ( events > 0 ){
+				for (int i = 0; i < event.length; i++) {
+					if ( event[i] != 0 ) runEvent(i, now);
+				}
+			}
+			if ( sw.hasWaitingRequests() ){
+				/* retry the waiting requests as nextSimulationStep does, on elevators up to date */
+				syncAll(now + 1);
+				sw.assignWaitingRequests();
+				for (int i = 0; i < moving.length; i++) {
+					if ( elevators[i].getChanges() != changes[i] ) load(i);
+				}
+				sw.setTime(now + 1);
+				sw.stepCompleted();
+			}else if ( events > 0 && sw.isObserved() ){
+				syncAll(now + 1);
+				sw.setTime(now + 1);
+				sw.stepCompleted();
+			}else{
+				sw.setTime(now + 1);
+			}
+		}
+
+		/* leave the elevators up to date for the dispatcher */
+		syncAll(sw.getTime());
+		sw.stepCompleted();
+	}
+
+	/* run the time unit of the elevators without event, mark the others
+	 * return the number of elevators having an event */
+	private int tick(){
+		int events = 0;
+		for (int i = 0; i < moving.length; i++) {
+			int m = moving[i];
+			int d = door[i];
+			int f = floor[i];
+			int t = target[i];
+			/* 1 if the door is still open, 1 if the elevator is not at its target yet */
+			int open = (-d) >>> 31;
+			int away = ((f - t) | (t - f)) >>> 31;
+			int closed = m & (open ^ 1);
+			door[i] = d - (m & open);
+			floor[i] = f + step[i] * (closed & away);
+			int e = closed & (away ^ 1);
+			event[i] = e;
+			events += e;
+		}
+		return events;
+	}
+
+	/* bring the elevator to the current time and run its time unit */
+	private void runEvent(int i, int now){
+		Elevator e = elevators[i];
+		e.skipTicks(now - syncedTime[i]);
+		sw.nextAction(e);
+		syncedTime[i] = now + 1;
+		load(i);
+	}
+
+	/* copy in the arrays the state of the elevators, up to date, which has changed since they were loaded */
+	private void loadAll(){
+		for (int i = 0; i < moving.length; i++) {
+			syncedTime[i] = sw.getTime();
+			if ( !loaded || elevators[i].getChanges() != changes[i] ) load(i);
+		}
+		loaded = true;
+	}
+
+	private void load(int i){
+		Elevator e = elevators[i];
+		moving[i] = e.isMoving() ? 1 : 0;
+		floor[i] = e.getCurrentFloor();
+		step[i] = e.isDirection() == Elevator.UP ? 1 : -1;
+		door[i] = e.getDoorOpenedElapsedTime();
+		target[i] = e.nextStopAhead();
+		changes[i] = e.getChanges();
+	}
+
+	/* bring every elevator to the given time: none of them has an event before it */
+	private void syncAll(int time){
+		for (int i = 0; i < moving.length; i++) {
+			if ( moving[i] != 0 && syncedTime[i] != time ) elevators[i].skipTicks(time - syncedTime[i]);
+			syncedTime[i] = time;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package hotel;
+
+/* elevator assigned to a call by the RealTimeDispatcher or the DispatcherHost */
+public class Assignment {
+
+	private int requestId;
+	private int elevatorId;
+	private int assignmentTime;
+	private int estimatedPickupTime;
+
+	Assignment(int requestId, int elevatorId, int assignmentTime, int estimatedPickupTime) {
+		super();
+		this.requestId = requestId;
+		this.elevatorId = elevatorId;
+		this.assignmentTime = assignmentTime;
+		this.estimatedPickupTime = estimatedPickupTime;
+	}
+
+	public int getRequestId() {
+		return requestId;
+	}
+
+	public int getElevatorId() {
+		return elevatorId;
+	}
+
+	/* simulation time at which the call has been assigned, later than the call if it had to wait */
+	public int getAssignmentTime() {
+		return assignmentTime;
+	}
+
+	/* time units after the assignment in which the elevator is expected at the start floor */
+	public int getEstimatedPickupTime() {
+		return estimatedPickupTime;
+	}
+
+	@Override
+	public String toString() {
+		return "Request " + requestId + " assigned to elevator " + elevatorId + " at " + assignmentTime + ", pick up in " + estimatedPickupTime;
+	}
+}
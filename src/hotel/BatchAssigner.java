@@ -0,0 +1,14 @@
+package hotel;
+
+import java.util.List;
+
+/* assignment of the requests arriving in the same time unit, all together */
+public interface BatchAssigner {
+
+	/* assign the requests arriving at the current time, in arrival order
+	 * return the number of requests assigned, the others are left waiting */
+	int assignBatch(List<Request> batch);
+
+	/* print the statistics of the assignments */
+	void printStatistics();
+}
@@ -0,0 +1,221 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/* assignment of all the requests arriving in the same time unit, solved jointly.
+ * The cost of each request in each elevator is its global delay, calculateGlobalDelay, and the requests
+ * are assigned in rounds: each round solves the assignment of the requests left to distinct elevators
+ * minimizing the total cost (the Hungarian method), then the costs are computed again with the stops added,
+ * so that the requests sharing an elevator see each other. An elevator unable to take a request costs
+ * INFEASIBLE; the requests no elevator can take in a round are left waiting as assignElevator does.
+ * A batch of a single request is assigned as by assignElevator.
+ * Not joint, the dispatcher assigns the requests one by one in arrival order as assignElevator does,
+ * to measure the greedy assignment with the same statistics */
+public class BatchDispatcher implements BatchAssigner {
+
+	/* cost of an elevator unable to take the request, above the sum of any feasible costs */
+	static final long INFEASIBLE = 1L << 40;
+
+	private ElevatorsSW sw;
+	private ArrayList<Elevator> elevators;
+	private boolean joint;
+
+	/* requests of the batch not assigned yet and the costs of the current round */
+	private ArrayList<Request> left = new ArrayList<Request>();
+	private long[][] costs = new long[0][];
+
+	/* dispatch statistics */
+	private long batches;
+	private long batchedRequests;
+	private long jointBatches;
+	private long rounds;
+	private long totalNanos;
+	private long maxNanos;
+	private long totalCost;
+	private long maxCost;
+	private long leftWaiting;
+
+	public BatchDispatcher( ElevatorsSW sw ) {
+		this(sw, true);
+	}
+
+	public BatchDispatcher( ElevatorsSW sw, boolean joint ) {
+		super();
+		this.sw = sw;
+		this.elevators = sw.getBuilding().getElevators();
+		this.joint = joint;
+	}
+
+	public int assignBatch(List<Request> batch){
+		long start = System.nanoTime();
+		int assigned = 0;
+		long cost = 0;
+
+		if ( batch.size() == 1 || !joint ){
+			for (Request r : batch) {
+				long requestStart = System.nanoTime();
+				int elevatorNb = sw.selectElevator(r.getStart(), r.getDestination());
+				if ( elevatorNb >= 0 ){
+					cost += sw.calculateGlobalDelay(elevators.get(elevatorNb), r.getStart(), r.getDestination());
+				}else{
+					leftWaiting++;
+				}
+				if ( assign(r, elevatorNb, System.nanoTime() - requestStart) ) assigned++;
+			}
+		}else{
+			jointBatches++;
+			left.clear();
+			left.addAll(batch);
+			while ( !left.isEmpty() ){
+				rounds++;
+				long roundStart = System.nanoTime();
+				int[] choice = solveRound();
+				long nanos = (System.nanoTime() - roundStart) / left.size();
+
+				/* assign the requests given a feasible elevator, keep the others for the next round in arrival order */
+				int kept = 0;
+				for (int i = 0; i < left.size(); i++) {
+					Request r = left.get(i);
+					if ( choice[i] >= 0 && costs[i][choice[i]] < INFEASIBLE ){
+						cost += costs[i][choice[i]];
+						assign(r, choice[i], nanos);
+						assigned++;
+					}else{
+						left.set(kept++, r);
+					}
+				}
+				if ( kept == left.size() ){
+					/* no elevator can take the requests left: they wait */
+					for (Request r : left) assign(r, -1, nanos);
+					leftWaiting += kept;
+					kept = 0;
+				}
+				left.subList(kept, left.size()).clear();
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+		batches++;
+		batchedRequests += batch.size();
+		totalNanos += elapsed;
+		maxNanos = Math.max(maxNanos, elapsed);
+		totalCost += cost;
+		maxCost = Math.max(maxCost, cost);
+		return assigned;
+	}
+
+	/* compute the costs of the requests left in each elevator
+	 * return the elevator chosen for each request, -1 for the requests without one in this round */
+	private int[] solveRound(){
+		int n = left.size();
+		int m = elevators.size();
+		if ( costs.length < n ) costs = new long[Math.max(n, costs.length * 2)][];
+		for (int i = 0; i < n; i++) {
+			if ( costs[i] == null || costs[i].length != m ) costs[i] = new long[m];
+			Request r = left.get(i);
+			for (int e = 0; e < m; e++) {
+				int delay = sw.calculateGlobalDelay(elevators.get(e), r.getStart(), r.getDestination());
+				costs[i][e] = delay < 0 ? INFEASIBLE : delay;
+			}
+		}
+		if ( n <= m ) return solve(costs, n, m);
+
+		/* more requests than elevators: each elevator chooses one request */
+		long[][] transposed = new long[m][n];
+		for (int i = 0; i < n; i++) {
+			for (int e = 0; e < m; e++) transposed[e][i] = costs[i][e];
+		}
+		int[] requestOf = solve(transposed, m, n);
+		int[] choice = new int[n];
+		Arrays.fill(choice, -1);
+		for (int e = 0; e < m; e++) choice[requestOf[e]] = e;
+		return choice;
+	}
+
+	/* assign the request to the elevator of the given index, -1 to leave it waiting, as assignElevator does */
+	private boolean assign(Request r, int elevatorNb, long nanos){
+		boolean assigned = sw.assignTo(r, elevatorNb);
+		DispatchListener listener = sw.getListener();
+		if ( listener != null ) listener.requestDispatched(sw.getTime(), r.getRequestId(), elevatorNb, nanos);
+		return assigned;
+	}
+
+	/* solve the assignment of the rows of the cost matrix to distinct columns minimizing the total cost,
+	 * rows being at most as many as the columns, with the Hungarian method in O(rows * rows * columns):
+	 * the rows are added one by one, each one along the shortest augmenting path given by the potentials
+	 * return the column of each row */
+	static int[] solve(long[][] cost, int rows, int columns){
+		/* potentials of the rows and the columns, column 0 being a dummy one holding the row being added */
+		long[] u = new long[rows + 1];
+		long[] v = new long[columns + 1];
+		/* row assigned to each column, 1 based, 0 for none */
+		int[] rowOf = new int[columns + 1];
+		int[] way = new int[columns + 1];
+		long[] minSlack = new long[columns + 1];
+		boolean[] used = new boolean[columns + 1];
+
+		for (int i = 1; i <= rows; i++) {
+			rowOf[0] = i;
+			int column = 0;
+			Arrays.fill(minSlack, Long.MAX_VALUE);
+			Arrays.fill(used, false);
+			do {
+				used[column] = true;
+				int row = rowOf[column];
+				long delta = Long.MAX_VALUE;
+				int next = 0;
+				for (int j = 1; j <= columns; j++) {
+					if ( used[j] ) continue;
+					long slack = cost[row - 1][j - 1] - u[row] - v[j];
+					if ( slack < minSlack[j] ){
+						minSlack[j] = slack;
+						way[j] = column;
+					}
+					if ( minSlack[j] < delta ){
+						delta = minSlack[j];
+						next = j;
+					}
+				}
+				for (int j = 0; j <= columns; j++) {
+					if ( used[j] ){
+						u[rowOf[j]] += delta;
+						v[j] -= delta;
+					}else{
+						minSlack[j] -= delta;
+					}
+				}
+				column = next;
+			} while ( rowOf[column] != 0 );
+
+			/* flip the augmenting path */
+			do {
+				int previous = way[column];
+				rowOf[column] = rowOf[previous];
+				column = previous;
+			} while ( column != 0 );
+		}
+
+		int[] columnOf = new int[rows];
+		for (int j = 1; j <= columns; j++) {
+			if ( rowOf[j] != 0 ) columnOf[rowOf[j] - 1] = j - 1;
+		}
+		return columnOf;
+	}
+
+	/* return the sum of the delays of the requests assigned, as estimated when they were assigned */
+	long getTotalCost(){
+		return totalCost;
+	}
+
+	/* print the cost of the batch dispatch */
+	public void printStatistics(){
+		System.out.println((joint ? "joint" : "greedy")+" batches: "+batches+" ("+batchedRequests+" requests), solved jointly: "+jointBatches+" in "+rounds+" rounds");
+		if ( batches > 0 ){
+			System.out.println("average dispatch time per batch: "+(totalNanos/batches/1000.0)+" us, max: "+(maxNanos/1000.0)+" us");
+			System.out.println("average delay per batch: "+((double) totalCost/batches)+", max: "+maxCost+", total: "+totalCost);
+		}
+		System.out.println("requests left waiting: "+leftWaiting);
+	}
+}
@@ -10,13 +10,23 @@ public class Building {
 	
 	/* elevators of the hotel */
 	private ArrayList<Elevator> elevators = new ArrayList<Elevator>();
+	/* policy choosing the elevator of each request */
+	private DispatchStrategy dispatchStrategy = new GreedyDelayStrategy();
+	/* policy choosing where the idle elevators park */
+	private ParkingPolicy parkingPolicy = new EndFloorParking();
 
 	public Building( int maxFloor, int minFloor, int nbElevators, int doorTime) {
+		this(maxFloor, minFloor, nbElevators, doorTime, Elevator.UNLIMITED_CAPACITY);
+	}
+	
+	/* building whose elevators take at most capacity requests at the same time, at least one */
+	public Building( int maxFloor, int minFloor, int nbElevators, int doorTime, int capacity) {
 		super();
+		if ( capacity < 1 ) throw new IllegalArgumentException("capacity " + capacity + " is not at least 1");
 		MAX_FLOOR = maxFloor;
 		MIN_FLOOR = minFloor;
 		for (int i = 0; i < nbElevators; i++) {
-			elevators.add(new Elevator(doorTime, maxFloor, minFloor));
+			elevators.add(new Elevator(i, doorTime, maxFloor, minFloor, capacity));
 		}
 	}
 
@@ -24,4 +34,31 @@ public class Building {
 		return elevators;
 	}
 	
+	public DispatchStrategy getDispatchStrategy() {
+		return dispatchStrategy;
+	}
+	
+	public void setDispatchStrategy(DispatchStrategy dispatchStrategy) {
+		this.dispatchStrategy = dispatchStrategy;
+	}
+	
+	public ParkingPolicy getParkingPolicy() {
+		return parkingPolicy;
+	}
+	
+	public void setParkingPolicy(ParkingPolicy parkingPolicy) {
+		this.parkingPolicy = parkingPolicy;
+		for (Elevator e : elevators) {
+			e.setParkingPolicy(parkingPolicy);
+		}
+	}
+	
+	public int getMaxFloor() {
+		return MAX_FLOOR;
+	}
+	
+	public int getMinFloor() {
+		return MIN_FLOOR;
+	}
+	
 }
@@ -0,0 +1,183 @@
+package hotel;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/* intake of the calls of a building made from any thread, for the RealTimeDispatcher and the DispatcherHost.
+ *
+ * The calls are linked to the Queue of the thread running the building, which takes them and assigns them
+ * at the current time of the building as Main does for the requests of a trace. A call not assigned at once
+ * waits with the others by request id, and its future is completed when an elevator is assigned:
+ * the intake is the listener of the building, chained to the listener set before it.
+ * Except enqueue and the counters, everything is run by the thread running the building,
+ * or once it is over */
+class CallIntake implements DispatchListener {
+
+	private final ElevatorsSW sw;
+	private final Queue queue;
+	/* said after the floors of the building in the failures of the calls outside them */
+	private final String name;
+	/* listener set on sw before the intake, still receiving the events */
+	private DispatchListener next;
+
+	/* calls taken from the queue and not assigned yet, by request id */
+	private final HashMap<Integer, Call> pending = new HashMap<Integer, Call>();
+	private int nextRequestId = 0;
+
+	private final AtomicLong calls = new AtomicLong();
+	private volatile long assigned;
+	/* exception the building has failed with, its calls are no longer assigned */
+	private volatile Throwable failure;
+
+	CallIntake( ElevatorsSW sw, Queue queue, String name ) {
+		super();
+		this.sw = sw;
+		this.queue = queue;
+		this.name = name;
+	}
+
+	/* become the listener of the building until detached */
+	void attach() {
+		next = sw.getListener();
+		sw.setListener(this);
+	}
+
+	void detach() {
+		sw.setListener(next);
+	}
+
+	/* return a call from the start floor to the destination, already failed if a floor is outside the building */
+	Call newCall(int start, int dest) {
+		Call c = new Call(this, start, dest);
+		Building b = sw.getBuilding();
+		if ( start < b.MIN_FLOOR || start > b.MAX_FLOOR || dest < b.MIN_FLOOR || dest > b.MAX_FLOOR ){
+			c.future.completeExceptionally(new IllegalArgumentException("call from floor " + start + " to floor " + dest
+					+ " outside the floors " + b.MIN_FLOOR + " to " + b.MAX_FLOOR + (name == null ? "" : " of " + name)));
+		}
+		return c;
+	}
+
+	/* link the call to the queue of the thread running the building, from any thread */
+	void enqueue(Call c) {
+		calls.incrementAndGet();
+		queue.offer(c);
+	}
+
+	/* assign the call taken from the queue: a call failing fails alone */
+	void assign(Call c) {
+		if ( failure != null ){
+			c.future.completeExceptionally(failure);
+			return;
+		}
+		Request r = sw.newRequest(nextRequestId++, c.start, c.dest, sw.getTime());
+		c.requestId = r.getRequestId();
+		pending.put(c.requestId, c);
+		try {
+			sw.assignElevator(r);
+		} catch (RuntimeException e) {
+			pending.remove(c.requestId);
+			c.future.completeExceptionally(e);
+		}
+	}
+
+	/* the building is no longer run: fail the calls waiting for an elevator, and the calls assigned from now on */
+	void fail(Throwable e) {
+		failure = e;
+		failPending(e);
+	}
+
+	/* fail the calls waiting for an elevator */
+	void failPending(Throwable cause) {
+		for (Call p : pending.values()) p.future.completeExceptionally(cause);
+		pending.clear();
+	}
+
+	/* return the exception the building has failed with, null if none */
+	Throwable getFailure() {
+		return failure;
+	}
+
+	/* return the number of calls received */
+	long getCalls() {
+		return calls.get();
+	}
+
+	/* return the number of calls assigned to an elevator */
+	long getAssigned() {
+		return assigned;
+	}
+
+	public void requestDispatched(int time, int requestId, int elevatorNb, long nanos) {
+		if ( elevatorNb >= 0 ){
+			Call c = pending.remove(requestId);
+			if ( c != null ){
+				assigned++;
+				c.future.complete(new Assignment(requestId, elevatorNb, time, sw.estimatePickupTime(elevatorNb, c.start)));
+			}
+		}
+		if ( next != null ) next.requestDispatched(time, requestId, elevatorNb, nanos);
+	}
+
+	public void requestDelivered(int time, Request r) {
+		if ( next != null ) next.requestDelivered(time, r);
+	}
+
+	public void stepCompleted(ElevatorsSW sw) {
+		if ( next != null ) next.stepCompleted(sw);
+	}
+
+	/* call waiting in the queue, then for an elevator */
+	static class Call {
+
+		final CallIntake intake;
+		final int start;
+		final int dest;
+		final CompletableFuture<Assignment> future = new CompletableFuture<Assignment>();
+		volatile Call next;
+		int requestId;
+
+		Call(CallIntake intake, int start, int dest) {
+			this.intake = intake;
+			this.start = start;
+			this.dest = dest;
+		}
+	}
+
+	/* lock-free multi producer single consumer queue of calls (the intrusive queue of D. Vyukov):
+	 * producers swap the tail and link the previous one to their call, the consumer follows the links from the head.
+	 * offer never blocks and never waits for the consumer; poll must be run by one thread at a time */
+	static class Queue {
+
+		private final AtomicReference<Call> tail;
+		private Call head;
+
+		Queue() {
+			Call stub = new Call(null, 0, 0);
+			head = stub;
+			tail = new AtomicReference<Call>(stub);
+		}
+
+		void offer(Call c) {
+			Call previous = tail.getAndSet(c);
+			previous.next = c;
+		}
+
+		/* take the oldest call, null if the queue is empty
+		 * or if the call being added by a producer is not linked yet */
+		Call poll() {
+			Call first = head.next;
+			if ( first == null ) return null;
+			/* the call taken becomes the head of the queue */
+			head = first;
+			return first;
+		}
+
+		/* fail the calls left in the queue with the given cause */
+		void cancel(Throwable cause) {
+			Call c;
+			while ( (c = poll()) != null ) c.future.completeExceptionally(cause);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package hotel;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/* online model of the calls of a building: for each time bucket of the day, floor and direction
+ * the number of calls received, exponentially decayed so that recent days weigh more.
+ * The calls of a day all count the same: a cell is decayed once for each day since its last update,
+ * when it is read or updated on a later day, so recording a call costs a few operations
+ * and nothing is done while time passes */
+public class DemandModel {
+
+	/* default length of a bucket: a quarter of an hour in time units of one second */
+	public static final int DEFAULT_BUCKET_LENGTH = 900;
+	/* default number of buckets: one day */
+	public static final int DEFAULT_BUCKETS = 96;
+	/* default days after which a call counts half */
+	public static final int DEFAULT_HALF_LIFE = 7;
+
+	private static final int UP = 0;
+	private static final int DOWN = 1;
+
+	private final int maxFloor;
+	private final int minFloor;
+	private final int bucketLength;
+	private final int buckets;
+	private final int halfLife;
+	/* decay of a count by day, as the exponent of e */
+	private final double decayRate;
+
+	/* decayed count of each bucket, floor and direction on the day of its last update */
+	private double[] counts;
+	private int[] updatedDay;
+	private long calls;
+
+	public DemandModel( int maxFloor, int minFloor ) {
+		this(maxFloor, minFloor, DEFAULT_BUCKET_LENGTH, DEFAULT_BUCKETS, DEFAULT_HALF_LIFE);
+	}
+
+	/* halfLife is in days, a day being the buckets of bucketLength time units */
+	public DemandModel( int maxFloor, int minFloor, int bucketLength, int buckets, int halfLife ) {
+		super();
+		if ( bucketLength <= 0 || buckets <= 0 || halfLife <= 0 ) throw new IllegalArgumentException("bucket length, buckets and half life must be positive");
+		this.maxFloor = maxFloor;
+		this.minFloor = minFloor;
+		this.bucketLength = bucketLength;
+		this.buckets = buckets;
+		this.halfLife = halfLife;
+		this.decayRate = Math.log(2) / halfLife;
+		counts = new double[buckets * (maxFloor - minFloor + 1) * 2];
+		updatedDay = new int[counts.length];
+	}
+
+	/* record a call from the start floor to the destination at the given time */
+	public void record(int time, int start, int dest) {
+		if ( start < minFloor || start > maxFloor || start == dest ) return;
+		int i = cell(bucket(time), start, dest > start ? UP : DOWN);
+		counts[i] = decayed(i, time) + 1;
+		updatedDay[i] = day(time);
+		calls++;
+	}
+
+	/* return the decayed number of calls from the floor in the given direction
+	 * in the bucket of the given time and in the previous one, which keeps the expected calls
+	 * from dropping to nothing when a bucket starts */
+	public double expectedCalls(int time, int floor, boolean direction) {
+		if ( floor < minFloor || floor > maxFloor ) return 0;
+		int dir = direction == Elevator.UP ? UP : DOWN;
+		/* the previous bucket is read at its own time: before midnight it is still the day before */
+		return decayed(cell(bucket(time), floor, dir), time) + decayed(cell(bucket(time - bucketLength), floor, dir), time - bucketLength);
+	}
+
+	/* return the expected calls from the floor in both directions */
+	public double expectedCalls(int time, int floor) {
+		return expectedCalls(time, floor, Elevator.UP) + expectedCalls(time, floor, Elevator.DOWN);
+	}
+
+	/* return the number of calls recorded */
+	public long getCalls() {
+		return calls;
+	}
+
+	public int getMaxFloor() {
+		return maxFloor;
+	}
+
+	public int getMinFloor() {
+		return minFloor;
+	}
+
+	/* forget every call recorded */
+	public void clear() {
+		Arrays.fill(counts, 0);
+		Arrays.fill(updatedDay, 0);
+		calls = 0;
+	}
+
+	/* write the shape of the model and the calls recorded, the cells never updated as a count of them */
+	void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(maxFloor);
+		out.writeInt(minFloor);
+		out.writeInt(bucketLength);
+		out.writeInt(buckets);
+		out.writeInt(halfLife);
+		out.writeLong(calls);
+		int empty = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if ( counts[i] == 0 ){
+				empty++;
+				continue;
+			}
+			out.writeInt(empty);
+			out.writeDouble(counts[i]);
+			out.writeInt(updatedDay[i]);
+			empty = 0;
+		}
+		out.writeInt(empty);
+	}
+
+	/* return the model written by writeState */
+	static DemandModel readState(DataInputStream in) throws IOException {
+		DemandModel model;
+		try {
+			model = new DemandModel(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+		} catch (RuntimeException e) {
+			throw new IOException("corrupted demand model", e);
+		}
+		model.calls = in.readLong();
+		int i = in.readInt();
+		if ( i < 0 || i > model.counts.length ) throw new IOException("corrupted demand model");
+		while ( i < model.counts.length ){
+			model.counts[i] = in.readDouble();
+			model.updatedDay[i] = in.readInt();
+			int empty = in.readInt();
+			if ( empty < 0 || empty > model.counts.length - i - 1 ) throw new IOException("corrupted demand model");
+			i += empty + 1;
+		}
+		return model;
+	}
+
+	private int bucket(int time) {
+		return Math.floorMod(Math.floorDiv(time, bucketLength), buckets);
+	}
+
+	private int day(int time) {
+		return Math.floorDiv(Math.floorDiv(time, bucketLength), buckets);
+	}
+
+	private int cell(int bucket, int floor, int dir) {
+		return ((bucket * (maxFloor - minFloor + 1)) + floor - minFloor) * 2 + dir;
+	}
+
+	/* count of the cell decayed to the day of the given time, not earlier than its last update */
+	private double decayed(int i, int time) {
+		if ( counts[i] == 0 ) return 0;
+		int days = day(time) - updatedDay[i];
+		if ( days <= 0 ) return counts[i];
+		return counts[i] * Math.exp(-decayRate * days);
+	}
+}
@@ -0,0 +1,121 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/* destination dispatch: the requests of the same time unit leaving from the same floor
+ * towards the same zone of floors are grouped and each group is assigned to one elevator,
+ * so that they share the stop at the start floor and most of the stops at the destinations.
+ * A group is chosen for the elevator with the minimum delay to reach its farthest destination
+ * and room for all of it; groups larger than the capacity of the elevators are split,
+ * and the requests of a group no elevator can take are assigned one by one */
+public class DestinationDispatcher implements BatchAssigner {
+
+	/* default number of floors of a destination zone */
+	public static final int DEFAULT_ZONE_SIZE = 10;
+
+	private ElevatorsSW sw;
+	private int zoneSize;
+	private int minFloor;
+	private int capacity;
+
+	/* groups of the current batch by start floor, direction and destination zone, in arrival order */
+	private LinkedHashMap<Long, ArrayList<Request>> groups = new LinkedHashMap<Long, ArrayList<Request>>();
+
+	/* dispatch statistics */
+	private long batches;
+	private long batchedRequests;
+	private long groupCount;
+	private long groupedRequests;
+	private int largestGroup;
+	private long splitGroups;
+	private long unassignedGroups;
+
+	public DestinationDispatcher( ElevatorsSW sw ) {
+		this(sw, DEFAULT_ZONE_SIZE);
+	}
+
+	public DestinationDispatcher( ElevatorsSW sw, int zoneSize ) {
+		super();
+		this.sw = sw;
+		this.zoneSize = zoneSize;
+		this.minFloor = sw.getBuilding().MIN_FLOOR;
+		this.capacity = Elevator.UNLIMITED_CAPACITY;
+		for (Elevator e : sw.getBuilding().getElevators()) {
+			capacity = Math.min(capacity, e.CAPACITY);
+		}
+	}
+
+	public int assignBatch(List<Request> batch){
+		int assigned = 0;
+
+		groups.clear();
+		for (Request r : batch) {
+			Long key = groupKey(r);
+			ArrayList<Request> group = groups.get(key);
+			if ( group == null ){
+				group = new ArrayList<Request>();
+				groups.put(key, group);
+			}
+			group.add(r);
+		}
+
+		for (ArrayList<Request> group : groups.values()) {
+			groupCount++;
+			if ( group.size() > 1 ) groupedRequests += group.size();
+			largestGroup = Math.max(largestGroup, group.size());
+			if ( group.size() > capacity ) splitGroups++;
+
+			/* assign the group in parts filling the elevators */
+			for (int from = 0; from < group.size(); from += capacity) {
+				assigned += assignGroup(group.subList(from, Math.min(group.size(), from + capacity)));
+			}
+		}
+
+		batches++;
+		batchedRequests += batch.size();
+		return assigned;
+	}
+
+	/* assign the requests of a group to the same elevator, one by one if no elevator can take all of them
+	 * return the number of requests assigned */
+	private int assignGroup(List<Request> group){
+		Request first = group.get(0);
+		int start = first.getStart();
+		int farthest = first.getDestination();
+		for (Request r : group) {
+			if ( Math.abs(r.getDestination() - start) > Math.abs(farthest - start) ) farthest = r.getDestination();
+		}
+
+		int assigned = 0;
+		int elevatorNb = sw.selectElevator(start, farthest, group.size());
+		if ( elevatorNb >= 0 ){
+			for (Request r : group) {
+				if ( sw.assignTo(r, elevatorNb) ) assigned++;
+			}
+		}else{
+			if ( group.size() > 1 ) unassignedGroups++;
+			for (Request r : group) {
+				if ( sw.assignElevator(r) ) assigned++;
+			}
+		}
+		return assigned;
+	}
+
+	/* start floor, direction and destination zone of the request */
+	private long groupKey(Request r){
+		int direction = Integer.signum(r.getDestination() - r.getStart());
+		int zone = Math.floorDiv(r.getDestination() - minFloor, zoneSize);
+		return ((long) r.getStart() << 32) | ((long) (direction + 1) << 30) | (zone & 0x3FFFFFFF);
+	}
+
+	/* print the groups formed */
+	public void printStatistics(){
+		System.out.println("batches: "+batches+" ("+batchedRequests+" requests)");
+		if ( groupCount > 0 ){
+			System.out.println("groups: "+groupCount+", average size: "+((double) batchedRequests/groupCount)+", largest: "+largestGroup);
+		}
+		System.out.println("requests sharing a group: "+groupedRequests+", groups split for capacity: "+splitGroups+", groups assigned one by one: "+unassignedGroups);
+	}
+}
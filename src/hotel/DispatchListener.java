@@ -0,0 +1,19 @@
+package hotel;
+
+/* receiver of the dispatch events of ElevatorsSW, called on the thread running the simulation.
+ * Without a listener the dispatcher does not measure anything */
+public interface DispatchListener {
+
+	/* a request has gone through assignElevator: elevatorNb is the index of the elevator chosen,
+	 * -1 if the request was left waiting, nanos the time taken to choose it */
+	void requestDispatched(int time, int requestId, int elevatorNb, long nanos);
+
+	/* a request has been delivered at its destination: it may be reused once this returns,
+	 * its values must be read now */
+	void requestDelivered(int time, Request r);
+
+	/* a time unit has been run: the state of the dispatcher can be read from sw.
+	 * nextSimulationStep calls it at each time unit, the engines at the end of the time units
+	 * having an event and of each run, skipping the ones in which the elevators only move or wait */
+	void stepCompleted(ElevatorsSW sw);
+}
@@ -0,0 +1,140 @@
+package hotel;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/* listener keeping the last state of the dispatcher and the cumulative dispatch figures,
+ * readable through JMX once registered.
+ * The figures are written by the simulation thread without allocating and read by the JMX ones,
+ * so the values of the elevators read together may come from two consecutive time units */
+public class DispatchMetrics implements DispatchListener, DispatchMetricsMBean {
+
+	private volatile int time;
+	private volatile int waitingRequests;
+	private volatile int requestsInFlight;
+
+	private volatile long dispatches;
+	private volatile long rejections;
+	private volatile long deliveries;
+	private volatile long totalDispatchNanos;
+	private volatile long maxDispatchNanos;
+
+	/* state of each elevator */
+	private int[] stopQueueDepths = new int[0];
+	private long[] doorOpenTimes = new long[0];
+	private long[] movingTimes = new long[0];
+	private long[] idleTimes = new long[0];
+
+	private ObjectName objectName;
+
+	public void requestDispatched(int time, int requestId, int elevatorNb, long nanos) {
+		dispatches++;
+		if ( elevatorNb < 0 ) rejections++;
+		totalDispatchNanos += nanos;
+		if ( nanos > maxDispatchNanos ) maxDispatchNanos = nanos;
+	}
+
+	public void requestDelivered(int time, Request r) {
+		deliveries++;
+	}
+
+	public void stepCompleted(ElevatorsSW sw) {
+		int n = sw.getElevatorCount();
+		if ( stopQueueDepths.length != n ){
+			stopQueueDepths = new int[n];
+			doorOpenTimes = new long[n];
+			movingTimes = new long[n];
+			idleTimes = new long[n];
+		}
+		for (int i = 0; i < n; i++) {
+			stopQueueDepths[i] = sw.getStopQueueDepth(i);
+			doorOpenTimes[i] = sw.getDoorOpenTime(i);
+			movingTimes[i] = sw.getMovingTime(i);
+			idleTimes[i] = sw.getIdleTime(i);
+		}
+		waitingRequests = sw.getWaitingRequestCount();
+		requestsInFlight = sw.getRequestsInFlight();
+		time = sw.getTime();
+	}
+
+	/* register the metrics in the platform MBean server as hotel:type=DispatchMetrics,name=<name> */
+	public synchronized ObjectName register(String name) throws JMException {
+		unregister();
+		ObjectName on = new ObjectName("hotel:type=DispatchMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+		objectName = on;
+		return on;
+	}
+
+	public synchronized void unregister() throws JMException {
+		if ( objectName == null ) return;
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		objectName = null;
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getWaitingRequests() {
+		return waitingRequests;
+	}
+
+	public int getRequestsInFlight() {
+		return requestsInFlight;
+	}
+
+	public long getDispatches() {
+		return dispatches;
+	}
+
+	public long getRejections() {
+		return rejections;
+	}
+
+	public long getDeliveries() {
+		return deliveries;
+	}
+
+	/* fraction of the dispatches leaving the request waiting */
+	public double getRejectionRate() {
+		long n = dispatches;
+		return n == 0 ? 0 : (double) rejections / n;
+	}
+
+	public double getAverageDispatchNanos() {
+		long n = dispatches;
+		return n == 0 ? 0 : (double) totalDispatchNanos / n;
+	}
+
+	public long getMaxDispatchNanos() {
+		return maxDispatchNanos;
+	}
+
+	public int[] getStopQueueDepths() {
+		return stopQueueDepths.clone();
+	}
+
+	public long[] getDoorOpenTimes() {
+		return doorOpenTimes.clone();
+	}
+
+	public long[] getMovingTimes() {
+		return movingTimes.clone();
+	}
+
+	public long[] getIdleTimes() {
+		return idleTimes.clone();
+	}
+
+	/* print the cumulative figures */
+	public void printStatistics() {
+		System.out.println("dispatches: " + dispatches + ", rejected: " + rejections + " (" + getRejectionRate() * 100 + "%)");
+		System.out.println("average dispatch time: " + getAverageDispatchNanos() / 1000.0 + " us, max: " + maxDispatchNanos / 1000.0 + " us");
+		for (int i = 0; i < doorOpenTimes.length; i++) {
+			System.out.println("elevator " + i + ": door open " + doorOpenTimes[i] + ", moving " + movingTimes[i] + ", idle " + idleTimes[i]);
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package hotel;
+
+/* management interface of DispatchMetrics */
+public interface DispatchMetricsMBean {
+
+	int getTime();
+
+	int getWaitingRequests();
+
+	int getRequestsInFlight();
+
+	long getDispatches();
+
+	long getRejections();
+
+	long getDeliveries();
+
+	double getRejectionRate();
+
+	double getAverageDispatchNanos();
+
+	long getMaxDispatchNanos();
+
+	int[] getStopQueueDepths();
+
+	long[] getDoorOpenTimes();
+
+	long[] getMovingTimes();
+
+	long[] getIdleTimes();
+}
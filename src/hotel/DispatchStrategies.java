@@ -0,0 +1,19 @@
+package hotel;
+
+/* dispatch strategies available by name */
+public class DispatchStrategies {
+
+	public static final String[] NAMES = { "greedy", "nearest", "zoned", "eta" };
+
+	private DispatchStrategies() {
+	}
+
+	/* return a new strategy of the given name for the building */
+	public static DispatchStrategy forName(String name, Building building) {
+		if ( name.equals("greedy") ) return new GreedyDelayStrategy();
+		if ( name.equals("nearest") ) return new NearestCarStrategy();
+		if ( name.equals("zoned") ) return new ZonedStrategy(building.getElevators().size());
+		if ( name.equals("eta") ) return new EtaLookaheadStrategy();
+		throw new IllegalArgumentException("unknown dispatch strategy " + name);
+	}
+}
@@ -0,0 +1,16 @@
+package hotel;
+
+/* policy choosing the elevator of a request: ElevatorsSW assigns the request to the elevator
+ * of minimum cost, the lowest index among equal costs.
+ * Candidates may be scored in parallel: the strategies must not change any state while scoring */
+public interface DispatchStrategy {
+
+	/* return the cost of assigning to the elevator the given number of requests
+	 * from the start floor, dest being the farthest destination, -1 if the elevator must not take them.
+	 * The elevator has room for the requests */
+	int cost(ElevatorView e, int start, int dest, int passengers);
+
+	/* return true if a moving elevator never takes a request against its direction or from a floor
+	 * it has passed: the waiting requests are then retried only when some elevator could take them */
+	boolean movingTakesOnlyAhead();
+}
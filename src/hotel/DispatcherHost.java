@@ -0,0 +1,321 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/* real time host of many buildings, each one with its own ElevatorsSW, run by a small pool of worker threads
+ * instead of a thread per building.
+ *
+ * Each building is pinned to one worker, which is the only thread using its ElevatorsSW: its calls
+ * are handed over through a CallIntake linking them to the lock-free queue of the worker, and its time units are run by the worker
+ * from a hashed timing wheel. The wheel turns one slot every tick of the wall clock; a building
+ * running a time unit every period ticks is kept in the slot of its next time unit, with the number
+ * of turns of the wheel still to wait, so a worker only looks at the buildings due at each tick
+ * whatever their number and period.
+ *
+ * The lag of a time unit is how late on the wall clock it has been run: a worker whose buildings take
+ * more than a tick to run falls behind, runs the late ticks one after the other, and the lag of its
+ * buildings grows. The last and the highest lag of each building can be read from any thread.
+ *
+ * A call or a time unit failing with an exception only fails its own building: the call is completed
+ * with the exception, a building whose time unit fails is taken off the wheel with its pending calls
+ * failed, and the worker goes on with the other buildings */
+public class DispatcherHost {
+
+	/* default number of slots of the timing wheel of each worker */
+	public static final int DEFAULT_WHEEL_SLOTS = 512;
+
+	private long tickNanos;
+	private int wheelSlots;
+	private Worker[] workers;
+	private ArrayList<Tenant> tenants = new ArrayList<Tenant>();
+	private volatile boolean running;
+	private boolean started;
+
+	public DispatcherHost( int nbWorkers, long tickNanos ) {
+		this(nbWorkers, tickNanos, DEFAULT_WHEEL_SLOTS);
+	}
+
+	public DispatcherHost( int nbWorkers, long tickNanos, int wheelSlots ) {
+		super();
+		if ( nbWorkers < 1 ) throw new IllegalArgumentException("at least one worker is needed");
+		if ( tickNanos < 1 ) throw new IllegalArgumentException("tick must be positive");
+		if ( wheelSlots < 1 || Integer.bitCount(wheelSlots) != 1 ) throw new IllegalArgumentException("wheel slots must be a power of two");
+		this.tickNanos = tickNanos;
+		this.wheelSlots = wheelSlots;
+		workers = new Worker[nbWorkers];
+		for (int i = 0; i < nbWorkers; i++) {
+			workers[i] = new Worker(i);
+		}
+	}
+
+	/* add a building running a time unit every tick, return its index */
+	public int addBuilding(Building building) {
+		return addBuilding(building, 1);
+	}
+
+	/* add a building running a time unit every period ticks, return its index.
+	 * The building is pinned to the worker with the fewest buildings, the first one in case of tie */
+	public synchronized int addBuilding(Building building, int period) {
+		if ( started ) throw new IllegalStateException("buildings must be added before starting");
+		if ( period < 1 ) throw new IllegalArgumentException("period must be at least 1");
+		Worker worker = workers[0];
+		for (Worker w : workers) {
+			if ( w.size < worker.size ) worker = w;
+		}
+		Tenant t = new Tenant(tenants.size(), new ElevatorsSW(building), period, worker);
+		tenants.add(t);
+		worker.size++;
+		return t.index;
+	}
+
+	public int getBuildingCount() {
+		return tenants.size();
+	}
+
+	public int getWorkerCount() {
+		return workers.length;
+	}
+
+	/* return the worker the building of the given index is pinned to */
+	public int getWorker(int building) {
+		return tenants.get(building).worker.index;
+	}
+
+	/* return the elevators software of the building: once the host is started
+	 * it must not be used while the host is running, except through call */
+	public ElevatorsSW getBuilding(int building) {
+		return tenants.get(building).sw;
+	}
+
+	/* start the workers: from now on the buildings are run by the host */
+	public synchronized void start() {
+		if ( started ) throw new IllegalStateException("host already started");
+		started = true;
+		running = true;
+		long start = System.nanoTime();
+		for (Tenant t : tenants) {
+			t.intake.attach();
+			t.worker.schedule(t, t.period);
+		}
+		for (Worker w : workers) {
+			w.start = start;
+			w.thread = new Thread(w, "host-worker-" + w.index);
+			w.thread.setDaemon(true);
+			w.thread.start();
+		}
+	}
+
+	/* stop the workers: the calls not assigned yet are cancelled */
+	public synchronized void stop() throws InterruptedException {
+		if ( !running ) return;
+		running = false;
+		for (Worker w : workers) {
+			LockSupport.unpark(w.thread);
+			w.thread.join();
+		}
+		for (Worker w : workers) cancelQueued(w);
+		for (Tenant t : tenants) {
+			t.intake.detach();
+			t.intake.failPending(new CancellationException("host stopped"));
+		}
+	}
+
+	/* call an elevator of the building from the start floor to the destination, from any thread.
+	 * The future gets the elevator assigned and the estimated time before it picks up the call */
+	public CompletableFuture<Assignment> call(int building, int start, int dest) {
+		Tenant t = tenants.get(building);
+		CallIntake.Call c = t.intake.newCall(start, dest);
+		if ( c.future.isDone() ) return c.future;
+		if ( !running ){
+			c.future.completeExceptionally(new CancellationException("host not running"));
+			return c.future;
+		}
+		enqueue(t, c);
+		return c.future;
+	}
+
+	/* hand a call over as call does once it has found the host running */
+	CompletableFuture<Assignment> enqueue(int building, int start, int dest) {
+		Tenant t = tenants.get(building);
+		CallIntake.Call c = t.intake.newCall(start, dest);
+		enqueue(t, c);
+		return c.future;
+	}
+
+	/* hand the call over to the worker of the building: call has found the host running, it may have stopped since */
+	private void enqueue(Tenant t, CallIntake.Call c) {
+		t.intake.enqueue(c);
+		/* stop may have emptied the queue before the call was added: nobody else would cancel it */
+		if ( !running ) cancelQueued(t.worker);
+	}
+
+	/* cancel the calls left in the intake queue of the worker once it is over: called by stop,
+	 * and by the callers whose call has been added after stop has emptied the queue.
+	 * Synchronized with stop, it never runs while the worker is taking calls */
+	private synchronized void cancelQueued(Worker w) {
+		w.queue.cancel(new CancellationException("host stopped"));
+	}
+
+	/* return the number of calls received by the building */
+	public long getCalls(int building) {
+		return tenants.get(building).intake.getCalls();
+	}
+
+	/* return the number of calls of the building assigned to an elevator */
+	public long getAssigned(int building) {
+		return tenants.get(building).intake.getAssigned();
+	}
+
+	/* return the exception the building has failed with, null if it is still run */
+	public Throwable getFailure(int building) {
+		return tenants.get(building).intake.getFailure();
+	}
+
+	/* return the number of time units run by the building */
+	public long getSteps(int building) {
+		return tenants.get(building).steps;
+	}
+
+	/* return how late on the wall clock the last time unit of the building has been run */
+	public long getLagNanos(int building) {
+		return tenants.get(building).lagNanos;
+	}
+
+	/* return the most a time unit of the building has been run late */
+	public long getMaxLagNanos(int building) {
+		return tenants.get(building).maxLagNanos;
+	}
+
+	/* return the number of buildings whose last time unit has been run more than the given time late */
+	public int countLagging(long thresholdNanos) {
+		int n = 0;
+		for (Tenant t : tenants) {
+			if ( t.lagNanos > thresholdNanos ) n++;
+		}
+		return n;
+	}
+
+	/* return the number of time units run by all the buildings */
+	public long getTotalSteps() {
+		long steps = 0;
+		for (Tenant t : tenants) steps += t.steps;
+		return steps;
+	}
+
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	/* worker thread running the buildings pinned to it from its timing wheel */
+	private class Worker implements Runnable {
+
+		final int index;
+		/* calls to the buildings of the worker, from any thread */
+		final CallIntake.Queue queue = new CallIntake.Queue();
+		/* buildings due in each slot, linked through Tenant.nextInSlot */
+		final Tenant[] slots = new Tenant[wheelSlots];
+		final int mask = wheelSlots - 1;
+		int size;
+		Thread thread;
+		long start;
+		/* last tick run */
+		long tick;
+
+		Worker(int index) {
+			this.index = index;
+		}
+
+		/* put the building in the slot of the tick ticks ahead of the current one */
+		void schedule(Tenant t, int ticks) {
+			int slot = (int) ((tick + ticks) & mask);
+			t.rounds = (ticks - 1) / wheelSlots;
+			t.nextInSlot = slots[slot];
+			slots[slot] = t;
+		}
+
+		public void run() {
+			while ( running ){
+				/* assign the calls arrived so far at the current time of their building */
+				CallIntake.Call c;
+				while ( (c = queue.poll()) != null ){
+					/* a call failing fails alone, the worker goes on with the others */
+					c.intake.assign(c);
+				}
+
+				long now = System.nanoTime();
+				long due = start + (tick + 1) * tickNanos;
+				if ( now < due ){
+					LockSupport.parkNanos(due - now);
+					continue;
+				}
+				/* run the next tick, late ticks are run one after the other until the clock is reached */
+				tick++;
+				runSlot(now - due);
+			}
+		}
+
+		/* run a time unit of the buildings due at the current tick, leave the others for a later turn */
+		private void runSlot(long lag) {
+			int slot = (int) (tick & mask);
+			Tenant t = slots[slot];
+			slots[slot] = null;
+			while ( t != null ){
+				Tenant next = t.nextInSlot;
+				if ( t.rounds > 0 ){
+					t.rounds--;
+					t.nextInSlot = slots[slot];
+					slots[slot] = t;
+				}else{
+					try {
+						t.step(lag);
+						schedule(t, t.period);
+					} catch (RuntimeException e) {
+						/* the building is left off the wheel, the worker goes on with the others */
+						t.fail(e);
+					}
+				}
+				t = next;
+			}
+		}
+	}
+
+	/* building of the host, with the intake of its calls */
+	private class Tenant {
+
+		final int index;
+		final ElevatorsSW sw;
+		final int period;
+		final Worker worker;
+		final CallIntake intake;
+		/* next building of the same slot, and turns of the wheel to wait */
+		Tenant nextInSlot;
+		int rounds;
+
+		volatile long steps;
+		volatile long lagNanos;
+		volatile long maxLagNanos;
+
+		Tenant(int index, ElevatorsSW sw, int period, Worker worker) {
+			this.index = index;
+			this.sw = sw;
+			this.period = period;
+			this.worker = worker;
+			this.intake = new CallIntake(sw, worker.queue, "building " + index);
+		}
+
+		void step(long lag) {
+			sw.nextSimulationStep();
+			steps++;
+			lagNanos = lag;
+			if ( lag > maxLagNanos ) maxLagNanos = lag;
+		}
+
+		/* the building is taken off the wheel: its calls waiting for an elevator and its next calls fail */
+		void fail(Throwable e) {
+			intake.fail(e);
+		}
+	}
+}
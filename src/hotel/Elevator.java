@@ -1,20 +1,25 @@
 package hotel;
 
-import java.util.ArrayList;
-import java.util.TreeMap;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 /* class of the elevator */
-public class Elevator {
+public class Elevator implements ElevatorView {
 	
 	public static final boolean UP = true;
 	public static final boolean DOWN = false;
 	private static final int MAX_IDLE_TIME = 5;
+	private static final ParkingPolicy DEFAULT_PARKING = new EndFloorParking();
 	
-	private static int nextElevatorId = 0;
+	/* capacity of the elevators not limiting the requests they take */
+	public static final int UNLIMITED_CAPACITY = Integer.MAX_VALUE;
 	
 	final int OPENING_DOOR_TIME;
 	final int MAX_FLOOR;
 	final int MIN_FLOOR;
+	/* most requests the elevator is committed to at the same time, on board or to be picked up */
+	final int CAPACITY;
 	
 	private int elevatorId;
 	private int currentFloor;
@@ -22,23 +27,104 @@ public class Elevator {
 	private boolean moving;
 	private int doorOpenedElapsedTime;
 	private int idleTime;
-	/* Tree containing the stops assigned to the elevator */
-	private TreeMap<Integer,ArrayList<Request>> stops = new TreeMap<Integer, ArrayList<Request>>();
+	/* floors of the stops assigned to the elevator */
+	private FloorSet stops;
+	/* requests of each stop, linked through Request.nextInStop in insertion order */
+	private Request[] stopHead;
+	private Request[] stopTail;
+	/* running aggregates of the stops, kept up to date by addStop and removeStop:
+	 * floors having a stop, destinations of the requests still to be picked up by direction */
+	private FloorCounter stopFloors;
+	private FloorCounter pendingUp;
+	private FloorCounter pendingDown;
+	/* time units spent with the door open and moving between floors */
+	private long doorOpenTime;
+	private long movingTime;
+	/* requests assigned to the elevator and not delivered yet */
+	private int load;
+	/* number of changes of the stops, the direction or the moving state,
+	 * for the engines keeping a copy of the state of the elevator */
+	private int changes;
+	/* where the elevator goes when it is idle for too much */
+	private ParkingPolicy parking = DEFAULT_PARKING;
 	
-	public Elevator( int doorTime, int maxFloor, int minFloor) {
+	public Elevator( int elevatorId, int doorTime, int maxFloor, int minFloor) {
+		this(elevatorId, doorTime, maxFloor, minFloor, UNLIMITED_CAPACITY);
+	}
+	
+	public Elevator( int elevatorId, int doorTime, int maxFloor, int minFloor, int capacity) {
 		super();
-		currentFloor = 1;
+		CAPACITY = capacity;
+		/* the elevators start at floor 1, or at the floor closest to it if they do not serve it */
+		currentFloor = Math.max(minFloor, Math.min(maxFloor, 1));
 		moving = false;
 		OPENING_DOOR_TIME = doorTime;
 		MAX_FLOOR = maxFloor;
 		MIN_FLOOR = minFloor;
-		elevatorId = nextElevatorId++;
+		this.elevatorId = elevatorId;
 		doorOpenedElapsedTime = 0;
 		idleTime = 0;
+		clearStops();
+	}
+	
+	private void clearStops() {
+		stops = new FloorSet(MAX_FLOOR, MIN_FLOOR);
+		stopHead = new Request[MAX_FLOOR - MIN_FLOOR + 1];
+		stopTail = new Request[MAX_FLOOR - MIN_FLOOR + 1];
+		stopFloors = new FloorCounter(MAX_FLOOR, MIN_FLOOR);
+		pendingUp = new FloorCounter(MAX_FLOOR, MIN_FLOOR);
+		pendingDown = new FloorCounter(MAX_FLOOR, MIN_FLOOR);
+	}
+	
+	/* write the state of the elevator, its stops and their requests */
+	void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(currentFloor);
+		out.writeBoolean(direction);
+		out.writeBoolean(moving);
+		out.writeInt(doorOpenedElapsedTime);
+		out.writeInt(idleTime);
+		out.writeLong(doorOpenTime);
+		out.writeLong(movingTime);
+		out.writeInt(load);
+		
+		out.writeInt(stops.size());
+		if ( stops.isEmpty() ) return;
+		for (int floor = stops.first(); ; floor = stops.higher(floor)) {
+			int n = 0;
+			for (Request r = stopHead[floor - MIN_FLOOR]; r != null; r = r.nextInStop) n++;
+			out.writeInt(floor);
+			out.writeInt(n);
+			for (Request r = stopHead[floor - MIN_FLOOR]; r != null; r = r.nextInStop) r.writeState(out);
+			if ( floor == stops.last() ) break;
+		}
+	}
+	
+	/* replace the state of the elevator with the one written by writeState */
+	void readState(DataInputStream in) throws IOException {
+		currentFloor = in.readInt();
+		direction = in.readBoolean();
+		moving = in.readBoolean();
+		doorOpenedElapsedTime = in.readInt();
+		idleTime = in.readInt();
+		doorOpenTime = in.readLong();
+		movingTime = in.readLong();
+		int savedLoad = in.readInt();
+		
+		changes++;
+		clearStops();
+		int nbStops = in.readInt();
+		for (int i = 0; i < nbStops; i++) {
+			int floor = in.readInt();
+			addStop(floor, null);
+			int n = in.readInt();
+			for (int j = 0; j < n; j++) addStop(floor, Request.readState(in));
+		}
+		/* the requests on board are not counted by addStop */
+		load = savedLoad;
 	}
 
-	/* make next move of the elevator */
-	void moveNext(){
+	/* make next move of the elevator at the given time of the simulation */
+	void moveNext(int time){
 		/* if door is not opening make next move */
 		if ( !isDoorOpening() ){
 			if ( stops.isEmpty() ){
@@ -47,30 +133,23 @@ public class Elevator {
 				//System.out.println("Elevator "+elevatorId+" stays idle");
 				idleTime++;
 				
-				/* if the elevator is idle for too much, it moves to bottom or top, which one is closer */
+				/* if the elevator is idle for too much, it moves to the floor chosen by the parking policy */
 				if (idleTime >= MAX_IDLE_TIME){
-					if ( currentFloor != MAX_FLOOR && currentFloor != MIN_FLOOR){
-						int distanceFromTop = MAX_FLOOR-currentFloor;
-						int distanceFromBottom = currentFloor - MIN_FLOOR;
-						
-						if ( distanceFromTop > distanceFromBottom ){
-							addStop(MAX_FLOOR, null);
-							//System.out.println("No other requests assigned: Elevator "+elevatorId+" heading to floor "+MAX_FLOOR);
-						}else{
-							addStop(MIN_FLOOR, null);
-							//System.out.println("No other requests assigned: Elevator "+elevatorId+" heading to floor "+MIN_FLOOR);
-						}
+					int parkingFloor = parking.parkingFloor(this, time);
+					if ( parkingFloor != currentFloor ){
+						addStop(parkingFloor, null);
 						moving = true;
 						idleTime=0;
 					}
 				}
 			}else{
+				movingTime++;
 				/* elevator moves to the current direction until there is a stop in such direction
 				 * Otherwise it changes direction, going towards remaining stops
 				 */
 				if ( isDirection() == UP ){
 					if (currentFloor < MAX_FLOOR ){
-						if ( currentFloor < stops.lastKey() ){
+						if ( currentFloor < stops.last() ){
 							currentFloor++;
 						}else{
 							direction = DOWN;
@@ -82,7 +161,7 @@ public class Elevator {
 					}
 				}else{
 					if (currentFloor > MIN_FLOOR){
-						if ( currentFloor > stops.firstKey() ){
+						if ( currentFloor > stops.first() ){
 							currentFloor--;
 						}else{
 							direction = UP;
@@ -94,23 +173,181 @@ public class Elevator {
 					}
 				}
 			}
+		}else{
+			/* the door has just been opened at a stop */
+			doorOpenTime++;
+		}
+	}
+	
+	/* return the number of next time units in which the elevator only waits for the door
+	 * to close or moves one floor without reaching a stop, Integer.MAX_VALUE if it is not moving */
+	int ticksUntilNextEvent(){
+		if ( !moving ) return Integer.MAX_VALUE;
+		if ( isDoorOpening() ) return doorOpenedElapsedTime;
+		if ( stops.isEmpty() || stops.contains(currentFloor) ) return 0;
+		
+		if ( isDirection() == UP ){
+			if ( currentFloor < MAX_FLOOR && currentFloor < stops.last() ){
+				return stops.higher(currentFloor) - currentFloor;
+			}
+		}else{
+			if ( currentFloor > MIN_FLOOR && currentFloor > stops.first() ){
+				return currentFloor - stops.lower(currentFloor);
+			}
+		}
+		/* the elevator changes direction or becomes idle */
+		return 0;
+	}
+	
+	/* return the floor at which the elevator, moving one floor per time unit, runs its next event:
+	 * the next stop in its direction, the current floor if the next time unit closes the door,
+	 * reaches a stop, changes direction or leaves the elevator idle */
+	int nextStopAhead(){
+		if ( isDoorOpening() || stops.isEmpty() || stops.contains(currentFloor) ) return currentFloor;
+		
+		if ( isDirection() == UP ){
+			if ( currentFloor < MAX_FLOOR && currentFloor < stops.last() ) return stops.higher(currentFloor);
+		}else{
+			if ( currentFloor > MIN_FLOOR && currentFloor > stops.first() ) return stops.lower(currentFloor);
+		}
+		return currentFloor;
+	}
+	
+	/* fast forward the given number of time units, at most ticksUntilNextEvent() */
+	void skipTicks(int n){
+		if ( !moving || n == 0 ) return;
+		
+		if ( isDoorOpening() ){
+			doorOpenedElapsedTime -= n;
+			doorOpenTime += n;
+		}else if ( isDirection() == UP ){
+			currentFloor += n;
+			movingTime += n;
+		}else{
+			currentFloor -= n;
+			movingTime += n;
 		}
 	}
 	
 	/* add a stop to the elevator and the related request */
-	void addStop(Integer stop, Request r) {
-		ArrayList<Request> reqList = stops.get(stop);
-		if (reqList!=null){
-			reqList.add(r);
+	void addStop(int stop, Request r) {
+		changes++;
+		if ( stops.add(stop) ){
+			stopFloors.add(stop, 1);
+		}
+		
+		/* a null request only marks the floor as a stop */
+		if ( r != null ){
+			int i = stop - MIN_FLOOR;
+			r.nextInStop = null;
+			if ( stopTail[i] != null ){
+				stopTail[i].nextInStop = r;
+			}else{
+				stopHead[i] = r;
+			}
+			stopTail[i] = r;
+			
+			if ( !r.isRequestTaken() ){
+				updatePending(r, 1);
+				load++;
+			}
+		}
+	}
+	
+	/* take on board a request removed from the stop at the current floor and add its destination stop */
+	void pickUp(Request r) {
+		r.setRequestTaken(true);
+		addStop(r.getDestination(), r);
+	}
+	
+	/* remove the stop at the given floor
+	 * return the first of its requests, the others follow through nextRequest */
+	Request removeStop(int floor) {
+		changes++;
+		Request head = null;
+		if ( stops.remove(floor) ){
+			stopFloors.add(floor, -1);
+			int i = floor - MIN_FLOOR;
+			head = stopHead[i];
+			for (Request r = head; r != null; r = r.nextInStop) {
+				if ( !r.isRequestTaken() ) updatePending(r, -1);
+			}
+			stopHead[i] = null;
+			stopTail[i] = null;
+		}
+		return head;
+	}
+	
+	/* a request assigned to the elevator has been delivered */
+	void dropOff() {
+		load--;
+	}
+	
+	/* return the number of requests assigned to the elevator and not delivered yet */
+	public int getLoad() {
+		return load;
+	}
+	
+	/* return if the elevator can be committed to the given number of requests more */
+	boolean hasRoomFor(int passengers) {
+		return passengers <= CAPACITY - load;
+	}
+	
+	/* return the first request of the stop at the given floor, the others follow through nextRequest */
+	Request firstRequest(int floor) {
+		return stopHead[floor - MIN_FLOOR];
+	}
+	
+	/* return the request following the given one in its stop, null if it is the last
+	 * (read it before the request is added to another stop) */
+	Request nextRequest(Request r) {
+		return r.nextInStop;
+	}
+	
+	/* count a request not yet picked up by the destination it will add */
+	private void updatePending(Request r, int delta) {
+		if ( r.getDestination() > r.getStart() ){
+			pendingUp.add(r.getDestination(), delta);
+		}else if ( r.getDestination() < r.getStart() ){
+			pendingDown.add(r.getDestination(), delta);
+		}
+	}
+	
+	public boolean hasStop(int floor) {
+		return stops.contains(floor);
+	}
+	
+	/* copy the floors of the stops into the given set */
+	void copyStops(FloorSet into) {
+		into.copyFrom(stops);
+	}
+	
+	/* return the number of stops strictly between the two floors */
+	public int countStopsBetween(int low, int high) {
+		return stopFloors.countBetween(low, high);
+	}
+	
+	public int countStopsAbove(int floor) {
+		return stopFloors.countAbove(floor);
+	}
+	
+	public int countStopsBelow(int floor) {
+		return stopFloors.countBelow(floor);
+	}
+	
+	/* return the number of requests not yet picked up, going in the given direction,
+	 * whose destination is strictly between the two floors */
+	public int countPendingDropOffs(boolean dir, int low, int high) {
+		if ( dir == UP ){
+			return pendingUp.countBetween(low, high);
 		}else{
-			reqList = new ArrayList<Request>();
-			reqList.add(r);
+			return pendingDown.countBetween(low, high);
 		}
-		stops.put(stop, reqList);
 	}
 
 	/* set the direction of the elevator when a new request is assigned from idle */
 	void setInitialDirection(int start, int destination) {
+		changes++;
 		if ( start != currentFloor ){
 			if ( start > currentFloor ){
 				direction = UP;
@@ -144,19 +381,20 @@ public class Elevator {
 		}
 	}
 	
-	int getCurrentFloor() {
+	public int getCurrentFloor() {
 		return currentFloor;
 	}
 
-	boolean isDirection() {
+	public boolean isDirection() {
 		return direction;
 	}
 
 	void setDirection(boolean direction) {
+		changes++;
 		this.direction = direction;
 	}
 	
-	boolean isMoving() {
+	public boolean isMoving() {
 		return moving;
 	}
 
@@ -167,18 +405,67 @@ public class Elevator {
 	void decrementDoorElapsedTime(){
 		//System.out.println("Elevator "+elevatorId+": door will close in "+doorOpenedElapsedTime);
 		doorOpenedElapsedTime--;
+		doorOpenTime++;
 	}
 
-	TreeMap<Integer, ArrayList<Request>> getStops() {
-		return stops;
+	public boolean hasStops() {
+		return !stops.isEmpty();
+	}
+	
+	/* return the number of floors where the elevator has to stop */
+	public int countStops() {
+		return stops.size();
+	}
+
+	/* time units spent with the door open, including the one in which it opens */
+	long getDoorOpenTime() {
+		return doorOpenTime;
+	}
+	
+	/* time units spent moving towards a stop */
+	long getMovingTime() {
+		return movingTime;
 	}
 
-	int getDoorOpenedElapsedTime() {
+	public int getDoorOpenedElapsedTime() {
 		return doorOpenedElapsedTime;
 	}
+	
+	public int getDoorTime() {
+		return OPENING_DOOR_TIME;
+	}
+	
+	public int getMaxFloor() {
+		return MAX_FLOOR;
+	}
+	
+	public int getMinFloor() {
+		return MIN_FLOOR;
+	}
+	
+	public int getCapacity() {
+		return CAPACITY;
+	}
+	
+	public int firstStop() {
+		return stops.first();
+	}
+	
+	public int lastStop() {
+		return stops.last();
+	}
+
+	void setParkingPolicy(ParkingPolicy parking) {
+		this.parking = parking;
+	}
 
 	void setMoving(boolean moving) {
+		changes++;
 		this.moving = moving;
 	}
 	
+	int getChanges() {
+		return changes;
+	}
+	
 }
@@ -0,0 +1,53 @@
+package hotel;
+
+/* read-only view of the state of an elevator given to the dispatch strategies.
+ * It reflects the elevator at the time of the call and must not be kept */
+public interface ElevatorView {
+
+	int getElevatorId();
+
+	int getCurrentFloor();
+
+	boolean isMoving();
+
+	/* direction of the elevator, Elevator.UP or Elevator.DOWN */
+	boolean isDirection();
+
+	/* time units before the door closes, 0 if it is closed */
+	int getDoorOpenedElapsedTime();
+
+	/* time units the door stays open at each stop */
+	int getDoorTime();
+
+	int getMaxFloor();
+
+	int getMinFloor();
+
+	/* most requests the elevator can be committed to at the same time */
+	int getCapacity();
+
+	/* requests assigned to the elevator and not delivered yet */
+	int getLoad();
+
+	boolean hasStop(int floor);
+
+	boolean hasStops();
+
+	int countStops();
+
+	/* lowest and highest floors where the elevator has to stop, only if it has stops */
+	int firstStop();
+
+	int lastStop();
+
+	/* return the number of stops strictly between the two floors */
+	int countStopsBetween(int low, int high);
+
+	int countStopsAbove(int floor);
+
+	int countStopsBelow(int floor);
+
+	/* return the number of requests not yet picked up, going in the given direction,
+	 * whose destination is strictly between the two floors */
+	int countPendingDropOffs(boolean dir, int low, int high);
+}
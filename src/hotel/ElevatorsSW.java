@@ -1,26 +1,49 @@
 package hotel;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /* class implementing the software managing the elevators */
 public class ElevatorsSW {
 
 	private static final int MAX_DELAY = Integer.MAX_VALUE;
+	/* number of elevators scored by each parallel task */
+	private static final int SCORES_PER_TASK = 4;
 	private Building hotel;
 	private int time;
 	
-	/* ordered by time list containing the requests waiting to be assigned */
-	private ArrayList<Request> waitingRequests = new ArrayList<Request>();
-	/* Hash table containing the request still on going */
-	private HashMap<Integer,Request> currentRequests = new HashMap<Integer, Request>();
-	/* Hash table containing the request already satisfied */
-	private HashMap<Integer,Request> satisfiedRequests = new HashMap<Integer, Request>();
+	/* number of elevators from which the candidates are scored in parallel, never by default */
+	private int parallelThreshold = Integer.MAX_VALUE;
+	private ForkJoinPool pool;
+	/* delay of each elevator for the request being assigned, filled by the parallel tasks */
+	private int[] scores;
+	
+	/* requests waiting to be assigned */
+	private WaitingList waitingRequests;
+	/* waiting requests retried in the current time unit, kept to be reused */
+	private ArrayList<Request> waitingCandidates = new ArrayList<Request>();
+	/* number of requests still on going, waiting ones included */
+	private int requestsInProgress = 0;
+	/* delivered requests to be reused by newRequest */
+	private RequestPool requestPool = new RequestPool();
+	/* statistics of the requests already satisfied, which are not kept */
+	private StatisticsCollector statistics = new StatisticsCollector();
+	/* receiver of the dispatch events, null if nobody is listening */
+	private DispatchListener listener;
+	/* journal of the decisions, null if they are not journaled */
+	private EventJournal journal;
+	/* time before a car reaches each floor, null until asked for */
+	private EtaTable etaTable;
 	
 	public ElevatorsSW( Building h ) {
 		super();
 		hotel = h;
 		time = 0;
+		waitingRequests = new WaitingList(h.MAX_FLOOR, h.MIN_FLOOR);
 	}
 	
 	/* make next step in the simulation */
@@ -35,18 +58,35 @@ public class ElevatorsSW {
 		assignWaitingRequests();
 		/* increment the time */
 		time++;
+		stepCompleted();
+	}
+	
+	/* the elevators are up to date at the current time: tell the journal and the listener */
+	void stepCompleted(){
+		if ( journal != null ) journal.stepCompleted(time);
+		if ( etaTable != null ) etaTable.update(time);
+		if ( listener != null ) listener.stepCompleted(this);
+	}
+	
+	/* return true if a journal, an eta table or a listener has to be told of the end of the time units */
+	boolean isObserved(){
+		return journal != null || etaTable != null || listener != null;
 	}
 	
 	/* method defining next action will be taken by the elevator */
-	private void nextAction(Elevator e){
+	void nextAction(Elevator e){
 		
 		if (e.isMoving() == true){
 			if ( !e.isDoorOpening() ){
+				boolean direction = e.isDirection();
+				
 				/* check if elevator has reached a destination floor */
 				checkStop(e);
 				
 				/* if door is not opening go to next floor */
-				e.moveNext();
+				e.moveNext(time);
+				
+				if ( journal != null && (e.isDirection() != direction || !e.isMoving()) ) journal.directionChanged(time, e);
 				
 			}else{
 				/* if door is opening decrement the elapsed time */
@@ -57,34 +97,89 @@ public class ElevatorsSW {
 	}
 	
 	
+	/* score the candidates in parallel when the building has at least the given number of elevators,
+	 * using the common fork-join pool. The chosen elevators are the same as in sequential mode */
+	public void setParallelDispatch(int threshold){
+		setParallelDispatch(threshold, ForkJoinPool.commonPool());
+	}
+	
+	public void setParallelDispatch(int threshold, ForkJoinPool pool){
+		this.parallelThreshold = threshold;
+		this.pool = pool;
+	}
+	
+	/* return a new request for this elevators software, reusing a delivered one if possible.
+	 * Once delivered the request is reused: its values must be read before */
+	public Request newRequest(int requestId, int start, int dest, int time){
+		return requestPool.acquire(requestId, start, dest, time);
+	}
+	
+	/* return the number of request objects created by newRequest */
+	public long getCreatedRequests(){
+		return requestPool.getCreated();
+	}
+	
 	/* try to assign the request to an elevator
 	 * return true if assigned, false otherwise
 	 */
 	public boolean assignElevator(Request r){
-		int extraTime; 
-		int elevatorNb = -1;
-		int minTime = MAX_DELAY;
-		int count = 0;
-		Elevator elevator;
-		
-		currentRequests.put(r.getRequestId(),r);
+		if ( listener == null ) return assignTo(r, selectElevator(r.getStart(), r.getDestination()));
 		
-		for (Elevator e : hotel.getElevators()) {
-			/* calculate the global delay introduced by assigning the request to this elevator 
-			 * if possible to assign */
-			extraTime = calculateGlobalDelay(e, r.getStart(), r.getDestination());
-			/* select the minimum delay */
-			if (extraTime<minTime && extraTime>-1){
-				minTime=extraTime;
-				elevatorNb = count;
-			}
-			count++;
+		long start = System.nanoTime();
+		int elevatorNb = selectElevator(r.getStart(), r.getDestination());
+		long nanos = System.nanoTime() - start;
+		boolean assigned = assignTo(r, elevatorNb);
+		listener.requestDispatched(time, r.getRequestId(), elevatorNb, nanos);
+		return assigned;
+	}
+	
+	/* set the receiver of the dispatch events, null to stop measuring */
+	public void setListener(DispatchListener listener){
+		this.listener = listener;
+	}
+	
+	DispatchListener getListener(){
+		return listener;
+	}
+	
+	/* set the journal of the decisions, null to stop journaling them */
+	void setJournal(EventJournal journal){
+		this.journal = journal;
+	}
+	
+	public EventJournal getJournal(){
+		return journal;
+	}
+	
+	/* return the table of the time before a car can pick up a call at each floor, kept up to date
+	 * from now on at the end of each time unit run, the engines skipping the time units without event.
+	 * The first call must be made on the simulation thread,
+	 * the table can then be read from any thread */
+	public EtaTable getEtaTable(){
+		if ( etaTable == null ){
+			etaTable = new EtaTable(hotel);
+			etaTable.build(time);
 		}
+		return etaTable;
+	}
+	
+	/* assign the request to the elevator of the given index,
+	 * or add it to the waiting list if the index is -1
+	 * return true if assigned, false otherwise
+	 */
+	boolean assignTo(Request r, int elevatorNb){
+		Elevator elevator;
 		
+		if ( !r.inProgress ){
+			r.inProgress = true;
+			requestsInProgress++;
+			hotel.getParkingPolicy().requestArrived(r.getTimeRequest(), r.getStart(), r.getDestination());
+			if ( journal != null ) journal.requestArrived(time, r);
+		}
 		
 		if ( elevatorNb >= 0 ){
 			elevator = hotel.getElevators().get(elevatorNb);
-			//System.out.println(r+" assigned to elevator "+elevator.getElevatorId()+". Extra time: "+minTime);
+			//System.out.println(r+" assigned to elevator "+elevator.getElevatorId());
 			
 			/* add stop to the selected elevator */
 			elevator.addStop(r.getStart(),r);
@@ -92,10 +187,12 @@ public class ElevatorsSW {
 			/* if elevator is not moving set the initial direction */
 			if ( !elevator.isMoving() )
 				elevator.setInitialDirection(r.getStart(),r.getDestination());
+			if ( journal != null ) journal.assigned(time, r, elevatorNb);
+			if ( etaTable != null ) etaTable.assigned(elevatorNb, r);
 			return true;
 		}else{
 			/* request cannot be satisfied right now: add it to the waiting list */
-			if ( !waitingRequests.contains(r) ){
+			if ( !r.waiting ){
 				//System.out.println(r+" cannot be satisfied at the moment");
 				waitingRequests.add(r);
 			}
@@ -104,227 +201,199 @@ public class ElevatorsSW {
 		
 	}
 	
-	/* try to assign waiting requests to an elevator 
-	 * return the number of still unassigned requests
-	 */
-	private int assignWaitingRequests() {
+	/* return the index of the elevator introducing the minimum delay, the lowest index among equal delays
+	 * return -1 if no elevator can take the request */
+	int selectElevator(int start, int dest){
+		return selectElevator(start, dest, 1);
+	}
+	
+	/* return the index of the elevator introducing the minimum delay for a group of requests
+	 * from the same start floor, the lowest index among equal delays
+	 * return -1 if no elevator can take the group */
+	int selectElevator(int start, int dest, int passengers){
+		ArrayList<Elevator> elevators = hotel.getElevators();
+		int extraTime; 
+		int elevatorNb = -1;
+		int minTime = MAX_DELAY;
 		
-		/* assign unsatisfied requests if possible */
-		ArrayList<Request> copyOfWaitingRequest = new ArrayList<Request>(waitingRequests);
+		if ( elevators.size() >= parallelThreshold ){
+			if ( scores == null || scores.length != elevators.size() ) scores = new int[elevators.size()];
+			pool.invoke(new ScoreTask(start, dest, passengers, 0, elevators.size()));
+		}
 		
-		for (Request req : copyOfWaitingRequest) {
-			if ( assignElevator(req) ){
-				waitingRequests.remove(req);
+		for (int count = 0; count < elevators.size(); count++) {
+			/* calculate the global delay introduced by assigning the request to this elevator 
+			 * if possible to assign */
+			if ( elevators.size() >= parallelThreshold ){
+				extraTime = scores[count];
+			}else{
+				extraTime = calculateGlobalDelay(elevators.get(count), start, dest, passengers);
+			}
+			/* select the minimum delay */
+			if (extraTime<minTime && extraTime>-1){
+				minTime=extraTime;
+				elevatorNb = count;
 			}
 		}
-		
-		return waitingRequests.size();
+		return elevatorNb;
 	}
-
 	
-	/* calculate the global delay introduced by the new request */
-	private int calculateGlobalDelay ( Elevator e, int start, int dest ){
-		int time = 0;
-		
-		/* calculate delay caused to the request if assigned to this elevator */
-		time += calculateExtraTime ( e, start, dest );
+	/* task computing the delays of a range of elevators, splitting it among parallel subtasks */
+	private class ScoreTask extends RecursiveAction {
 		
-		/* if elevator cannot be assigned, return */
-		if ( time == -1 ) return -1;
+		private static final long serialVersionUID = 1L;
+		private int start;
+		private int dest;
+		private int passengers;
+		private int from;
+		private int to;
 		
-		/* calculate time introduced assigning the request to this elevator */
-		time += calculateExtraTimeAdded(e, start, dest);
-	
-		return time;
-	}
-
-	
-	/* calculate extra time necessary to satisfy the request
-	 * return -1 if elevator cannot satisfy the request */
-	private int calculateExtraTime ( Elevator e, int start, int dest ){
-		int time = 0;
+		ScoreTask(int start, int dest, int passengers, int from, int to) {
+			this.start = start;
+			this.dest = dest;
+			this.passengers = passengers;
+			this.from = from;
+			this.to = to;
+		}
 		
-		/* if the elevator is moving, calculate the delay introduced by the stop
-		 * already planned */
-		if (e.isMoving() == true){
-			
-			/* check if elevator can take the request: take only requests
-			 * having the same direction */
-			if ( e.isDirection() == Elevator.UP && dest>start ){
-				if ( start < e.getCurrentFloor()){
-					/* elevator already passed this floor, do not take the request */
-					return -1;
-				}else{
-					/* add time spent keeping the door open when reaching a destination in between */
-					for (Integer s : e.getStops().keySet()) {
-						if ( s < dest && s > e.getCurrentFloor() ){ 
-							/* do not consider the time of opening the door on the starting floor */
-							if (!s.equals(start)) time += e.OPENING_DOOR_TIME;
-						}
-						/* if the request is not already taken, consider its destination (it is not already added in the stops) */
-						for (Request r : e.getStops().get(s)) {
-							if ( r != null ){
-								if ( !r.isRequestTaken() ){
-									/* if the destination will be reached before reaching the destination of the request */
-									if ( r.getDestination() < dest && 
-										 r.getDestination() > e.getCurrentFloor() && 
-										 r.getDestination() > r.getStart()){
-										time += e.OPENING_DOOR_TIME;
-									}
-								}
-							}
-						}
-					}
-				}
-			}else if ( e.isDirection() == Elevator.DOWN && dest<start ){
-				if ( start > e.getCurrentFloor() ){
-					/* elevator already passed this floor */
-					return -1;
-				}else{
-					/* add time spent keeping the door open when reaching a destination in between */
-					for (Integer s : e.getStops().keySet()) {
-						if ( s > dest && s < e.getCurrentFloor() ){ 
-							/* do not consider the time of opening the door on the starting floor */
-							if (!s.equals(start)) time += e.OPENING_DOOR_TIME;
-						}
-						/* if the request is not already taken, consider its destination (it is not already added in the stops) */
-						for (Request r : e.getStops().get(s)) {
-							if ( r != null ){
-								if ( !r.isRequestTaken() ){
-									/* if the destination will be reached before reaching the destination of the request */
-									if ( r.getDestination() > dest && 
-										 r.getDestination() < e.getCurrentFloor() && 
-										 r.getDestination() < r.getStart()){
-										time += e.OPENING_DOOR_TIME;
-									}
-								}
-							}
-						}
-					}
+		@Override
+		protected void compute() {
+			if ( to - from <= SCORES_PER_TASK ){
+				for (int i = from; i < to; i++) {
+					scores[i] = calculateGlobalDelay(hotel.getElevators().get(i), start, dest, passengers);
 				}
 			}else{
-				/* elevator cannot satisfy the request */
-				return -1;
+				int middle = (from + to) >>> 1;
+				invokeAll(new ScoreTask(start, dest, passengers, from, middle), new ScoreTask(start, dest, passengers, middle, to));
 			}
-
 		}
-		
-		/* add time waiting at current floor */
-		time += e.getDoorOpenedElapsedTime();
-		
-		/* add time needed to reach starting floor */
-		time += Math.abs(e.getCurrentFloor() - start);
-	
-		return time;
 	}
 	
-	/* calculate extra time added to other stops by adding this stop */
-	private int calculateExtraTimeAdded(Elevator e, int start, int dest) {
-		int time = 0;
+	/* try to assign waiting requests to an elevator 
+	 * return the number of still unassigned requests
+	 */
+	int assignWaitingRequests() {
 		
-		/* if elevator is not moving there are no other stops */
-		if (e.isMoving() == true){
-			
-			if ( e.isDirection() == Elevator.UP ){
-				/* for each stop consider added delay */
-				for (Integer s : e.getStops().keySet()) {
-					/* if stop is after the destination and/or the start of the request, 
-					 * add the delay of opening the door
-					 */
-					if ( s > dest && !e.getStops().containsKey(dest)){ 
-						time += e.OPENING_DOOR_TIME;
-					}
-					if ( s > start  && !e.getStops().containsKey(start)){ 
-						time += e.OPENING_DOOR_TIME;
-					}
-					
-					/* consider the delay for the future stops scheduled, too */
-					for (Request r : e.getStops().get(s)) {
-						if ( r != null ){
-							if ( !r.isRequestTaken() ){
-								/* if the destination will be reached before reaching the destination of the request */
-								if ( r.getDestination() < dest && 
-									 r.getDestination() > e.getCurrentFloor() && 
-									 r.getDestination() > r.getStart()){
-									time += e.OPENING_DOOR_TIME;
-								}
-							}
-						}
-					}
-					
-				}
+		if ( waitingRequests.isEmpty() ) return 0;
+		
+		/* assign unsatisfied requests if possible, in waiting order.
+		 * Only the requests some elevator can take are tried: an idle elevator takes any request,
+		 * a moving one the requests in its direction it has not passed yet. The assignments
+		 * can only make elevators busier, so the other requests would fail anyway */
+		/* with other strategies every request is tried as if some elevator was idle */
+		boolean anyIdle = !hotel.getDispatchStrategy().movingTakesOnlyAhead();
+		int lowestGoingUp = Integer.MAX_VALUE;
+		int highestGoingDown = Integer.MIN_VALUE;
+		for (Elevator e : hotel.getElevators()) {
+			if ( !e.isMoving() ){
+				anyIdle = true;
+			}else if ( e.isDirection() == Elevator.UP ){
+				lowestGoingUp = Math.min(lowestGoingUp, e.getCurrentFloor());
 			}else{
-				/* for each stop consider added delay */
-				for (Integer s : e.getStops().keySet()) {
-					/* if stop is after the destination and/or the start of the request, 
-					 * add the delay of opening the door
-					 */
-					if ( s < dest && !e.getStops().containsKey(dest)){ 
-						time += e.OPENING_DOOR_TIME;
-					}
-					if ( s < start  && !e.getStops().containsKey(start)){ 
-						time += e.OPENING_DOOR_TIME;
-					}
-					
-					/* consider the delay for the future stops scheduled, too */
-					for (Request r : e.getStops().get(s)) {
-						if ( r != null ){
-							if ( !r.isRequestTaken() ){
-								/* if the destination will be reached before reaching the destination of the request */
-								if ( r.getDestination() > dest && 
-									 r.getDestination() < e.getCurrentFloor() && 
-									 r.getDestination() < r.getStart()){
-									time += e.OPENING_DOOR_TIME;
-								}
-							}
-						}
-					}
+				highestGoingDown = Math.max(highestGoingDown, e.getCurrentFloor());
+			}
+		}
+		
+		if ( anyIdle ){
+			Request req = waitingRequests.first();
+			while ( req != null ){
+				/* read the next one before the request leaves the list */
+				Request next = req.nextWaiting;
+				if ( assignElevator(req) ){
+					waitingRequests.remove(req);
 				}
-				
+				req = next;
 			}
-
+		}else{
+			ArrayList<Request> candidates = waitingCandidates;
+			waitingRequests.collect(lowestGoingUp, highestGoingDown, candidates);
+			for (int i = 0; i < candidates.size(); i++) {
+				Request req = candidates.get(i);
+				if ( assignElevator(req) ){
+					waitingRequests.remove(req);
+				}
+			}
+			candidates.clear();
 		}
 		
-		return time;
+		return waitingRequests.size();
+	}
+
+	
+	/* estimate the time units before the elevator of the given index reaches the start floor
+	 * of a request it has been assigned: the door still open, the floors to travel
+	 * and the door opening at each stop in between */
+	public int estimatePickupTime(int elevatorNb, int start){
+		Elevator e = hotel.getElevators().get(elevatorNb);
+		int current = e.getCurrentFloor();
+		int low = Math.min(current, start);
+		int high = Math.max(current, start);
+		return e.getDoorOpenedElapsedTime() + (high - low) + e.OPENING_DOOR_TIME * e.countStopsBetween(low, high);
+	}
+	
+	/* calculate the global delay introduced by the new request */
+	int calculateGlobalDelay ( Elevator e, int start, int dest ){
+		return calculateGlobalDelay(e, start, dest, 1);
+	}
+	
+	/* calculate the cost of new requests from the same start floor, dest being the farthest destination,
+	 * according to the dispatch strategy of the building: by default the global delay introduced
+	 * return -1 if the elevator cannot take them */
+	int calculateGlobalDelay ( Elevator e, int start, int dest, int passengers ){
+		/* the elevator has to have room for all of them */
+		if ( !e.hasRoomFor(passengers) ) return -1;
+		
+		return hotel.getDispatchStrategy().cost(e, start, dest, passengers);
 	}
 	
 	/* check if the elevator reached a scheduled stop */
-	private void checkStop(Elevator e) {
+	void checkStop(Elevator e) {
 		
-		if ( e.getStops().containsKey(e.getCurrentFloor()) ){
+		if ( e.hasStop(e.getCurrentFloor()) ){
 			//System.out.println("Elevator "+e.getElevatorId()+" stops at floor "+e.getCurrentFloor());
 			
-			/* check requests at this stop */
-			for (Request r : e.getStops().get(e.getCurrentFloor())) {
-				if ( r != null ){
-					if ( r.getStart() == e.getCurrentFloor() ){
-						/* elevator has reached the starting floor for the request: add the destination stop */
-						r.setTimePickedUp(time);
+			/* remove the stop and check its requests */
+			Request r = e.removeStop(e.getCurrentFloor());
+			while ( r != null ){
+				/* read the next one before the request is moved to its destination stop */
+				Request next = e.nextRequest(r);
+				
+				if ( r.getStart() == e.getCurrentFloor() ){
+					/* elevator has reached the starting floor for the request: add the destination stop,
+					 * unless the request ends where it starts and is delivered right now */
+					r.setTimePickedUp(time);
+					if ( r.getDestination() != r.getStart() ){
+						e.pickUp(r);
+					}else{
 						r.setRequestTaken(true);
-						e.addStop(r.getDestination(), r);
 					}
-					if ( r.getDestination() == e.getCurrentFloor() && r.isRequestTaken() ){
-						/* elevator has delivered the request */
-						//System.out.println(r+" from floor "+r.getStart()+" to floor "+r.getDestination()+" satisfied in "+(time-r.getTimeRequest()));
-						
-						r.setRequestSatisfied(true);
-						r.setTimeArrival(time);
-						satisfiedRequests.put(r.getRequestId(), r);
-						currentRequests.remove(r.getRequestId());
-						
-						/* collect statistics for the request */
-						//int waitingTime = (r.getTimePickedUp()-r.getTimeRequest());
-						//int delayAfterPickUp = (r.getTimeArrival()-r.getTimePickedUp()-(Math.abs(r.getDestination()-r.getStart())+1)-e.OPENING_DOOR_TIME);
-						//int overallDelay = waitingTime + delayAfterPickUp;
-						
-						//System.out.println("Waiting time: "+waitingTime+", delay after pick up: "+delayAfterPickUp+", overall delay: "+overallDelay);
+					if ( journal != null ) journal.pickedUp(time, r, e);
+				}
+				if ( r.getDestination() == e.getCurrentFloor() && r.isRequestTaken() ){
+					/* elevator has delivered the request */
+					//System.out.println(r+" from floor "+r.getStart()+" to floor "+r.getDestination()+" satisfied in "+(time-r.getTimeRequest()));
+					
+					r.setRequestSatisfied(true);
+					r.setTimeArrival(time);
+					if ( r.inProgress ){
+						r.inProgress = false;
+						requestsInProgress--;
+						e.dropOff();
 					}
+					
+					/* collect statistics for the request */
+					statistics.record(r, e.OPENING_DOOR_TIME);
+					if ( journal != null ) journal.droppedOff(time, r, e);
+					if ( listener != null ) listener.requestDelivered(time, r);
+					
+					/* the request can be reused */
+					if ( r.pooled ) requestPool.release(r);
 				}
+				r = next;
 			}
 			
-			/* open the door and remove the stop */
+			/* open the door */
 			e.openDoor();
-			e.getStops().remove(e.getCurrentFloor());
 		}
 		
 	}
@@ -334,49 +403,139 @@ public class ElevatorsSW {
 		return time;
 	}
 	
+	void setTime(int time) {
+		this.time = time;
+	}
+	
+	public Building getBuilding() {
+		return hotel;
+	}
+	
+	/* return if some requests are waiting to be assigned */
+	boolean hasWaitingRequests(){
+		return !waitingRequests.isEmpty();
+	}
+	
+	public int getWaitingRequestCount(){
+		return waitingRequests.size();
+	}
+	
+	/* return the number of requests assigned to an elevator and not delivered yet */
+	public int getRequestsInFlight(){
+		return requestsInProgress - waitingRequests.size();
+	}
+	
+	public int getElevatorCount(){
+		return hotel.getElevators().size();
+	}
+	
+	/* return the number of floors the elevator of the given index has to stop at */
+	public int getStopQueueDepth(int elevatorNb){
+		return hotel.getElevators().get(elevatorNb).countStops();
+	}
+	
+	public long getDoorOpenTime(int elevatorNb){
+		return hotel.getElevators().get(elevatorNb).getDoorOpenTime();
+	}
+	
+	public long getMovingTime(int elevatorNb){
+		return hotel.getElevators().get(elevatorNb).getMovingTime();
+	}
+	
+	/* return the time units the elevator of the given index has been neither moving nor with the door open */
+	public long getIdleTime(int elevatorNb){
+		Elevator e = hotel.getElevators().get(elevatorNb);
+		return time - e.getDoorOpenTime() - e.getMovingTime();
+	}
+	
 	/* return if there are still requests to be satisfied */
 	public boolean elaboratingRequests(){
-		return !currentRequests.isEmpty();
+		return requestsInProgress > 0;
+	}
+
+	/* return a snapshot of the state of the simulation, to restore it or to fork it later */
+	public SimulationSnapshot snapshot(){
+		return SimulationSnapshot.capture(this);
+	}
+	
+	/* bring the simulation back to the state of the snapshot, taken from a building of the same shape.
+	 * The requests of the restored state are new objects: the ones given before are not used anymore */
+	public void restore(SimulationSnapshot snapshot){
+		snapshot.restore(this);
+		if ( etaTable != null ) etaTable.build(time);
+	}
+	
+	/* write the time, the statistics, the elevators, the waiting requests
+	 * and the demand model of the predictive parking, which learns from the requests */
+	void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(time);
+		out.writeInt(requestsInProgress);
+		statistics.writeState(out);
+		for (Elevator e : hotel.getElevators()) {
+			e.writeState(out);
+		}
+		out.writeInt(waitingRequests.size());
+		for (Request r = waitingRequests.first(); r != null; r = r.nextWaiting) {
+			r.writeState(out);
+		}
+		ParkingPolicy parking = hotel.getParkingPolicy();
+		out.writeBoolean(parking instanceof PredictiveParking);
+		if ( parking instanceof PredictiveParking ) ((PredictiveParking) parking).getDemandModel().writeState(out);
+	}
+	
+	/* replace the state with the one written by writeState: the demand model replaces the one
+	 * of the predictive parking, emptied if the state has none, and is left aside by another policy */
+	void readState(DataInputStream in) throws IOException {
+		time = in.readInt();
+		requestsInProgress = in.readInt();
+		statistics.readState(in);
+		for (Elevator e : hotel.getElevators()) {
+			e.readState(in);
+		}
+		waitingRequests = new WaitingList(hotel.MAX_FLOOR, hotel.MIN_FLOOR);
+		waitingCandidates.clear();
+		int waiting = in.readInt();
+		for (int i = 0; i < waiting; i++) {
+			waitingRequests.add(Request.readState(in));
+		}
+		DemandModel demand = in.readBoolean() ? DemandModel.readState(in) : null;
+		ParkingPolicy parking = hotel.getParkingPolicy();
+		if ( parking instanceof PredictiveParking ){
+			if ( demand == null ){
+				((PredictiveParking) parking).getDemandModel().clear();
+			}else{
+				((PredictiveParking) parking).setDemandModel(demand);
+			}
+		}
 	}
 
 	/* print final statistics */
 	public void printStatistics() {
-		int totalTimeToBePicked = 0;
-		int reqNumber = 0;
-		int totalDelayAfterPick = 0;
-		double[] waitTimeArray = new double[satisfiedRequests.size()];
-		int waitTimeToBePicked = 0;
-		int delayAfterPick = 0;
-		
-		for (Request r : satisfiedRequests.values()) {
-			waitTimeToBePicked = r.getTimePickedUp()-r.getTimeRequest();
-			delayAfterPick = (r.getTimeArrival()-r.getTimePickedUp()-(Math.abs(r.getDestination()-r.getStart())+1)-10);
-			totalTimeToBePicked += waitTimeToBePicked;
-			totalDelayAfterPick += delayAfterPick;
-			waitTimeArray[reqNumber] = (double) (totalTimeToBePicked+totalDelayAfterPick);
-			reqNumber++;
-		}
-		
-		double averageTimeToBePicked = totalTimeToBePicked/reqNumber;
-		double averageDelayAfterPick = totalDelayAfterPick/reqNumber;
+		Statistics stats = getStatistics();
 				
-		System.out.println("average time before being picked up: "+averageTimeToBePicked);
-		System.out.println("average delay after being picked up: "+averageDelayAfterPick);
-		System.out.println("average wait time: "+(averageTimeToBePicked+averageDelayAfterPick));
-		System.out.println("standard deviation: "+(calculateStandardDeviation(waitTimeArray,(double) (averageTimeToBePicked+averageDelayAfterPick))));
-		System.out.println("total requests: "+reqNumber);
+		System.out.println("average time before being picked up: "+stats.getAverageTimeToBePicked());
+		System.out.println("average delay after being picked up: "+stats.getAverageDelayAfterPick());
+		System.out.println("average wait time: "+stats.getAverageWaitTime());
+		System.out.println("standard deviation: "+stats.getStandardDeviation());
+		System.out.println("time before being picked up: "+percentiles(stats.getPickupWaitPercentiles()));
+		System.out.println("delay after being picked up: "+percentiles(stats.getRideDelayPercentiles()));
+		System.out.println("total requests: "+stats.getRequests());
+	}
+	
+	/* format percentile values as p50=.. p95=.. */
+	private static String percentiles(int[] values) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if ( i > 0 ) sb.append(' ');
+			double p = Statistics.PERCENTILES[i];
+			sb.append("p").append(p == Math.rint(p) ? String.valueOf((int) p) : String.valueOf(p)).append('=').append(values[i]);
+		}
+		return sb.toString();
+	}
+	
+	/* compute the statistics of the requests satisfied so far */
+	public Statistics getStatistics() {
+		return statistics.getStatistics();
 	}
-
-	private static double calculateStandardDeviation ( double[] data, double avg ) { 
-		final int n = data.length; 
-
-		double sum = 0; 
-		
-		for ( int i = 0; i < data.length; i++ ) { 
-			sum += ( data[i] - avg ) * ( data[i] - avg ) ; 
-		}  
-		
-		return Math.sqrt( sum / ( n ) ); 
-	} 
 
 }
@@ -0,0 +1,22 @@
+package hotel;
+
+/* the original parking policy: the idle elevator moves to the top or the bottom floor,
+ * the farther one from its floor, the bottom one when they are as far */
+public class EndFloorParking implements ParkingPolicy {
+
+	public void requestArrived(int time, int start, int dest) {
+	}
+
+	public int parkingFloor(ElevatorView e, int time) {
+		int currentFloor = e.getCurrentFloor();
+		if ( currentFloor == e.getMaxFloor() || currentFloor == e.getMinFloor() ) return currentFloor;
+		
+		int distanceFromTop = e.getMaxFloor() - currentFloor;
+		int distanceFromBottom = currentFloor - e.getMinFloor();
+		if ( distanceFromTop > distanceFromBottom ){
+			return e.getMaxFloor();
+		}else{
+			return e.getMinFloor();
+		}
+	}
+}
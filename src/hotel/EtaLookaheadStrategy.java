@@ -0,0 +1,34 @@
+package hotel;
+
+/* estimated time of arrival with lookahead: the time the request would take to reach
+ * its destination with the elevator, following all the stops already planned, including
+ * the ones after a change of direction, plus the time its stops add to the requests
+ * already assigned to the elevator. Any elevator can take a request */
+public class EtaLookaheadStrategy implements DispatchStrategy {
+
+	public int cost(ElevatorView e, int start, int dest, int passengers) {
+		int door = e.getDoorTime();
+
+		/* time to reach the start floor, stopping at the planned stops on the way */
+		int time = e.getDoorOpenedElapsedTime() + NearestCarStrategy.routeDistance(e, start)
+				+ door * NearestCarStrategy.routeStops(e, start);
+
+		/* ride to the destination, stopping at the planned stops in between */
+		time += Math.abs(dest - start) + door * e.countStopsBetween(Math.min(start, dest), Math.max(start, dest));
+
+		/* every new stop delays the requests whose stops come after it */
+		if ( !e.hasStop(start) ) time += door * stopsAfter(e, start);
+		if ( !e.hasStop(dest) ) time += door * stopsAfter(e, dest);
+		return time;
+	}
+
+	public boolean movingTakesOnlyAhead() {
+		return false;
+	}
+
+	/* return the planned stops the elevator makes after passing the given floor */
+	private static int stopsAfter(ElevatorView e, int floor) {
+		if ( !e.hasStops() ) return 0;
+		return e.countStops() - NearestCarStrategy.routeStops(e, floor);
+	}
+}
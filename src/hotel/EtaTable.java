@@ -0,0 +1,571 @@
+package hotel;
+
+import java.util.Arrays;
+
+/* time units before an elevator can pick up a call at each floor, going up and going down,
+ * for hall displays and booking front-ends.
+ *
+ * A moving elevator follows its stops: it goes on in its direction up to its last stop, turns,
+ * goes to its last stop the other way, and turns again towards its floor. Along this sweep
+ * it can take at each floor the calls in the direction it passes it, opening the door at its stops,
+ * and it can take the calls beyond the ends of the sweep by going on to them. An idle elevator
+ * goes straight to the call. The table keeps, for each floor and direction, the earliest time
+ * an elevator gets there.
+ *
+ * The times of a moving elevator are kept as absolute times of the simulation, which do not change
+ * while it follows its sweep: at each time unit only the floors it has just left are updated.
+ * The sweep keeps the points where the elevator starts, stops and turns, with the stops left there:
+ * stops changing as the sweep foresaw leave it as it is, and a call assigned ahead of the elevator
+ * computes it again only from the last point before the call. The whole sweep is computed again
+ * when the direction or moving state change, or the stops differ from those of the sweep.
+ * The table is updated on the simulation thread at the end of each time unit, or with the engines
+ * at the end of the time units having an event, once for the time units skipped before.
+ * The queries can be made from any thread without locking: they read the values of
+ * the last update, or of the update in progress, never slowing down the simulation */
+public class EtaTable {
+
+	/* no elevator can take the call */
+	public static final int NO_CAR = -1;
+
+	private static final int NONE = Integer.MAX_VALUE;
+	private static final int UP = 0;
+	private static final int DOWN = 1;
+	/* no point of the sweep is before the time */
+	private static final int NO_POINT = Integer.MAX_VALUE;
+
+	private final Building building;
+	private final int floors;
+	private final Elevator[] elevators;
+
+	/* earliest absolute time an elevator following its sweep reaches each floor in each direction */
+	private final int[][] earliest;
+	/* floors from each floor to the nearest idle elevator, NONE if all of them are moving */
+	private final int[] idleDistance;
+	/* time of the last update, written after the values and read before them */
+	private volatile int time;
+
+	/* times of each moving elevator by direction and floor, NONE for the idle ones */
+	private final int[][][] sweep;
+	/* state of each elevator when its sweep was computed */
+	private final int[] changes;
+	private final int[] floor;
+	private final boolean[] direction;
+	private final boolean[] moving;
+	/* true if the elevator is idle, or about to be, and goes straight to the calls */
+	private final boolean[] idle;
+	/* time each elevator gets back to the floors in its direction once it has left them */
+	private final int[][] again;
+	/* points of the sweep of each elevator */
+	private final Trail[] trails;
+	/* start and destination floors of the requests assigned to each elevator since the last update,
+	 * and if they change its sweep */
+	private final int[][] starts;
+	private final int[][] destinations;
+	private final boolean[][] changing;
+	private final int[] nbAssigned;
+
+	EtaTable( Building building ) {
+		super();
+		this.building = building;
+		this.floors = building.MAX_FLOOR - building.MIN_FLOOR + 1;
+		this.elevators = building.getElevators().toArray(new Elevator[0]);
+		int n = elevators.length;
+		earliest = new int[2][floors];
+		idleDistance = new int[floors];
+		sweep = new int[n][2][floors];
+		changes = new int[n];
+		floor = new int[n];
+		direction = new boolean[n];
+		moving = new boolean[n];
+		idle = new boolean[n];
+		again = new int[n][floors];
+		trails = new Trail[n];
+		for (int c = 0; c < n; c++) trails[c] = new Trail(building.MAX_FLOOR, building.MIN_FLOOR);
+		starts = new int[n][4];
+		destinations = new int[n][4];
+		changing = new boolean[n][4];
+		nbAssigned = new int[n];
+	}
+
+	/* return the time units before an elevator can pick up a call at the floor in the direction,
+	 * Elevator.UP or Elevator.DOWN, NO_CAR if none can */
+	public int eta(int floor, boolean direction) {
+		int now = time;
+		int i = floor - building.MIN_FLOOR;
+		if ( i < 0 || i >= floors ) throw new IllegalArgumentException("floor " + floor + " is not in the building");
+		int moving = earliest[direction == Elevator.UP ? UP : DOWN][i];
+		int idle = idleDistance[i];
+		int eta = moving == NONE ? idle : Math.min(Math.max(moving - now, 0), idle);
+		return eta == NONE ? NO_CAR : eta;
+	}
+
+	/* fill etas with the time units before a call in the direction is picked up at each floor,
+	 * from the min floor, NO_CAR where no elevator can take it */
+	public void copyEtas(boolean direction, int[] etas) {
+		int now = time;
+		int[] moving = earliest[direction == Elevator.UP ? UP : DOWN];
+		for (int i = 0; i < floors; i++) {
+			int eta = moving[i] == NONE ? idleDistance[i] : Math.min(Math.max(moving[i] - now, 0), idleDistance[i]);
+			etas[i] = eta == NONE ? NO_CAR : eta;
+		}
+	}
+
+	/* return the time of the simulation of the values */
+	public int getTime() {
+		return time;
+	}
+
+	/* compute all the sweeps */
+	void build(int now) {
+		for (int c = 0; c < elevators.length; c++) {
+			computeSweep(c, now);
+			nbAssigned[c] = 0;
+		}
+		for (int d = 0; d < 2; d++) {
+			for (int i = 0; i < floors; i++) {
+				earliest[d][i] = minimum(d, i);
+			}
+		}
+		computeIdleDistance();
+		time = now;
+	}
+
+	/* bring the table to the current state of the elevators at the given time */
+	void update(int now) {
+		boolean idleChanged = false;
+		for (int c = 0; c < elevators.length; c++) {
+			Elevator e = elevators[c];
+			if ( e.isMoving() != moving[c] || e.isDirection() != direction[c] || isIdle(e) != idle[c] ){
+				idleChanged |= recompute(c, now);
+			}else if ( e.getChanges() != changes[c] ){
+				int from = resumePoint(c, now);
+				if ( from < 0 ){
+					idleChanged |= recompute(c, now);
+				}else{
+					leave(c);
+					if ( e.isDoorOpening() ) opened(c, now);
+					if ( from < trails[c].length ) resume(c, from);
+					changes[c] = e.getChanges();
+				}
+			}else if ( !idle[c] && e.getCurrentFloor() != floor[c] ){
+				leave(c);
+			}
+			nbAssigned[c] = 0;
+		}
+		if ( idleChanged ) computeIdleDistance();
+		time = now;
+	}
+
+	/* the request has been assigned to the elevator */
+	void assigned(int c, Request r) {
+		int n = nbAssigned[c];
+		if ( n == starts[c].length ){
+			starts[c] = Arrays.copyOf(starts[c], n * 2);
+			destinations[c] = Arrays.copyOf(destinations[c], n * 2);
+			changing[c] = Arrays.copyOf(changing[c], n * 2);
+		}
+		starts[c][n] = r.getStart();
+		destinations[c][n] = r.getDestination();
+		nbAssigned[c]++;
+	}
+
+	/* compute the whole sweep of the elevator again
+	 * return true if the idle distances must be computed again */
+	private boolean recompute(int c, int now) {
+		boolean wasIdle = idle[c];
+		int[][] old = copy(sweep[c]);
+		computeSweep(c, now);
+		for (int d = 0; d < 2; d++) {
+			for (int i = 0; i < floors; i++) {
+				if ( old[d][i] != sweep[c][d][i] ) changed(c, d, i, old[d][i]);
+			}
+		}
+		return idle[c] != wasIdle || idle[c];
+	}
+
+	/* the floors left since the last update are now behind the elevator */
+	private void leave(int c) {
+		Elevator e = elevators[c];
+		Trail w = trails[c];
+		int d = direction[c] == Elevator.UP ? UP : DOWN;
+		int step = e.getCurrentFloor() > floor[c] ? 1 : -1;
+		for (int f = floor[c]; f != e.getCurrentFloor(); f += step) {
+			int i = f - building.MIN_FLOOR;
+			if ( i < 0 || i >= floors ) continue;
+			int old = sweep[c][d][i];
+			sweep[c][d][i] = again[c][i];
+			w.point[d][i] = w.laterPoint[i];
+			changed(c, d, i, old);
+		}
+		floor[c] = e.getCurrentFloor();
+	}
+
+	/* the elevator has opened its door at its floor: it takes the calls there once it is closed */
+	private void opened(int c, int now) {
+		Elevator e = elevators[c];
+		int d = direction[c] == Elevator.UP ? UP : DOWN;
+		int i = floor[c] - building.MIN_FLOOR;
+		if ( i < 0 || i >= floors ) return;
+		int old = sweep[c][d][i];
+		sweep[c][d][i] = now + e.getDoorOpenedElapsedTime();
+		if ( old != sweep[c][d][i] ) changed(c, d, i, old);
+	}
+
+	/* return the point of the sweep of the elevator from which it must be computed again, its stops having changed:
+	 * the number of points if the sweep foresaw the change, -1 if the stops are not those of the sweep with the
+	 * calls assigned since the last update, or if one of these calls is before the next point */
+	private int resumePoint(int c, int now) {
+		Elevator e = elevators[c];
+		Trail w = trails[c];
+		if ( idle[c] || w.length == 0 ) return -1;
+		if ( current == null ){
+			current = new FloorSet(building.MAX_FLOOR, building.MIN_FLOOR);
+			expected = new FloorSet(building.MAX_FLOOR, building.MIN_FLOOR);
+		}
+		e.copyStops(current);
+		boolean up = e.isDirection() == Elevator.UP;
+
+		/* the last point reached, whose stop or turn may not have been made yet if it is reached now */
+		int j = w.passed;
+		while ( j + 1 < w.length && w.time[j + 1] <= now ) j++;
+		w.passed = j;
+		int from;
+		if ( j >= 0 && w.time[j] == now && up == w.up[j] && sameStops(c, w.stops[j]) ){
+			from = j;
+		}else if ( j < 0 ){
+			if ( up != w.up[0] || !sameStops(c, w.stops[0]) ) return -1;
+			from = 0;
+		}else{
+			if ( up != (w.up[j] ^ w.turn[j]) || j + 1 == w.length || !sameStops(c, w.stops[j + 1]) ) return -1;
+			from = j + 1;
+		}
+		if ( nbAssigned[c] == 0 ) return w.length;
+
+		/* the sweep changes at the first point from which the elevator passes the start of a call,
+		 * or turns or stops before it, unless it stops there anyway and its destination is then already a stop */
+		int resume = w.length;
+		for (int a = 0; a < nbAssigned[c]; a++) {
+			int s = starts[c][a];
+			int previous = e.getCurrentFloor();
+			int at = w.length - 1;
+			for (int k = from; k < w.length; k++) {
+				int f = w.floor[k];
+				if ( s == f ){
+					at = k;
+					break;
+				}
+				if ( s == previous || s > Math.min(previous, f) && s < Math.max(previous, f) ){
+					/* passed on the way to the point */
+					at = k - 1;
+					break;
+				}
+				if ( w.turn[k] && (w.up[k] ? s > f : s < f) ){
+					at = k;
+					break;
+				}
+				previous = f;
+			}
+			if ( at < from ) return -1;
+			changing[c][a] = !(w.floor[at] == s && w.stops[at].contains(s) && at + 1 < w.length && w.stops[at + 1].contains(destinations[c][a]));
+			if ( changing[c][a] ){
+				resume = Math.min(resume, at);
+			}else{
+				/* the stop is there from now on */
+				for (int k = from; k <= at; k++) w.stops[k].add(s);
+			}
+		}
+		return resume;
+	}
+
+	/* return true if the stops of the elevator are the given ones and the starts of the calls assigned to it */
+	private boolean sameStops(int c, FloorSet stops) {
+		expected.copyFrom(stops);
+		for (int a = 0; a < nbAssigned[c]; a++) expected.add(starts[c][a]);
+		return current.sameFloors(expected);
+	}
+
+	/* compute the sweep of the elevator again from the given point, the calls assigned since the last update
+	 * being added to its stops there: only the times of the floors reached from that point can change */
+	private void resume(int c, int k) {
+		Elevator e = elevators[c];
+		Trail w = trails[c];
+		int[][] times = sweep[c];
+		int[] later = again[c];
+		int[][] old = scratch();
+		for (int d = 0; d < 2; d++) {
+			for (int i = 0; i < floors; i++) {
+				if ( w.point[d][i] >= k ){
+					old[d][i] = times[d][i];
+					times[d][i] = NONE;
+					w.point[d][i] = NO_POINT;
+				}
+			}
+		}
+		for (int i = 0; i < floors; i++) {
+			if ( w.laterPoint[i] >= k ){
+				later[i] = NONE;
+				w.laterPoint[i] = NO_POINT;
+			}
+		}
+
+		stops.copyFrom(w.stops[k]);
+		served.copyFrom(w.served[k]);
+		for (int a = 0; a < nbAssigned[c]; a++) {
+			if ( !changing[c][a] ) continue;
+			stops.add(starts[c][a]);
+			/* the requests of a floor served again are picked up there */
+			served.remove(starts[c][a]);
+		}
+		int f = w.floor[k];
+		int t = w.time[k];
+		boolean up = w.up[k];
+		w.length = k;
+		walk(c, e, f, t, up);
+
+		for (int d = 0; d < 2; d++) {
+			for (int i = 0; i < floors; i++) {
+				if ( w.point[d][i] >= k && old[d][i] != times[d][i] ) changed(c, d, i, old[d][i]);
+			}
+		}
+	}
+
+	/* previous sweep of an elevator, distances being computed, stops and floors served of the sweep being computed,
+	 * stops of an elevator and stops it is expected to have */
+	private int[][] scratch;
+	private int[] distances;
+	private FloorSet stops;
+	private FloorSet served;
+	private FloorSet current;
+	private FloorSet expected;
+
+	private int[][] scratch() {
+		if ( scratch == null ) scratch = new int[2][floors];
+		return scratch;
+	}
+
+	private int[][] copy(int[][] values) {
+		int[][] copy = scratch();
+		System.arraycopy(values[UP], 0, copy[UP], 0, floors);
+		System.arraycopy(values[DOWN], 0, copy[DOWN], 0, floors);
+		return copy;
+	}
+
+	/* the time of the elevator at a floor has changed from old: update the earliest time there */
+	private void changed(int c, int d, int i, int old) {
+		int value = sweep[c][d][i];
+		if ( value <= earliest[d][i] ){
+			earliest[d][i] = value;
+		}else if ( old == earliest[d][i] ){
+			/* the elevator may have been the earliest one */
+			earliest[d][i] = minimum(d, i);
+		}
+	}
+
+	private int minimum(int d, int i) {
+		int min = NONE;
+		for (int c = 0; c < elevators.length; c++) {
+			min = Math.min(min, sweep[c][d][i]);
+		}
+		return min;
+	}
+
+	/* floors to the nearest idle elevator, in a pass from each end, computed apart
+	 * for the queries to read either the old distance or the new one.
+	 * An elevator below or above the floors of the building, as one not brought in yet,
+	 * is as far from them as from the end floor it is closest to */
+	private void computeIdleDistance() {
+		if ( distances == null ) distances = new int[floors];
+		int distance = NONE;
+		for (int i = 0; i < floors; i++) distances[i] = NONE;
+		for (int c = 0; c < elevators.length; c++) {
+			if ( !idle[c] ) continue;
+			int i = Math.max(0, Math.min(floors - 1, floor[c] - building.MIN_FLOOR));
+			distances[i] = Math.min(distances[i], Math.abs(floor[c] - building.MIN_FLOOR - i));
+		}
+		for (int i = 0; i < floors; i++) {
+			if ( distance != NONE ) distance++;
+			distance = Math.min(distance, distances[i]);
+			distances[i] = distance;
+		}
+		distance = NONE;
+		for (int i = floors - 1; i >= 0; i--) {
+			if ( distance != NONE ) distance++;
+			distance = Math.min(distance, distances[i]);
+			distances[i] = distance;
+		}
+		System.arraycopy(distances, 0, idleDistance, 0, floors);
+	}
+
+	/* compute the times of the sweep of the elevator from the given time, following the moves
+	 * of Elevator.moveNext over a copy of its stops, to which the destinations of the requests
+	 * are added when they are picked up, until the elevator becomes idle */
+	private void computeSweep(int c, int now) {
+		Elevator e = elevators[c];
+		Trail w = trails[c];
+		int[][] times = sweep[c];
+		changes[c] = e.getChanges();
+		floor[c] = e.getCurrentFloor();
+		direction[c] = e.isDirection();
+		moving[c] = e.isMoving();
+		idle[c] = isIdle(e);
+
+		Arrays.fill(times[UP], NONE);
+		Arrays.fill(times[DOWN], NONE);
+		Arrays.fill(again[c], NONE);
+		Arrays.fill(w.point[UP], NO_POINT);
+		Arrays.fill(w.point[DOWN], NO_POINT);
+		Arrays.fill(w.laterPoint, NO_POINT);
+		w.length = 0;
+		w.passed = -1;
+		if ( idle[c] ) return;
+
+		if ( stops == null ){
+			stops = new FloorSet(building.MAX_FLOOR, building.MIN_FLOOR);
+			served = new FloorSet(building.MAX_FLOOR, building.MIN_FLOOR);
+		}
+		e.copyStops(stops);
+		served.clear();
+
+		int f = floor[c];
+		boolean up = direction[c] == Elevator.UP;
+		int t = now + e.getDoorOpenedElapsedTime();
+		visit(c, up, f, t);
+		walk(c, e, f, t, up);
+	}
+
+	/* follow the sweep from the floor reached at the given time, where the elevator may stop,
+	 * keeping the points where it stops and turns */
+	private void walk(int c, Elevator e, int f, int t, boolean up) {
+		Trail w = trails[c];
+		int stopTime = e.OPENING_DOOR_TIME + 1;
+		w.add(f, t, up, false, stops, served);
+		/* a stop at the floor of an open door opens it again once it is closed */
+		if ( stops.contains(f) ) t += serve(e, f, stopTime);
+
+		while ( !stops.isEmpty() ){
+			if ( up ? f < stops.last() : f > stops.first() ){
+				f += up ? 1 : -1;
+				t++;
+				visit(c, up, f, t);
+				if ( stops.contains(f) ){
+					w.add(f, t, up, false, stops, served);
+					t += serve(e, f, stopTime);
+				}
+			}else{
+				w.add(f, t, up, true, stops, served);
+				/* the calls beyond the turn are taken by going on to them */
+				for (int g = f, u = t; up ? g < building.MAX_FLOOR : g > building.MIN_FLOOR; ) {
+					g += up ? 1 : -1;
+					u++;
+					visit(c, up, g, u);
+					visit(c, !up, g, u);
+				}
+				up = !up;
+				t++;
+				visit(c, up, f, t);
+			}
+		}
+
+		/* idle from there, the elevator goes straight to the calls */
+		w.add(f, t, up, false, stops, served);
+		for (int g = building.MIN_FLOOR; g <= building.MAX_FLOOR; g++) {
+			visit(c, true, g, t + Math.abs(g - f));
+			visit(c, false, g, t + Math.abs(g - f));
+		}
+	}
+
+	/* the elevator is idle, or will be once the current time unit is run */
+	private static boolean isIdle(Elevator e) {
+		return !e.isMoving() || !e.hasStops() && !e.isDoorOpening();
+	}
+
+	/* remove the stop from the copy, add the destinations of the requests picked up there,
+	 * return the time units the door stays open */
+	private int serve(Elevator e, int f, int stopTime) {
+		stops.remove(f);
+		if ( e.hasStop(f) && served.add(f) ){
+			for (Request r = e.firstRequest(f); r != null; r = e.nextRequest(r)) {
+				if ( !r.isRequestTaken() && r.getDestination() != f ) stops.add(r.getDestination());
+			}
+		}
+		return stopTime;
+	}
+
+	/* the elevator can take at the given time the calls of the floor in the direction:
+	 * keep the earliest time, and for the first direction of the sweep the earliest time
+	 * after the elevator has left the floor, with the last point of the sweep before them */
+	private void visit(int c, boolean up, int f, int t) {
+		int[][] times = sweep[c];
+		int[] later = again[c];
+		Trail w = trails[c];
+		int point = w.length - 1;
+		int d = up ? UP : DOWN;
+		int i = f - building.MIN_FLOOR;
+		/* no call is taken on the way in of an elevator outside the floors of the building */
+		if ( i < 0 || i >= floors ) return;
+		if ( times[d][i] == NONE ){
+			times[d][i] = t;
+			w.point[d][i] = point;
+		}else{
+			if ( d == (direction[c] == Elevator.UP ? UP : DOWN) && t < later[i] ){
+				later[i] = t;
+				w.laterPoint[i] = point;
+			}
+			if ( t < times[d][i] ){
+				times[d][i] = t;
+				w.point[d][i] = point;
+			}
+		}
+	}
+
+	/* points of the sweep of an elevator where it starts, stops, turns and becomes idle, with its direction,
+	 * the stops left and the floors served before it stops or turns there */
+	private static class Trail {
+
+		int length;
+		/* last point reached at the last update, -1 if none */
+		int passed;
+		int[] floor = new int[16];
+		int[] time = new int[16];
+		boolean[] up = new boolean[16];
+		boolean[] turn = new boolean[16];
+		FloorSet[] stops = new FloorSet[16];
+		FloorSet[] served = new FloorSet[16];
+		/* last point before the time of each floor by direction, and before its time once left */
+		final int[][] point;
+		final int[] laterPoint;
+
+		private final int maxFloor;
+		private final int minFloor;
+
+		Trail(int maxFloor, int minFloor) {
+			this.maxFloor = maxFloor;
+			this.minFloor = minFloor;
+			point = new int[2][maxFloor - minFloor + 1];
+			laterPoint = new int[maxFloor - minFloor + 1];
+		}
+
+		void add(int f, int t, boolean up, boolean turn, FloorSet stops, FloorSet served) {
+			if ( length == floor.length ){
+				int n = length * 2;
+				floor = Arrays.copyOf(floor, n);
+				time = Arrays.copyOf(time, n);
+				this.up = Arrays.copyOf(this.up, n);
+				this.turn = Arrays.copyOf(this.turn, n);
+				this.stops = Arrays.copyOf(this.stops, n);
+				this.served = Arrays.copyOf(this.served, n);
+			}
+			if ( this.stops[length] == null ){
+				this.stops[length] = new FloorSet(maxFloor, minFloor);
+				this.served[length] = new FloorSet(maxFloor, minFloor);
+			}
+			floor[length] = f;
+			time[length] = t;
+			this.up[length] = up;
+			this.turn[length] = turn;
+			this.stops[length].copyFrom(stops);
+			this.served[length].copyFrom(served);
+			length++;
+		}
+	}
+}
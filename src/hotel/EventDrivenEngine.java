@@ -0,0 +1,132 @@
+package hotel;
+
+import java.util.ArrayList;
+
+/* simulation engine jumping from one event to the next instead of running every time unit.
+ * Events are the time units in which an elevator does more than waiting for the door to close
+ * or moving one floor: reaching a stop, changing direction, becoming idle or parking.
+ * The results are the same as calling ElevatorsSW.nextSimulationStep at each time unit.
+ * A journal, an eta table or a listener is told of the end of each time unit having an event,
+ * the elevators being brought up to date first, and of the end of each run */
+public class EventDrivenEngine implements SimulationEngine {
+
+	private static final int NO_EVENT = Integer.MAX_VALUE;
+
+	private ElevatorsSW sw;
+	private ArrayList<Elevator> elevators;
+
+	/* time from which the state of each elevator has still to be computed */
+	private int[] syncedTime;
+	/* time of the next event of each elevator, NO_EVENT if it is idle */
+	private int[] eventTime;
+	/* next events, each one encoded as time << 32 | elevator index */
+	private LongHeap events = new LongHeap();
+
+	public EventDrivenEngine( ElevatorsSW sw ) {
+		super();
+		this.sw = sw;
+		elevators = sw.getBuilding().getElevators();
+		syncedTime = new int[elevators.size()];
+		eventTime = new int[elevators.size()];
+	}
+
+	/* run the simulation until the given time, as calling nextSimulationStep until getTime() reaches it */
+	public void advanceTo(int time){
+		run(time, false);
+	}
+
+	/* keep running the simulation until all requests are satisfied */
+	public void runUntilSatisfied(){
+		run(Integer.MAX_VALUE, true);
+	}
+
+	private void run(int target, boolean untilSatisfied){
+		schedule();
+
+		while ( sw.getTime() < target ){
+			if ( untilSatisfied && !sw.elaboratingRequests() ) break;
+
+			if ( sw.hasWaitingRequests() ){
+				/* waiting requests are retried at each time unit: run a full step */
+				syncAll();
+				sw.nextSimulationStep();
+				schedule();
+				continue;
+			}
+
+			/* drop the events rescheduled in the meantime */
+			while ( !events.isEmpty() && isStale(events.peek()) ) events.poll();
+
+			if ( events.isEmpty() || time(events.peek()) >= target ){
+				/* nothing happens before the target: every elevator is idle */
+				if ( !untilSatisfied ) sw.setTime(target);
+				break;
+			}
+
+			/* run the time unit of all the elevators having an event now */
+			int now = time(events.peek());
+			sw.setTime(now);
+			while ( !events.isEmpty() && time(events.peek()) == now ){
+				long event = events.poll();
+				if ( !isStale(event) ) runEvent(index(event), now);
+			}
+			sw.setTime(now + 1);
+			if ( sw.isObserved() ){
+				syncAll();
+				sw.stepCompleted();
+			}
+		}
+
+		/* leave the elevators up to date for the dispatcher */
+		syncAll();
+		sw.stepCompleted();
+	}
+
+	/* fast forward the elevator to its event and run the time unit of the event */
+	private void runEvent(int i, int now){
+		Elevator e = elevators.get(i);
+		e.skipTicks(now - syncedTime[i]);
+		sw.nextAction(e);
+		syncedTime[i] = now + 1;
+		reschedule(i);
+	}
+
+	/* compute the next event of each elevator from the current time */
+	private void schedule(){
+		events.clear();
+		for (int i = 0; i < elevators.size(); i++) {
+			syncedTime[i] = sw.getTime();
+			reschedule(i);
+		}
+	}
+
+	private void reschedule(int i){
+		int ticks = elevators.get(i).ticksUntilNextEvent();
+		if ( ticks == NO_EVENT ){
+			eventTime[i] = NO_EVENT;
+		}else{
+			eventTime[i] = syncedTime[i] + ticks;
+			events.add(((long) eventTime[i] << 32) | i);
+		}
+	}
+
+	/* bring every elevator to the current time: none of them has an event before it */
+	private void syncAll(){
+		for (int i = 0; i < elevators.size(); i++) {
+			elevators.get(i).skipTicks(sw.getTime() - syncedTime[i]);
+			syncedTime[i] = sw.getTime();
+		}
+	}
+
+	private boolean isStale(long event){
+		return eventTime[index(event)] != time(event);
+	}
+
+	private static int time(long event){
+		return (int) (event >>> 32);
+	}
+
+	private static int index(long event){
+		return (int) event;
+	}
+}
@@ -0,0 +1,625 @@
+package hotel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/* append-only journal of the decisions of an elevators software: the requests arriving,
+ * their assignments, pick ups and drop offs, and the elevators changing direction or becoming idle.
+ *
+ * The records are written in segment files of a directory, each one memory mapped, and made durable
+ * in batches: every commit interval, at the end of a time unit, a commit record closes the batch
+ * with its checksum and the segment is flushed to disk. Every checkpoint interval a snapshot
+ * of the simulation is written and committed in a batch of its own, and the segments before it are deleted
+ * once it is on disk.
+ *
+ * The flushes are group commits run by a thread of the journal, so the simulation never waits for the disk:
+ * the commits written while a flush is running are all made durable by the next one. A crash loses
+ * the batches not flushed yet, as it would lose the batches not committed yet; getDurableCommit
+ * returns the time of the last commit on disk.
+ *
+ * Format of a segment, big endian: records made of type (int), payload length (int), payload,
+ * up to a record of type 0, the zeros ending the segment. The events have a payload of five ints,
+ * the time followed by the fields of the event:
+ *   request     id, start floor, destination floor, time of the request
+ *   assign      request id, elevator
+ *   pickup      request id, elevator, floor
+ *   dropoff     request id, elevator, floor
+ *   direction   elevator, floor, state (1 going up, 2 moving)
+ * A checkpoint has the time followed by the snapshot as written by SimulationSnapshot.writeTo,
+ * a commit the time and the CRC-32 of the records since the previous commit.
+ *
+ * recover rebuilds the simulation from the last checkpoint followed by a valid commit, then replays
+ * the requests journaled after it with the event driven engine up to the last valid commit: the
+ * decisions taken again must be the ones of the journal, otherwise the recovery fails. The replay
+ * assigns the requests one by one, with the dispatch strategy and parking policy of the building
+ * given: the journal of a simulation assigning them in batches or differently cannot be recovered */
+public final class EventJournal {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+	/* time units between two commits */
+	public static final int DEFAULT_COMMIT_INTERVAL = 60;
+	/* time units between two checkpoints */
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 3600;
+
+	private static final int END = 0;
+	private static final int REQUEST = 1;
+	private static final int ASSIGN = 2;
+	private static final int PICKUP = 3;
+	private static final int DROPOFF = 4;
+	private static final int DIRECTION = 5;
+	private static final int CHECKPOINT = 6;
+	private static final int COMMIT = 7;
+
+	private static final int HEADER_SIZE = 8;
+	private static final int EVENT_SIZE = 5 * 4;
+	private static final int COMMIT_SIZE = 2 * 4;
+
+	private final File directory;
+	private final ElevatorsSW sw;
+	private int segmentSize = DEFAULT_SEGMENT_SIZE;
+	private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+	private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+	/* number of the segment being written, its mapping */
+	private int segment;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	/* position in the segment of the records not in the checksum yet */
+	private int checked;
+	private CRC32 crc = new CRC32();
+	private int lastCommit;
+	private int lastCheckpoint;
+	/* segment of the checkpoint of the batch being written, -1 if the batch has none */
+	private int checkpointSegment = -1;
+
+	/* while recovering, the records the events must match, null once recovered */
+	private Cursor expected;
+
+	/* thread flushing the commits to disk */
+	private Flusher flusher;
+
+	private long events;
+	private long commits;
+
+	private EventJournal( File directory, ElevatorsSW sw ) {
+		super();
+		this.directory = directory;
+		this.sw = sw;
+	}
+
+	/* start a new journal of the simulation in the directory, deleting the segments already there,
+	 * with a first checkpoint of its current state */
+	public static EventJournal create(File directory, ElevatorsSW sw) throws IOException {
+		return create(directory, sw, DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_INTERVAL, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	public static EventJournal create(File directory, ElevatorsSW sw, int segmentSize, int commitInterval, int checkpointInterval) throws IOException {
+		if ( !directory.isDirectory() && !directory.mkdirs() ) throw new IOException("cannot create the journal directory " + directory);
+		EventJournal journal = new EventJournal(directory, sw);
+		journal.setIntervals(segmentSize, commitInterval, checkpointInterval);
+		for (int n : segments(directory)) {
+			if ( !segmentFile(directory, n).delete() ) throw new IOException("cannot delete " + segmentFile(directory, n));
+		}
+		journal.openSegment(1, 0, segmentSize);
+		journal.flusher = journal.new Flusher();
+		sw.setJournal(journal);
+		journal.checkpoint(sw.getTime());
+		journal.commit(sw.getTime());
+		return journal;
+	}
+
+	/* rebuild the state of the simulation from the journal of the directory, then go on journaling it.
+	 * sw must have a building of the same shape, dispatch strategy and parking policy as the journaled one */
+	public static EventJournal recover(File directory, ElevatorsSW sw) throws IOException {
+		return recover(directory, sw, DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_INTERVAL, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	public static EventJournal recover(File directory, ElevatorsSW sw, int segmentSize, int commitInterval, int checkpointInterval) throws IOException {
+		int[] numbers = segments(directory);
+		if ( numbers.length == 0 ) throw new IOException("no journal in " + directory);
+
+		/* find the last valid commit and the last checkpoint before it */
+		Cursor scan = new Cursor(directory, numbers);
+		CRC32 crc = new CRC32();
+		int commitSegment = -1;
+		int commitEnd = 0;
+		int commitTime = 0;
+		int checkpointSegment = -1;
+		int checkpointPosition = 0;
+		int candidateSegment = -1;
+		int candidatePosition = 0;
+		while ( scan.next(crc) ){
+			if ( scan.type == CHECKPOINT ){
+				candidateSegment = scan.segment;
+				candidatePosition = scan.position;
+			}else if ( scan.type == COMMIT ){
+				if ( scan.commitCrc != (int) crc.getValue() ){
+					/* before the first checkpoint the batch may have started in a segment already deleted */
+					if ( candidateSegment >= 0 ) break;
+					crc.reset();
+					continue;
+				}
+				crc.reset();
+				commitSegment = scan.segment;
+				commitEnd = scan.end;
+				commitTime = scan.time;
+				checkpointSegment = candidateSegment;
+				checkpointPosition = candidatePosition;
+			}
+		}
+		scan.close();
+		if ( checkpointSegment < 0 ) throw new IOException("no checkpoint committed in the journal of " + directory);
+
+		/* restore the checkpoint, then replay the records up to the last commit */
+		Cursor replay = new Cursor(directory, numbers);
+		replay.seek(checkpointSegment, checkpointPosition, commitSegment, commitEnd);
+		replay.next(null);
+		sw.restore(replay.snapshot());
+		int checkpointTime = replay.time;
+
+		EventJournal journal = new EventJournal(directory, sw);
+		journal.setIntervals(segmentSize, commitInterval, checkpointInterval);
+		journal.expected = replay;
+		sw.setJournal(journal);
+		try {
+			EventDrivenEngine engine = new EventDrivenEngine(sw);
+			replay.nextEvent();
+			while ( replay.type != END ){
+				long matched = replay.matched;
+				if ( replay.type == REQUEST ){
+					engine.advanceTo(replay.time);
+					sw.assignElevator(sw.newRequest(replay.fields[0], replay.fields[1], replay.fields[2], replay.fields[3]));
+				}else{
+					/* run the time unit of the event, which has to produce it */
+					engine.advanceTo(replay.time + 1);
+				}
+				if ( replay.matched == matched ) throw new IllegalStateException("the replay diverges from the journal at time " + replay.time);
+			}
+			engine.advanceTo(commitTime);
+		} catch (RuntimeException e) {
+			sw.setJournal(null);
+			throw e;
+		} finally {
+			replay.close();
+			journal.expected = null;
+		}
+
+		/* go on after the last commit, dropping the records not committed */
+		for (int n : numbers) {
+			if ( n > commitSegment ) segmentFile(directory, n).delete();
+		}
+		journal.openSegment(commitSegment, commitEnd, 0);
+		byte[] zeros = new byte[4096];
+		while ( journal.buffer.hasRemaining() ) journal.buffer.put(zeros, 0, Math.min(zeros.length, journal.buffer.remaining()));
+		journal.buffer.position(commitEnd);
+		journal.checked = commitEnd;
+		journal.lastCommit = commitTime;
+		journal.lastCheckpoint = checkpointTime;
+		journal.flusher = journal.new Flusher();
+		journal.flusher.durableCommit = commitTime;
+		return journal;
+	}
+
+	private void setIntervals(int segmentSize, int commitInterval, int checkpointInterval) {
+		if ( segmentSize < 4096 || commitInterval < 1 || checkpointInterval < commitInterval ){
+			throw new IllegalArgumentException("segment of at least 4096 bytes and checkpoint interval of at least the commit interval expected");
+		}
+		this.segmentSize = segmentSize;
+		this.commitInterval = commitInterval;
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/* events of the elevators software */
+
+	void requestArrived(int time, Request r) {
+		event(REQUEST, time, r.getRequestId(), r.getStart(), r.getDestination(), r.getTimeRequest());
+	}
+
+	void assigned(int time, Request r, int elevatorNb) {
+		event(ASSIGN, time, r.getRequestId(), elevatorNb, 0, 0);
+	}
+
+	void pickedUp(int time, Request r, Elevator e) {
+		event(PICKUP, time, r.getRequestId(), e.getElevatorId(), e.getCurrentFloor(), 0);
+	}
+
+	void droppedOff(int time, Request r, Elevator e) {
+		event(DROPOFF, time, r.getRequestId(), e.getElevatorId(), e.getCurrentFloor(), 0);
+	}
+
+	void directionChanged(int time, Elevator e) {
+		event(DIRECTION, time, e.getElevatorId(), e.getCurrentFloor(), (e.isDirection() == Elevator.UP ? 1 : 0) | (e.isMoving() ? 2 : 0), 0);
+	}
+
+	/* the simulation is consistent at the given time: commit the batch if it is time to */
+	void stepCompleted(int time) {
+		if ( expected != null || time - lastCommit < commitInterval ) return;
+		commit(time);
+		if ( time - lastCheckpoint >= checkpointInterval ){
+			/* the checkpoint starts its own batch: once its segment is the first one, its checksum is still complete */
+			checkpoint(time);
+			commit(time);
+		}
+	}
+
+	private void event(int type, int time, int a, int b, int c, int d) {
+		events++;
+		if ( expected != null ){
+			expected.match(type, time, a, b, c, d);
+			return;
+		}
+		reserve(EVENT_SIZE);
+		buffer.putInt(type);
+		buffer.putInt(EVENT_SIZE);
+		buffer.putInt(time);
+		buffer.putInt(a);
+		buffer.putInt(b);
+		buffer.putInt(c);
+		buffer.putInt(d);
+	}
+
+	private void checkpoint(int time) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+		try {
+			sw.snapshot().writeTo(bytes);
+		} catch (IOException e) {
+			/* never thrown writing to memory */
+			throw new IllegalStateException(e);
+		}
+		reserve(4 + bytes.size());
+		checkpointSegment = segment;
+		buffer.putInt(CHECKPOINT);
+		buffer.putInt(4 + bytes.size());
+		buffer.putInt(time);
+		buffer.put(bytes.toByteArray());
+		lastCheckpoint = time;
+	}
+
+	/* close the batch and have it flushed to disk */
+	private void commit(int time) {
+		flusher.check();
+		reserve(COMMIT_SIZE);
+		updateChecksum();
+		buffer.putInt(COMMIT);
+		buffer.putInt(COMMIT_SIZE);
+		buffer.putInt(time);
+		buffer.putInt((int) crc.getValue());
+		crc.reset();
+		checked = buffer.position();
+
+		flusher.flush(buffer, time, checkpointSegment);
+		checkpointSegment = -1;
+		commits++;
+		lastCommit = time;
+	}
+
+	/* add to the checksum the records written since it was last updated */
+	private void updateChecksum() {
+		ByteBuffer records = buffer.duplicate();
+		records.limit(buffer.position());
+		records.position(checked);
+		crc.update(records);
+		checked = buffer.position();
+	}
+
+	/* make room for a record of the given payload, in a new segment if the current one is full */
+	private void reserve(int payload) {
+		if ( buffer.remaining() >= HEADER_SIZE + payload ) return;
+		updateChecksum();
+		try {
+			openSegment(segment + 1, 0, Math.max(segmentSize, HEADER_SIZE + payload));
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot extend the journal in " + directory, e);
+		}
+	}
+
+	/* map the segment of the given number, of the given size if it is created */
+	private void openSegment(int n, int position, int size) throws IOException {
+		closeSegment();
+		File file = segmentFile(directory, n);
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+		buffer.position(position);
+		segment = n;
+		checked = position;
+	}
+
+	private void closeSegment() {
+		if ( channel == null ) return;
+		try {
+			buffer.force();
+			channel.close();
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot close the journal segment " + segment, e);
+		}
+		channel = null;
+		buffer = null;
+	}
+
+	/* commit what has been journaled, wait for it to be on disk and close the journal */
+	public void close() {
+		commit(sw.getTime());
+		flusher.close();
+		closeSegment();
+		sw.setJournal(null);
+	}
+
+	/* return the number of events journaled, or matched while recovering */
+	public long getEvents() {
+		return events;
+	}
+
+	public long getCommits() {
+		return commits;
+	}
+
+	/* return the number of flushes to disk, each one making durable the commits written since the previous one */
+	public long getFlushes() {
+		return flusher.flushes;
+	}
+
+	/* return the time spent by the journal thread flushing the commits to disk */
+	public long getFlushNanos() {
+		return flusher.flushNanos;
+	}
+
+	/* return the time of the last commit on disk */
+	public int getDurableCommit() {
+		return flusher.durableCommit;
+	}
+
+	public int getLastCommit() {
+		return lastCommit;
+	}
+
+	public int getLastCheckpoint() {
+		return lastCheckpoint;
+	}
+
+	private static File segmentFile(File directory, int n) {
+		return new File(directory, String.format("journal-%08d.log", n));
+	}
+
+	/* return the numbers of the segments of the directory in order */
+	private static int[] segments(File directory) {
+		String[] names = directory.list();
+		if ( names == null ) return new int[0];
+		int[] numbers = new int[names.length];
+		int count = 0;
+		for (String name : names) {
+			if ( name.matches("journal-\\d{8}\\.log") ) numbers[count++] = Integer.parseInt(name.substring(8, 16));
+		}
+		numbers = Arrays.copyOf(numbers, count);
+		Arrays.sort(numbers);
+		return numbers;
+	}
+
+	/* thread forcing the segment of the last commit to disk, then deleting the segments before a durable checkpoint.
+	 * A segment is forced when the next one is opened, so only the last one has to be forced by this thread */
+	private class Flusher implements Runnable {
+
+		private final Thread thread;
+		/* last commit to flush, null if there is none, and the segment of the last checkpoint to flush */
+		private MappedByteBuffer pending;
+		private int pendingTime;
+		private int pendingCheckpoint = -1;
+		private boolean closed;
+		private RuntimeException failure;
+
+		volatile int durableCommit;
+		volatile long flushes;
+		volatile long flushNanos;
+
+		Flusher() {
+			thread = new Thread(this, "journal-flusher-" + directory.getName());
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		/* flush the commit of the given time, written in the buffer, without waiting for it */
+		synchronized void flush(MappedByteBuffer buffer, int time, int checkpointSegment) {
+			pending = buffer;
+			pendingTime = time;
+			if ( checkpointSegment > 0 ) pendingCheckpoint = checkpointSegment;
+			notify();
+		}
+
+		/* throw the failure of the last flush, if any, on the simulation thread */
+		synchronized void check() {
+			if ( failure != null ) throw new IllegalStateException("cannot flush the journal in " + directory, failure);
+		}
+
+		/* flush the last commit and stop the thread */
+		void close() {
+			synchronized (this) {
+				closed = true;
+				notify();
+			}
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			check();
+		}
+
+		public void run() {
+			while ( true ){
+				MappedByteBuffer buffer;
+				int time;
+				int checkpoint;
+				synchronized (this) {
+					while ( pending == null && !closed ){
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					if ( pending == null ) return;
+					buffer = pending;
+					time = pendingTime;
+					checkpoint = pendingCheckpoint;
+					pending = null;
+					pendingCheckpoint = -1;
+				}
+				try {
+					long start = System.nanoTime();
+					buffer.force();
+					flushNanos += System.nanoTime() - start;
+					flushes++;
+					durableCommit = time;
+
+					/* the checkpoint is durable: the segments before it are not needed anymore */
+					if ( checkpoint > 0 ){
+						for (int n : segments(directory)) {
+							if ( n < checkpoint ) segmentFile(directory, n).delete();
+						}
+					}
+				} catch (RuntimeException e) {
+					synchronized (this) {
+						failure = e;
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	/* reader of the records of the segments, in order, up to an optional limit */
+	private static class Cursor {
+
+		private final File directory;
+		private final int[] numbers;
+		private int index = -1;
+		private FileChannel channel;
+		private ByteBuffer buffer;
+		/* position in the segment of the records not in the checksum yet */
+		private int checked;
+		private int limitSegment = Integer.MAX_VALUE;
+		private int limitPosition;
+
+		/* current record: segment, position of its header, position after it, type and values */
+		int segment;
+		int position;
+		int end;
+		int type = END;
+		int time;
+		final int[] fields = new int[4];
+		int commitCrc;
+		/* number of events matched while recovering */
+		long matched;
+
+		Cursor(File directory, int[] numbers) {
+			this.directory = directory;
+			this.numbers = numbers;
+		}
+
+		/* start at the record of the given segment and position, stop at the given limit */
+		void seek(int segment, int position, int limitSegment, int limitPosition) throws IOException {
+			while ( buffer == null || this.segment != segment ){
+				if ( !nextSegment() ) throw new IOException("missing journal segment " + segment);
+			}
+			buffer.position(position);
+			this.limitSegment = limitSegment;
+			this.limitPosition = limitPosition;
+		}
+
+		private boolean nextSegment() throws IOException {
+			close();
+			if ( ++index >= numbers.length ) return false;
+			segment = numbers[index];
+			RandomAccessFile raf = new RandomAccessFile(segmentFile(directory, segment), "r");
+			channel = raf.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			checked = 0;
+			return true;
+		}
+
+		/* read the next record, adding the records passed to the checksum if any, as the writer does
+		 * return false at the end of the journal or at a record not entirely written */
+		boolean next(CRC32 crc) throws IOException {
+			if ( index < 0 ) nextSegment();
+			while ( buffer != null ){
+				if ( segment == limitSegment && buffer.position() >= limitPosition ) break;
+				position = buffer.position();
+				int kind = buffer.remaining() >= HEADER_SIZE ? buffer.getInt() : END;
+				if ( kind == END ){
+					updateChecksum(crc);
+					if ( !nextSegment() ) break;
+					continue;
+				}
+				int length = buffer.getInt();
+				if ( kind > COMMIT || length < 4 || length > buffer.remaining() ) break;
+				if ( kind == COMMIT ) updateChecksum(crc);
+				type = kind;
+				time = buffer.getInt();
+				if ( kind == COMMIT ){
+					commitCrc = buffer.getInt();
+				}else if ( kind != CHECKPOINT ){
+					for (int i = 0; i < fields.length; i++) fields[i] = buffer.getInt();
+				}
+				end = position + HEADER_SIZE + length;
+				buffer.position(end);
+				if ( kind == COMMIT ) checked = end;
+				return true;
+			}
+			type = END;
+			return false;
+		}
+
+		private void updateChecksum(CRC32 crc) {
+			if ( crc == null ) return;
+			ByteBuffer records = buffer.duplicate();
+			records.limit(position);
+			records.position(checked);
+			crc.update(records);
+		}
+
+		/* move to the next event, skipping the commits and checkpoints */
+		void nextEvent() throws IOException {
+			while ( next(null) && (type == COMMIT || type == CHECKPOINT) );
+		}
+
+		/* check that the event is the current one of the journal and move to the next one */
+		void match(int kind, int t, int a, int b, int c, int d) {
+			if ( type != kind || time != t || fields[0] != a || fields[1] != b || fields[2] != c || fields[3] != d ){
+				throw new IllegalStateException("the replay diverges from the journal at time " + t
+						+ (type == END ? ": the journal has no more events" : ""));
+			}
+			matched++;
+			try {
+				nextEvent();
+			} catch (IOException e) {
+				throw new IllegalStateException("cannot read the journal", e);
+			}
+		}
+
+		/* read the snapshot of the current checkpoint */
+		SimulationSnapshot snapshot() throws IOException {
+			if ( type != CHECKPOINT ) throw new IOException("no checkpoint in the journal");
+			byte[] data = new byte[end - position - HEADER_SIZE - 4];
+			ByteBuffer record = buffer.duplicate();
+			record.position(position + HEADER_SIZE + 4);
+			record.get(data);
+			return SimulationSnapshot.readFrom(new ByteArrayInputStream(data));
+		}
+
+		void close() throws IOException {
+			if ( channel != null ){
+				channel.close();
+				channel = null;
+				buffer = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package hotel;
+
+/* Fenwick tree counting items per floor, giving the number of items
+ * in a range of floors in O(log floors) */
+class FloorCounter {
+
+	private final int minFloor;
+	private final int maxFloor;
+	private final int[] tree;
+
+	FloorCounter(int maxFloor, int minFloor) {
+		this.minFloor = minFloor;
+		this.maxFloor = maxFloor;
+		tree = new int[maxFloor - minFloor + 2];
+	}
+
+	/* add delta to the count of the given floor */
+	void add(int floor, int delta) {
+		for (int i = floor - minFloor + 1; i < tree.length; i += i & (-i)) {
+			tree[i] += delta;
+		}
+	}
+
+	/* return the number of items on floors lower or equal to the given one */
+	int countUpTo(int floor) {
+		if ( floor > maxFloor ) floor = maxFloor;
+		int sum = 0;
+		for (int i = floor - minFloor + 1; i > 0; i -= i & (-i)) {
+			sum += tree[i];
+		}
+		return sum;
+	}
+
+	/* return the number of items on floors strictly between low and high */
+	int countBetween(int low, int high) {
+		if ( high - low <= 1 ) return 0;
+		return countUpTo(high - 1) - countUpTo(low);
+	}
+
+	/* return the number of items on floors strictly above the given one */
+	int countAbove(int floor) {
+		return countUpTo(maxFloor) - countUpTo(floor);
+	}
+
+	/* return the number of items on floors strictly below the given one */
+	int countBelow(int floor) {
+		return countUpTo(floor - 1);
+	}
+}
@@ -0,0 +1,132 @@
+package hotel;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/* set of floors stored as a bitset, with a summary word per 64 words so that
+ * the lowest and highest floor are found with a couple of bit scans */
+class FloorSet {
+
+	private final int minFloor;
+	private final int nbFloors;
+	private final long[] words;
+	/* bit w is set when words[w] is not empty */
+	private final long[] summary;
+	private int size;
+
+	FloorSet(int maxFloor, int minFloor) {
+		this.minFloor = minFloor;
+		nbFloors = maxFloor - minFloor + 1;
+		words = new long[(nbFloors + 63) >>> 6];
+		summary = new long[(words.length + 63) >>> 6];
+		size = 0;
+	}
+
+	/* add the floor, return false if it was already in the set */
+	boolean add(int floor) {
+		int i = floor - minFloor;
+		int w = i >>> 6;
+		long bit = 1L << i;
+		if ( (words[w] & bit) != 0 ) return false;
+		words[w] |= bit;
+		summary[w >>> 6] |= 1L << w;
+		size++;
+		return true;
+	}
+
+	/* remove the floor, return false if it was not in the set */
+	boolean remove(int floor) {
+		int i = floor - minFloor;
+		int w = i >>> 6;
+		long bit = 1L << i;
+		if ( (words[w] & bit) == 0 ) return false;
+		words[w] &= ~bit;
+		if ( words[w] == 0 ) summary[w >>> 6] &= ~(1L << w);
+		size--;
+		return true;
+	}
+
+	/* make the set equal to the other one, of the same floors */
+	void copyFrom(FloorSet other) {
+		System.arraycopy(other.words, 0, words, 0, words.length);
+		System.arraycopy(other.summary, 0, summary, 0, summary.length);
+		size = other.size;
+	}
+
+	/* return true if the set has the same floors as the other one, of the same floors */
+	boolean sameFloors(FloorSet other) {
+		if ( size != other.size ) return false;
+		for (int w = 0; w < words.length; w++) {
+			if ( words[w] != other.words[w] ) return false;
+		}
+		return true;
+	}
+
+	void clear() {
+		Arrays.fill(words, 0);
+		Arrays.fill(summary, 0);
+		size = 0;
+	}
+
+	boolean contains(int floor) {
+		int i = floor - minFloor;
+		if ( i < 0 || i >= nbFloors ) return false;
+		return (words[i >>> 6] & (1L << i)) != 0;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/* return the lowest floor of the set */
+	int first() {
+		for (int s = 0; s < summary.length; s++) {
+			if ( summary[s] != 0 ){
+				int w = (s << 6) + Long.numberOfTrailingZeros(summary[s]);
+				return minFloor + (w << 6) + Long.numberOfTrailingZeros(words[w]);
+			}
+		}
+		throw new NoSuchElementException();
+	}
+
+	/* return the lowest floor of the set above the given one */
+	int higher(int floor) {
+		int i = Math.max(floor - minFloor + 1, 0);
+		if ( i >= nbFloors ) throw new NoSuchElementException();
+		int w = i >>> 6;
+		long word = words[w] & (-1L << i);
+		while ( word == 0 ){
+			if ( ++w == words.length ) throw new NoSuchElementException();
+			word = words[w];
+		}
+		return minFloor + (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/* return the highest floor of the set below the given one */
+	int lower(int floor) {
+		int i = Math.min(floor - minFloor - 1, nbFloors - 1);
+		if ( i < 0 ) throw new NoSuchElementException();
+		int w = i >>> 6;
+		long word = words[w] & (-1L >>> (63 - (i & 63)));
+		while ( word == 0 ){
+			if ( --w < 0 ) throw new NoSuchElementException();
+			word = words[w];
+		}
+		return minFloor + (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+	}
+
+	/* return the highest floor of the set */
+	int last() {
+		for (int s = summary.length - 1; s >= 0; s--) {
+			if ( summary[s] != 0 ){
+				int w = (s << 6) + 63 - Long.numberOfLeadingZeros(summary[s]);
+				return minFloor + (w << 6) + 63 - Long.numberOfLeadingZeros(words[w]);
+			}
+		}
+		throw new NoSuchElementException();
+	}
+}
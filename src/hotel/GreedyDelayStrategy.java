@@ -0,0 +1,115 @@
+package hotel;
+
+/* the original dispatch policy: the elevator introducing the minimum global delay,
+ * the delay of the new request plus the delay it adds to the stops already planned.
+ * A moving elevator only takes requests in its direction from floors it has not passed yet */
+public class GreedyDelayStrategy implements DispatchStrategy {
+
+	public int cost(ElevatorView e, int start, int dest, int passengers) {
+		int time = 0;
+		
+		/* calculate delay caused to the request if assigned to this elevator */
+		time += calculateExtraTime ( e, start, dest );
+		
+		/* if elevator cannot be assigned, return */
+		if ( time == -1 ) return -1;
+		
+		/* calculate time introduced assigning the request to this elevator */
+		time += calculateExtraTimeAdded(e, start, dest);
+	
+		return time;
+	}
+	
+	public boolean movingTakesOnlyAhead() {
+		return true;
+	}
+	
+	/* calculate extra time necessary to satisfy the request
+	 * return -1 if elevator cannot satisfy the request */
+	private int calculateExtraTime ( ElevatorView e, int start, int dest ){
+		int time = 0;
+		int current = e.getCurrentFloor();
+		
+		/* if the elevator is moving, calculate the delay introduced by the stop
+		 * already planned */
+		if (e.isMoving() == true){
+			
+			/* check if elevator can take the request: take only requests
+			 * having the same direction */
+			if ( e.isDirection() == Elevator.UP && dest>start ){
+				if ( start < current){
+					/* elevator already passed this floor, do not take the request */
+					return -1;
+				}else{
+					/* add time spent keeping the door open when reaching a destination in between,
+					 * but not on the starting floor */
+					time += e.getDoorTime() * e.countStopsBetween(current, dest);
+					if ( start > current && e.hasStop(start) ) time -= e.getDoorTime();
+					
+					/* consider the destinations of the requests not already taken (they are not added in the stops yet) 
+					 * if they will be reached before reaching the destination of the request */
+					time += e.getDoorTime() * e.countPendingDropOffs(Elevator.UP, current, dest);
+				}
+			}else if ( e.isDirection() == Elevator.DOWN && dest<start ){
+				if ( start > current ){
+					/* elevator already passed this floor */
+					return -1;
+				}else{
+					/* add time spent keeping the door open when reaching a destination in between,
+					 * but not on the starting floor */
+					time += e.getDoorTime() * e.countStopsBetween(dest, current);
+					if ( start < current && e.hasStop(start) ) time -= e.getDoorTime();
+					
+					/* consider the destinations of the requests not already taken (they are not added in the stops yet) 
+					 * if they will be reached before reaching the destination of the request */
+					time += e.getDoorTime() * e.countPendingDropOffs(Elevator.DOWN, dest, current);
+				}
+			}else{
+				/* elevator cannot satisfy the request */
+				return -1;
+			}
+
+		}
+		
+		/* add time waiting at current floor */
+		time += e.getDoorOpenedElapsedTime();
+		
+		/* add time needed to reach starting floor */
+		time += Math.abs(current - start);
+	
+		return time;
+	}
+	
+	/* calculate extra time added to other stops by adding this stop */
+	private int calculateExtraTimeAdded(ElevatorView e, int start, int dest) {
+		int time = 0;
+		int current = e.getCurrentFloor();
+		
+		/* if elevator is not moving there are no other stops */
+		if (e.isMoving() == true){
+			
+			if ( e.isDirection() == Elevator.UP ){
+				/* if a stop is after the destination and/or the start of the request, 
+				 * add the delay of opening the door
+				 */
+				if ( !e.hasStop(dest) ) time += e.getDoorTime() * e.countStopsAbove(dest);
+				if ( !e.hasStop(start) ) time += e.getDoorTime() * e.countStopsAbove(start);
+				
+				/* consider the delay for the future stops scheduled, too */
+				time += e.getDoorTime() * e.countPendingDropOffs(Elevator.UP, current, dest);
+			}else{
+				/* if a stop is after the destination and/or the start of the request, 
+				 * add the delay of opening the door
+				 */
+				if ( !e.hasStop(dest) ) time += e.getDoorTime() * e.countStopsBelow(dest);
+				if ( !e.hasStop(start) ) time += e.getDoorTime() * e.countStopsBelow(start);
+				
+				/* consider the delay for the future stops scheduled, too */
+				time += e.getDoorTime() * e.countPendingDropOffs(Elevator.DOWN, dest, current);
+			}
+
+		}
+		
+		return time;
+	}
+}
@@ -0,0 +1,94 @@
+package hotel;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/* histogram of non negative time values with a bounded relative error, in the style of HdrHistogram:
+ * values below 128 have their own bucket, larger ones share buckets of 64 per power of two,
+ * so the value reported for a percentile is within 1/64 of the recorded one */
+class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;
+
+	private final long[] counts = new long[SUB_BUCKETS + (32 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS];
+	private long totalCount;
+	private int maxValue;
+
+	/* record a value, negative values are counted as 0 */
+	void record(int value) {
+		if ( value < 0 ) value = 0;
+		counts[index(value)]++;
+		totalCount++;
+		if ( value > maxValue ) maxValue = value;
+	}
+
+	long getTotalCount() {
+		return totalCount;
+	}
+
+	int getMaxValue() {
+		return maxValue;
+	}
+
+	/* return the value below which the given percentage of the recorded values fall,
+	 * as the highest value of its bucket, 0 if nothing has been recorded */
+	int getValueAtPercentile(double percentile) {
+		if ( totalCount == 0 ) return 0;
+		long target = (long) Math.ceil(percentile / 100.0 * totalCount);
+		if ( target < 1 ) target = 1;
+
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if ( seen >= target ) return Math.min(highestValue(i), maxValue);
+		}
+		return maxValue;
+	}
+
+	/* write the buckets having some values, as index and count */
+	void writeState(DataOutputStream out) throws IOException {
+		int used = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if ( counts[i] != 0 ) used++;
+		}
+		out.writeInt(maxValue);
+		out.writeInt(used);
+		for (int i = 0; i < counts.length; i++) {
+			if ( counts[i] == 0 ) continue;
+			out.writeShort(i);
+			out.writeLong(counts[i]);
+		}
+	}
+
+	/* replace the values recorded with the ones written by writeState */
+	void readState(DataInputStream in) throws IOException {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+		maxValue = in.readInt();
+		int used = in.readInt();
+		for (int j = 0; j < used; j++) {
+			int i = in.readShort();
+			counts[i] = in.readLong();
+			totalCount += counts[i];
+		}
+	}
+
+	private static int index(int value) {
+		if ( value < SUB_BUCKETS ) return value;
+		/* shift bringing the value in [64, 128) */
+		int shift = (31 - Integer.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + ((value >>> shift) - HALF_SUB_BUCKETS);
+	}
+
+	/* return the highest value counted in the bucket */
+	private static int highestValue(int index) {
+		if ( index < SUB_BUCKETS ) return index;
+		int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		long lowest = (long) ((index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS) << shift;
+		return (int) Math.min(lowest + (1L << shift) - 1, Integer.MAX_VALUE);
+	}
+}
@@ -0,0 +1,52 @@
+package hotel;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/* binary min heap of longs, a PriorityQueue<Long> without boxing */
+class LongHeap {
+
+	private long[] heap = new long[16];
+	private int size;
+
+	void add(long value) {
+		if ( size == heap.length ) heap = Arrays.copyOf(heap, size * 2);
+		int i = size++;
+		while ( i > 0 ){
+			int parent = (i - 1) >>> 1;
+			if ( heap[parent] <= value ) break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = value;
+	}
+
+	long peek() {
+		if ( size == 0 ) throw new NoSuchElementException();
+		return heap[0];
+	}
+
+	long poll() {
+		long first = peek();
+		long last = heap[--size];
+		int i = 0;
+		int half = size >>> 1;
+		while ( i < half ){
+			int child = 2 * i + 1;
+			if ( child + 1 < size && heap[child + 1] < heap[child] ) child++;
+			if ( last <= heap[child] ) break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return first;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void clear() {
+		size = 0;
+	}
+}
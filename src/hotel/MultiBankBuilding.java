@@ -0,0 +1,400 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/* building whose elevators are split in banks, each one serving its own span of floors
+ * and run by its own ElevatorsSW, as the low rise and the high rise banks of a tower.
+ * A trip is taken by the first bank serving both its floors. A trip no bank serves goes through
+ * the fewest banks whose floors overlap, changing bank at the floor closest to the destination
+ * both banks serve: each leg is called transferTime after the previous one is delivered.
+ *
+ * The banks only act on each other through the transfers, called at least transferTime later:
+ * they are run in lockstep through periods of transferTime time units, independently within
+ * a period, on separate threads if asked, and the transfers are handed over between periods
+ * in bank order. The results are the same whatever the number of threads */
+public class MultiBankBuilding {
+
+	/* default time units to walk from the elevators of a bank to the ones of another */
+	public static final int DEFAULT_TRANSFER_TIME = 30;
+
+	/* no floor: the trip cannot be taken, or the leg is the last one of its trip */
+	public static final int NO_FLOOR = Integer.MIN_VALUE;
+
+	private ArrayList<Bank> banks = new ArrayList<Bank>();
+	private int transferTime;
+	private boolean eventDriven;
+	/* executor running the banks of a period, null to run them on the calling thread */
+	private ExecutorService executor;
+	private int time;
+	private long trips;
+	private long transfers;
+
+	public MultiBankBuilding() {
+		this(DEFAULT_TRANSFER_TIME);
+	}
+
+	public MultiBankBuilding( int transferTime ) {
+		super();
+		if ( transferTime < 1 ) throw new IllegalArgumentException("transfer time must be at least 1");
+		this.transferTime = transferTime;
+	}
+
+	/* add a bank of elevators serving the floors from minFloor to maxFloor, return its index */
+	public int addBank(int maxFloor, int minFloor, int nbElevators, int doorTime) {
+		return addBank(new Building(maxFloor, minFloor, nbElevators, doorTime));
+	}
+
+	/* add a bank with the elevators of the building, return its index */
+	public int addBank(Building building) {
+		if ( time > 0 ) throw new IllegalStateException("banks must be added before running");
+		banks.add(new Bank(new ElevatorsSW(building)));
+		return banks.size() - 1;
+	}
+
+	public int getBankCount() {
+		return banks.size();
+	}
+
+	/* return the elevators software of the bank of the given index */
+	public ElevatorsSW getBank(int bank) {
+		return banks.get(bank).sw;
+	}
+
+	/* set the receiver of the dispatch events of the bank of the given index, null to stop measuring it.
+	 * With several threads the listeners of the banks are called on the threads running them */
+	public void setListener(int bank, DispatchListener listener) {
+		banks.get(bank).next = listener;
+	}
+
+	/* run the banks of each period on the given number of threads, 1 to run them on the calling thread */
+	public void setThreads(int threads) {
+		shutdown();
+		if ( threads > 1 ){
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private int count;
+				public synchronized Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "bank-" + count++);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+	/* stop the threads running the banks */
+	public void shutdown() {
+		if ( executor != null ){
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	/* with eventDriven the banks jump between events instead of running every time unit */
+	public void setEventDriven(boolean eventDriven) {
+		if ( time > 0 ) throw new IllegalStateException("the engine must be chosen before running");
+		this.eventDriven = eventDriven;
+		for (Bank b : banks) {
+			b.engine = eventDriven ? new EventDrivenEngine(b.sw) : null;
+		}
+	}
+
+	/* return the index of the first bank serving both floors, -1 if there is none */
+	public int bankServing(int start, int dest) {
+		for (int i = 0; i < banks.size(); i++) {
+			if ( serves(building(i), start) && serves(building(i), dest) ) return i;
+		}
+		return -1;
+	}
+
+	/* return the floor where a trip no bank serves leaves its first bank: on the shortest chain
+	 * of banks having floors in common, the first ones in index order, the floor closest to the destination
+	 * served by the first two banks. Return NO_FLOOR if no chain takes the trip */
+	public int transferFloor(int start, int dest) {
+		int n = banks.size();
+		/* bank from which each bank is reached, -1 for the banks of the start, -2 if not reached */
+		int[] previous = new int[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		for (int i = 0; i < n; i++) {
+			previous[i] = -2;
+			if ( serves(building(i), start) ){
+				previous[i] = -1;
+				queue[tail++] = i;
+			}
+		}
+		while ( head < tail ){
+			int bank = queue[head++];
+			if ( serves(building(bank), dest) ){
+				if ( previous[bank] == -1 ) return NO_FLOOR;
+				/* go back to the second bank of the chain */
+				while ( previous[previous[bank]] != -1 ) bank = previous[bank];
+				Building from = building(previous[bank]);
+				Building to = building(bank);
+				int low = Math.max(from.MIN_FLOOR, to.MIN_FLOOR);
+				int high = Math.min(from.MAX_FLOOR, to.MAX_FLOOR);
+				return Math.max(low, Math.min(high, dest));
+			}
+			for (int i = 0; i < n; i++) {
+				if ( previous[i] == -2 && overlap(building(bank), building(i)) ){
+					previous[i] = bank;
+					queue[tail++] = i;
+				}
+			}
+		}
+		return NO_FLOOR;
+	}
+
+	private Building building(int bank) {
+		return banks.get(bank).sw.getBuilding();
+	}
+
+	private static boolean overlap(Building a, Building b) {
+		return Math.max(a.MIN_FLOOR, b.MIN_FLOOR) <= Math.min(a.MAX_FLOOR, b.MAX_FLOOR);
+	}
+
+	private static boolean serves(Building b, int floor) {
+		return floor >= b.MIN_FLOOR && floor <= b.MAX_FLOOR;
+	}
+
+	/* call an elevator for a trip at the given time, not before the time of the building.
+	 * The trip id identifies the requests of its legs in the banks */
+	public void call(int tripId, int time, int start, int dest) {
+		if ( time < this.time ) throw new IllegalArgumentException("call at time " + time + " before the time of the building " + this.time);
+		if ( bankServing(start, dest) < 0 && transferFloor(start, dest) == NO_FLOOR ){
+			throw new IllegalArgumentException("no bank takes the trip from floor " + start + " to floor " + dest);
+		}
+		callLeg(tripId, time, start, dest);
+		trips++;
+	}
+
+	/* give the next leg of the trip to its bank */
+	private void callLeg(int tripId, int time, int start, int dest) {
+		int bank = bankServing(start, dest);
+		if ( bank >= 0 ){
+			banks.get(bank).calls.add(tripId, time, start, dest, NO_FLOOR);
+		}else{
+			int floor = transferFloor(start, dest);
+			banks.get(bankServing(start, floor)).calls.add(tripId, time, start, floor, dest);
+		}
+	}
+
+	/* run the periods ending by the given time. While no bank has a trip in progress or to call
+	 * no transfer can happen: the periods up to the last one ending by the time are run at once */
+	public void advanceTo(int target) {
+		while ( target - time >= transferTime ){
+			if ( elaboratingRequests() ){
+				runPeriod(time + transferTime);
+			}else{
+				runPeriod(time + (target - time) / transferTime * transferTime);
+			}
+		}
+	}
+
+	/* keep running periods until all the trips are completed */
+	public void runUntilSatisfied() {
+		while ( elaboratingRequests() ) runPeriod(time + transferTime);
+	}
+
+	/* return if some trips are not completed yet */
+	public boolean elaboratingRequests() {
+		for (Bank b : banks) {
+			if ( b.sw.elaboratingRequests() || !b.calls.isEmpty() ) return true;
+		}
+		return false;
+	}
+
+	/* run all the banks until the end of the period, then call the transfers of their trips */
+	private void runPeriod(int end) {
+		for (Bank b : banks) b.end = end;
+
+		if ( executor == null || banks.size() == 1 ){
+			for (Bank b : banks) b.call();
+		}else{
+			try {
+				List<Future<Object>> results = executor.invokeAll(banks);
+				for (Future<Object> f : results) f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted while running the banks", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("bank failed", e.getCause());
+			}
+		}
+
+		/* the next legs, in bank order then delivery order */
+		for (Bank b : banks) {
+			CallQueue out = b.transfers;
+			while ( !out.isEmpty() ){
+				callLeg(out.id(), out.time(), out.start(), out.dest());
+				out.poll();
+				transfers++;
+			}
+		}
+		time = end;
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getTransferTime() {
+		return transferTime;
+	}
+
+	/* return the number of trips called */
+	public long getTrips() {
+		return trips;
+	}
+
+	/* return the number of times a trip has changed bank */
+	public long getTransfers() {
+		return transfers;
+	}
+
+	/* print the statistics of each bank, where each leg of a trip counts as a request */
+	public void printStatistics() {
+		for (int i = 0; i < banks.size(); i++) {
+			ElevatorsSW sw = banks.get(i).sw;
+			Building b = sw.getBuilding();
+			System.out.println("bank " + i + " (floors " + b.MIN_FLOOR + " to " + b.MAX_FLOOR + ", " + b.getElevators().size() + " elevators):");
+			sw.printStatistics();
+		}
+		System.out.println("trips: " + trips + ", transfers: " + transfers);
+	}
+
+	/* a bank with the calls it has still to receive and the transfers of the current period */
+	private class Bank implements Callable<Object>, DispatchListener {
+
+		final ElevatorsSW sw;
+		EventDrivenEngine engine;
+		/* calls not given to sw yet, in time order */
+		final CallQueue calls = new CallQueue();
+		/* second legs of the trips whose first leg has been delivered in this period */
+		final CallQueue transfers = new CallQueue();
+		/* final destination of the first legs in progress, by trip id */
+		final HashMap<Integer, Integer> transferring = new HashMap<Integer, Integer>();
+		/* listener set on sw before the bank, or by setListener, still receiving the events */
+		DispatchListener next;
+		int end;
+
+		Bank(ElevatorsSW sw) {
+			this.sw = sw;
+			next = sw.getListener();
+			sw.setListener(this);
+			if ( eventDriven ) engine = new EventDrivenEngine(sw);
+		}
+
+		/* run the bank until the end of the period, giving it the calls of the period at their time */
+		public Object call() {
+			while ( !calls.isEmpty() && calls.time() < end ){
+				advance(calls.time());
+				Request r = sw.newRequest(calls.id(), calls.start(), calls.dest(), calls.time());
+				if ( calls.finalDest() != NO_FLOOR ) transferring.put(calls.id(), calls.finalDest());
+				calls.poll();
+				sw.assignElevator(r);
+			}
+			advance(end);
+			return null;
+		}
+
+		private void advance(int t) {
+			if ( engine != null ){
+				engine.advanceTo(t);
+			}else{
+				while ( sw.getTime() < t ) sw.nextSimulationStep();
+			}
+		}
+
+		public void requestDispatched(int time, int requestId, int elevatorNb, long nanos) {
+			if ( next != null ) next.requestDispatched(time, requestId, elevatorNb, nanos);
+		}
+
+		public void requestDelivered(int time, Request r) {
+			Integer dest = transferring.remove(r.getRequestId());
+			if ( dest != null ) transfers.add(r.getRequestId(), time + transferTime, r.getDestination(), dest, NO_FLOOR);
+			if ( next != null ) next.requestDelivered(time, r);
+		}
+
+		public void stepCompleted(ElevatorsSW sw) {
+			if ( next != null ) next.stepCompleted(sw);
+		}
+	}
+
+	/* calls kept in time order as records of five ints, the ones of the same time in order of addition */
+	private static class CallQueue {
+
+		private static final int FIELDS = 5;
+
+		private int[] records = new int[FIELDS * 64];
+		private int head;
+		private int tail;
+
+		void add(int id, int time, int start, int dest, int finalDest) {
+			if ( tail == records.length ){
+				if ( head > 0 ){
+					System.arraycopy(records, head, records, 0, tail - head);
+					tail -= head;
+					head = 0;
+				}
+				if ( tail == records.length ){
+					int[] bigger = new int[records.length * 2];
+					System.arraycopy(records, 0, bigger, 0, tail);
+					records = bigger;
+				}
+			}
+			/* move the later calls one record forward */
+			int i = tail;
+			while ( i > head && records[i - FIELDS + 1] > time ) i -= FIELDS;
+			System.arraycopy(records, i, records, i + FIELDS, tail - i);
+			records[i] = id;
+			records[i + 1] = time;
+			records[i + 2] = start;
+			records[i + 3] = dest;
+			records[i + 4] = finalDest;
+			tail += FIELDS;
+		}
+
+		boolean isEmpty() {
+			return head == tail;
+		}
+
+		/* values of the first call */
+		int id() {
+			return records[head];
+		}
+
+		int time() {
+			return records[head + 1];
+		}
+
+		int start() {
+			return records[head + 2];
+		}
+
+		int dest() {
+			return records[head + 3];
+		}
+
+		int finalDest() {
+			return records[head + 4];
+		}
+
+		/* remove the first call */
+		void poll() {
+			head += FIELDS;
+			if ( head == tail ){
+				head = 0;
+				tail = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package hotel;
+
+/* nearest car: the elevator reaching the start floor first, counting only the floors to travel.
+ * Any elevator can take a request: one going the other way or past the start floor
+ * gets there after turning at its farthest stop */
+public class NearestCarStrategy implements DispatchStrategy {
+
+	public int cost(ElevatorView e, int start, int dest, int passengers) {
+		return e.getDoorOpenedElapsedTime() + routeDistance(e, start);
+	}
+
+	public boolean movingTakesOnlyAhead() {
+		return false;
+	}
+
+	/* return the floors the elevator travels to reach the given one following its stops:
+	 * straight there if it is ahead, otherwise after turning at the farthest stop */
+	static int routeDistance(ElevatorView e, int floor) {
+		int current = e.getCurrentFloor();
+		if ( !e.isMoving() || !e.hasStops() ) return Math.abs(current - floor);
+
+		if ( e.isDirection() == Elevator.UP ){
+			if ( floor >= current ) return floor - current;
+			int turn = Math.max(e.lastStop(), current);
+			return (turn - current) + (turn - floor);
+		}else{
+			if ( floor <= current ) return current - floor;
+			int turn = Math.min(e.firstStop(), current);
+			return (current - turn) + (floor - turn);
+		}
+	}
+
+	/* return the stops the elevator makes before reaching the given floor following its stops */
+	static int routeStops(ElevatorView e, int floor) {
+		int current = e.getCurrentFloor();
+		if ( !e.isMoving() || !e.hasStops() ) return 0;
+
+		if ( e.isDirection() == Elevator.UP ){
+			if ( floor >= current ) return e.countStopsBetween(current, floor);
+			/* all the stops above, those below the floor are made after it */
+			return e.countStopsAbove(current) + e.countStopsBetween(floor, current);
+		}else{
+			if ( floor <= current ) return e.countStopsBetween(floor, current);
+			return e.countStopsBelow(current) + e.countStopsBetween(current, floor);
+		}
+	}
+}
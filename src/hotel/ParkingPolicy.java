@@ -0,0 +1,14 @@
+package hotel;
+
+/* policy choosing where an elevator left idle for a while goes waiting for new requests.
+ * It is told of every new request as soon as ElevatorsSW receives it, and asked only when
+ * an elevator has been idle for too long: it must not need any work at each time unit */
+public interface ParkingPolicy {
+
+	/* a new request has been received at the given time */
+	void requestArrived(int time, int start, int dest);
+
+	/* return the floor where the idle elevator has to park at the given time,
+	 * its current floor to leave it where it is */
+	int parkingFloor(ElevatorView e, int time);
+}
@@ -0,0 +1,70 @@
+package hotel;
+
+import java.util.ArrayList;
+
+/* parking at the floors expected to call next: the idle elevator goes to the floor
+ * with the most calls in the demand model at the current time of the day, among the floors
+ * no other elevator is parked at or heading to park at, the closest one among equal floors.
+ * Until the model has calls for the current time the elevators park as EndFloorParking does */
+public class PredictiveParking implements ParkingPolicy {
+
+	private Building building;
+	private DemandModel demand;
+	private ParkingPolicy fallback = new EndFloorParking();
+
+	public PredictiveParking( Building building ) {
+		this(building, new DemandModel(building.getMaxFloor(), building.getMinFloor()));
+	}
+
+	public PredictiveParking( Building building, DemandModel demand ) {
+		super();
+		this.building = building;
+		this.demand = demand;
+	}
+
+	public void requestArrived(int time, int start, int dest) {
+		demand.record(time, start, dest);
+	}
+
+	public int parkingFloor(ElevatorView e, int time) {
+		int best = e.getCurrentFloor();
+		double bestCalls = 0;
+		
+		for (int floor = e.getMinFloor(); floor <= e.getMaxFloor(); floor++) {
+			double calls = demand.expectedCalls(time, floor);
+			if ( calls <= 0 || calls < bestCalls ) continue;
+			if ( calls == bestCalls && Math.abs(floor - e.getCurrentFloor()) >= Math.abs(best - e.getCurrentFloor()) ) continue;
+			if ( isTaken(e, floor) ) continue;
+			best = floor;
+			bestCalls = calls;
+		}
+		
+		if ( bestCalls == 0 ) return fallback.parkingFloor(e, time);
+		return best;
+	}
+
+	/* return if another elevator is idle at the floor or has it as parking stop:
+	 * no requests to deliver and that floor as its only stop */
+	private boolean isTaken(ElevatorView e, int floor) {
+		ArrayList<Elevator> elevators = building.getElevators();
+		for (int i = 0; i < elevators.size(); i++) {
+			Elevator other = elevators.get(i);
+			if ( other.getElevatorId() == e.getElevatorId() || other.getLoad() > 0 ) continue;
+			if ( !other.hasStops() ){
+				if ( other.getCurrentFloor() == floor ) return true;
+			}else if ( other.countStops() == 1 && other.firstStop() == floor ){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public DemandModel getDemandModel() {
+		return demand;
+	}
+
+	/* replace the demand model, by the one of a restored simulation */
+	void setDemandModel(DemandModel demand) {
+		this.demand = demand;
+	}
+}
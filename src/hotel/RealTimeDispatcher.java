@@ -0,0 +1,175 @@
+package hotel;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/* real time front end of ElevatorsSW: calls arrive from any thread, a single dispatcher thread
+ * owns the building and runs one time unit of the simulation every tick of the wall clock.
+ *
+ * The calls are handed over through the lock-free queue of a CallIntake:
+ * call() never blocks and never waits for the dispatcher.
+ * At each tick the dispatcher takes the calls arrived so far, assigns them as Main does
+ * for the requests of a trace, then runs the time unit.
+ * The future of a call is completed by the dispatcher thread when an elevator is assigned,
+ * at once or when the call leaves the waiting list: dependent actions which are not quick
+ * should be attached with the async methods of CompletableFuture */
+public class RealTimeDispatcher {
+
+	/* default most calls taken from the queue at each tick, the others wait for the next one */
+	public static final int DEFAULT_MAX_CALLS_PER_TICK = 1 << 16;
+
+	private ElevatorsSW sw;
+	private long tickNanos;
+	private int maxCallsPerTick;
+	private CallIntake.Queue queue = new CallIntake.Queue();
+	private CallIntake intake;
+
+	private Thread thread;
+	private volatile boolean running;
+
+	private volatile long ticks;
+	private volatile long maxLagNanos;
+
+	public RealTimeDispatcher( ElevatorsSW sw, long tickNanos ) {
+		this(sw, tickNanos, DEFAULT_MAX_CALLS_PER_TICK);
+	}
+
+	public RealTimeDispatcher( ElevatorsSW sw, long tickNanos, int maxCallsPerTick ) {
+		super();
+		this.sw = sw;
+		this.tickNanos = tickNanos;
+		this.maxCallsPerTick = maxCallsPerTick;
+		this.intake = new CallIntake(sw, queue, null);
+	}
+
+	/* start the dispatcher thread: from now on sw must be used only through this dispatcher */
+	public synchronized void start() {
+		if ( thread != null ) throw new IllegalStateException("dispatcher already started");
+		intake.attach();
+		running = true;
+		thread = new Thread(new Runnable() {
+			public void run() {
+				dispatch();
+			}
+		}, "elevators-dispatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/* stop the dispatcher thread: the calls not assigned yet are cancelled */
+	public synchronized void stop() throws InterruptedException {
+		if ( thread == null ) return;
+		running = false;
+		LockSupport.unpark(thread);
+		thread.join();
+		intake.detach();
+
+		/* calls arrived while the dispatcher was stopping */
+		cancelQueued();
+		intake.failPending(new CancellationException("dispatcher stopped"));
+	}
+	
+	/* cancel the calls left in the queue once the dispatcher thread is over: called by stop,
+	 * by the dispatcher thread when a time unit fails, and by the producers whose call has been linked
+	 * after the queue has been emptied. Synchronized with stop, it never runs while the dispatcher thread is taking calls */
+	private synchronized void cancelQueued() {
+		queue.cancel(stopped());
+	}
+
+	/* return the exception of the calls refused or cancelled once the dispatcher is over:
+	 * the failure of the time unit which has stopped it, if any */
+	private Throwable stopped() {
+		Throwable failure = intake.getFailure();
+		return failure != null ? failure : new CancellationException("dispatcher stopped");
+	}
+
+	/* call an elevator from the start floor to the destination, from any thread.
+	 * The future gets the elevator assigned and the estimated time before it picks up the call */
+	public CompletableFuture<Assignment> call(int start, int dest) {
+		CallIntake.Call c = intake.newCall(start, dest);
+		if ( c.future.isDone() ) return c.future;
+		if ( !running ){
+			Throwable failure = intake.getFailure();
+			c.future.completeExceptionally(failure != null ? failure : new CancellationException("dispatcher not running"));
+			return c.future;
+		}
+		enqueue(c);
+		return c.future;
+	}
+
+	/* link a call to the queue as call does once it has found the dispatcher running */
+	CompletableFuture<Assignment> enqueue(int start, int dest) {
+		CallIntake.Call c = intake.newCall(start, dest);
+		enqueue(c);
+		return c.future;
+	}
+
+	/* link the call to the queue: call has found the dispatcher running, it may have stopped since */
+	private void enqueue(CallIntake.Call c) {
+		intake.enqueue(c);
+		/* stop may have emptied the queue before the call was linked: nobody else would cancel it */
+		if ( !running ) cancelQueued();
+	}
+
+	/* loop of the dispatcher thread */
+	private void dispatch() {
+		long start = System.nanoTime();
+		long tick = 0;
+
+		while ( running ){
+			/* assign the calls arrived so far at the current time */
+			CallIntake.Call c;
+			int taken = 0;
+			while ( taken < maxCallsPerTick && (c = queue.poll()) != null ){
+				intake.assign(c);
+				taken++;
+			}
+
+			long now = System.nanoTime();
+			long due = start + (tick + 1) * tickNanos;
+			if ( now < due ){
+				LockSupport.parkNanos(due - now);
+				continue;
+			}
+			/* run the time unit, late ticks are run one after the other until the clock is reached */
+			if ( now - due > maxLagNanos ) maxLagNanos = now - due;
+			try {
+				sw.nextSimulationStep();
+			} catch (RuntimeException e) {
+				/* the building is left in the middle of a time unit: the dispatcher stops, no call would be assigned */
+				intake.fail(e);
+				running = false;
+				cancelQueued();
+				return;
+			}
+			tick++;
+			ticks = tick;
+		}
+	}
+
+	/* return the failure of a time unit which has stopped the dispatcher, null if none */
+	public Throwable getFailure() {
+		return intake.getFailure();
+	}
+
+	/* return the number of calls received */
+	public long getCalls() {
+		return intake.getCalls();
+	}
+
+	/* return the number of calls assigned to an elevator */
+	public long getAssigned() {
+		return intake.getAssigned();
+	}
+
+	/* return the number of time units run */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/* return the most a time unit has been run after its tick */
+	public long getMaxLagNanos() {
+		return maxLagNanos;
+	}
+}
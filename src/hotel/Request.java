@@ -1,10 +1,12 @@
 package hotel;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 /* class of the request */
 public class Request{
 
-	private static int nextRequestId = 0;
-	
 	private int startFloor;
 	private int destinationFloor;
 	private boolean requestTaken;
@@ -13,16 +15,71 @@ public class Request{
 	private int timePickedUp;
 	private int timeArrival;
 	private int requestId;
+	/* next request of the same elevator stop */
+	Request nextInStop;
+	/* the request is in the waiting list: its neighbours in waiting order and at its start floor */
+	boolean waiting;
+	int waitingOrder;
+	Request prevWaiting;
+	Request nextWaiting;
+	Request prevAtFloor;
+	Request nextAtFloor;
+	/* the request has been given to the elevators software and is not delivered yet */
+	boolean inProgress;
+	/* the request comes from the pool of the elevators software and goes back to it once delivered */
+	boolean pooled;
 	
-	public Request(int startFloor, int destinationFloor, int timeRequest) {
+	/* the id identifies the request in its simulation, usually its position in the trace */
+	public Request(int requestId, int startFloor, int destinationFloor, int timeRequest) {
 		super();
 		this.startFloor = startFloor;
 		this.destinationFloor = destinationFloor;
 		this.setRequestSatisfied(false);
 		this.timeRequest = timeRequest;
-		this.requestId = nextRequestId++;
+		this.requestId = requestId;
+	}
+	
+	/* set the values of a new request, to reuse this one */
+	void reset(int requestId, int startFloor, int destinationFloor, int timeRequest) {
+		this.startFloor = startFloor;
+		this.destinationFloor = destinationFloor;
+		this.timeRequest = timeRequest;
+		this.requestId = requestId;
+		requestTaken = false;
+		requestSatisfied = false;
+		timePickedUp = 0;
+		timeArrival = 0;
+		nextInStop = null;
+		waiting = false;
+		waitingOrder = 0;
+		prevWaiting = null;
+		nextWaiting = null;
+		prevAtFloor = null;
+		nextAtFloor = null;
+		inProgress = false;
 	}
 	
+	/* write the values of a request not delivered yet */
+	void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(requestId);
+		out.writeInt(startFloor);
+		out.writeInt(destinationFloor);
+		out.writeInt(timeRequest);
+		out.writeInt(timePickedUp);
+		out.writeByte((requestTaken ? 1 : 0) | (requestSatisfied ? 2 : 0) | (inProgress ? 4 : 0));
+	}
+	
+	/* return a new request with the values written by writeState, owned by the elevators software */
+	static Request readState(DataInputStream in) throws IOException {
+		Request r = new Request(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+		r.timePickedUp = in.readInt();
+		int flags = in.readByte();
+		r.requestTaken = (flags & 1) != 0;
+		r.requestSatisfied = (flags & 2) != 0;
+		r.inProgress = (flags & 4) != 0;
+		r.pooled = true;
+		return r;
+	}
 	
 	public int getTimeArrival() {
 		return timeArrival;
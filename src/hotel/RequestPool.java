@@ -0,0 +1,42 @@
+package hotel;
+
+/* requests delivered and counted in the statistics, kept to be reused for the next ones,
+ * so that a long simulation does not allocate one object per request.
+ * The free requests are linked through Request.nextInStop, as the stops of an elevator */
+class RequestPool {
+
+	private Request free;
+	private int freeCount;
+	private long created;
+
+	/* return a request with the given values, reusing a delivered one if there is any */
+	Request acquire(int requestId, int start, int dest, int time) {
+		Request r = free;
+		if ( r == null ){
+			r = new Request(requestId, start, dest, time);
+			created++;
+		}else{
+			free = r.nextInStop;
+			freeCount--;
+			r.reset(requestId, start, dest, time);
+		}
+		r.pooled = true;
+		return r;
+	}
+
+	/* give back a request no elevator and no list refers to anymore */
+	void release(Request r) {
+		r.nextInStop = free;
+		free = r;
+		freeCount++;
+	}
+
+	/* return the number of request objects created, the most requests in progress at the same time */
+	long getCreated() {
+		return created;
+	}
+
+	int getFreeCount() {
+		return freeCount;
+	}
+}
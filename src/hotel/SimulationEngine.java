@@ -0,0 +1,12 @@
+package hotel;
+
+/* engine running the time units of an elevators software faster than calling
+ * nextSimulationStep at each of them, with the same results */
+public interface SimulationEngine {
+
+	/* run the simulation until the given time, as calling nextSimulationStep until getTime() reaches it */
+	void advanceTo(int time);
+
+	/* keep running the simulation until all requests are satisfied */
+	void runUntilSatisfied();
+}
@@ -0,0 +1,142 @@
+package hotel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/* state of a simulation at a given time, in a compact binary form: the time, the statistics
+ * of the requests delivered so far, each elevator with its stops and their requests,
+ * the requests waiting in waiting order, and the demand model of the predictive parking.
+ * The delivered requests are not kept.
+ *
+ * A snapshot never changes once taken: any number of simulations can be restored or forked
+ * from the same one, each of them copying only the requests in progress into its own objects,
+ * so that several variants of the dispatch start from the same point without replaying the trace.
+ * The dispatch strategy and the listener are not part of the state, nor the parking policy
+ * but for the demand model learnt by the predictive parking */
+public final class SimulationSnapshot {
+
+	private static final int MAGIC = 0x454c5353;
+	private static final int VERSION = 2;
+	/* bytes of the header: magic, version, time, floors, elevators, door time, capacity and parking */
+	private static final int HEADER_SIZE = 9 * 4;
+	/* parking of the header */
+	private static final int END_FLOOR_PARKING = 0;
+	private static final int PREDICTIVE_PARKING = 1;
+
+	private final byte[] data;
+	private final int time;
+	private final int maxFloor;
+	private final int minFloor;
+	private final int nbElevators;
+	private final int doorTime;
+	private final int capacity;
+	private final int parking;
+
+	private SimulationSnapshot( byte[] data ) {
+		super();
+		if ( data.length < HEADER_SIZE ) throw new IllegalArgumentException("not a simulation snapshot");
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+			if ( in.readInt() != MAGIC ) throw new IllegalArgumentException("not a simulation snapshot");
+			int version = in.readInt();
+			if ( version != VERSION ) throw new IllegalArgumentException("unsupported snapshot version " + version);
+			time = in.readInt();
+			maxFloor = in.readInt();
+			minFloor = in.readInt();
+			nbElevators = in.readInt();
+			doorTime = in.readInt();
+			capacity = in.readInt();
+			parking = in.readInt();
+		} catch (IOException e) {
+			throw new IllegalArgumentException("not a simulation snapshot", e);
+		}
+		this.data = data;
+	}
+
+	/* take the snapshot of the current state of the elevators software */
+	static SimulationSnapshot capture(ElevatorsSW sw) {
+		Building b = sw.getBuilding();
+		Elevator first = b.getElevators().isEmpty() ? null : b.getElevators().get(0);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(sw.getTime());
+			out.writeInt(b.MAX_FLOOR);
+			out.writeInt(b.MIN_FLOOR);
+			out.writeInt(b.getElevators().size());
+			out.writeInt(first == null ? 0 : first.OPENING_DOOR_TIME);
+			out.writeInt(first == null ? Elevator.UNLIMITED_CAPACITY : first.CAPACITY);
+			out.writeInt(b.getParkingPolicy() instanceof PredictiveParking ? PREDICTIVE_PARKING : END_FLOOR_PARKING);
+			sw.writeState(out);
+			out.flush();
+		} catch (IOException e) {
+			/* never thrown writing to memory */
+			throw new IllegalStateException(e);
+		}
+		return new SimulationSnapshot(bytes.toByteArray());
+	}
+
+	/* replace the state of the elevators software with this one */
+	void restore(ElevatorsSW sw) {
+		Building b = sw.getBuilding();
+		if ( b.MAX_FLOOR != maxFloor || b.MIN_FLOOR != minFloor || b.getElevators().size() != nbElevators ){
+			throw new IllegalArgumentException("snapshot of a building with floors " + minFloor + " to " + maxFloor + " and " + nbElevators + " elevators");
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, HEADER_SIZE, data.length - HEADER_SIZE));
+		try {
+			sw.readState(in);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("corrupted simulation snapshot", e);
+		}
+	}
+
+	/* return a new simulation in the state of the snapshot, in a new building of the same shape
+	 * using the default dispatch strategy, and the predictive parking with its demand model
+	 * if the snapshot was taken with it, the default parking policy otherwise */
+	public ElevatorsSW fork() {
+		Building b = new Building(maxFloor, minFloor, nbElevators, doorTime, capacity);
+		if ( parking == PREDICTIVE_PARKING ) b.setParkingPolicy(new PredictiveParking(b));
+		ElevatorsSW sw = new ElevatorsSW(b);
+		restore(sw);
+		return sw;
+	}
+
+	/* return the time of the simulation when the snapshot was taken */
+	public int getTime() {
+		return time;
+	}
+
+	/* return the size of the snapshot in bytes */
+	public int size() {
+		return data.length;
+	}
+
+	/* write the snapshot, to be read back by readFrom */
+	public void writeTo(OutputStream out) throws IOException {
+		DataOutputStream dataOut = new DataOutputStream(out);
+		dataOut.writeInt(data.length);
+		dataOut.write(data);
+		dataOut.flush();
+	}
+
+	/* read a snapshot written by writeTo */
+	public static SimulationSnapshot readFrom(InputStream in) throws IOException {
+		DataInputStream dataIn = new DataInputStream(in);
+		int length = dataIn.readInt();
+		if ( length < HEADER_SIZE ) throw new IOException("not a simulation snapshot");
+		byte[] data = new byte[length];
+		dataIn.readFully(data);
+		try {
+			return new SimulationSnapshot(data);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+}
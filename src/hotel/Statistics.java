@@ -0,0 +1,57 @@
+package hotel;
+
+/* statistics of the requests satisfied during a simulation */
+public class Statistics {
+
+	/* percentiles reported for the time before being picked up and the delay after */
+	public static final double[] PERCENTILES = { 50, 95, 99, 99.9 };
+
+	private double averageTimeToBePicked;
+	private double averageDelayAfterPick;
+	private double standardDeviation;
+	private long requests;
+	private int[] pickupWaitPercentiles;
+	private int[] rideDelayPercentiles;
+
+	Statistics(double averageTimeToBePicked, double averageDelayAfterPick, double standardDeviation, long requests,
+			int[] pickupWaitPercentiles, int[] rideDelayPercentiles) {
+		super();
+		this.averageTimeToBePicked = averageTimeToBePicked;
+		this.averageDelayAfterPick = averageDelayAfterPick;
+		this.standardDeviation = standardDeviation;
+		this.requests = requests;
+		this.pickupWaitPercentiles = pickupWaitPercentiles;
+		this.rideDelayPercentiles = rideDelayPercentiles;
+	}
+
+	public double getAverageTimeToBePicked() {
+		return averageTimeToBePicked;
+	}
+
+	public double getAverageDelayAfterPick() {
+		return averageDelayAfterPick;
+	}
+
+	public double getAverageWaitTime() {
+		return averageTimeToBePicked + averageDelayAfterPick;
+	}
+
+	/* standard deviation of the wait time (time before being picked up plus delay after) of the requests */
+	public double getStandardDeviation() {
+		return standardDeviation;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	/* time before being picked up at each of the PERCENTILES */
+	public int[] getPickupWaitPercentiles() {
+		return pickupWaitPercentiles.clone();
+	}
+
+	/* delay after being picked up at each of the PERCENTILES */
+	public int[] getRideDelayPercentiles() {
+		return rideDelayPercentiles.clone();
+	}
+}
@@ -0,0 +1,74 @@
+package hotel;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/* statistics of the delivered requests, updated as each one is delivered
+ * so that the requests do not have to be kept until the end of the simulation */
+class StatisticsCollector {
+
+	/* running mean and variance (Welford) of the time before being picked up,
+	 * of the delay after being picked up and of their sum */
+	private long count;
+	private double meanPickupWait;
+	private double meanRideDelay;
+	private double meanWait;
+	private double m2Wait;
+
+	private LatencyHistogram pickupWaits = new LatencyHistogram();
+	private LatencyHistogram rideDelays = new LatencyHistogram();
+
+	/* add a delivered request to the statistics */
+	void record(Request r, int doorTime) {
+		int pickupWait = r.getTimePickedUp() - r.getTimeRequest();
+		/* delay compared to a direct trip: one time unit per floor plus the one to leave and the door at the start,
+		 * none for a request ending where it starts, delivered when picked up */
+		int directTrip = r.getDestination() == r.getStart() ? 0 : Math.abs(r.getDestination() - r.getStart()) + 1 + doorTime;
+		int rideDelay = r.getTimeArrival() - r.getTimePickedUp() - directTrip;
+		int wait = pickupWait + rideDelay;
+
+		count++;
+		meanPickupWait += (pickupWait - meanPickupWait) / count;
+		meanRideDelay += (rideDelay - meanRideDelay) / count;
+		double delta = wait - meanWait;
+		meanWait += delta / count;
+		m2Wait += delta * (wait - meanWait);
+
+		pickupWaits.record(pickupWait);
+		rideDelays.record(rideDelay);
+	}
+
+	void writeState(DataOutputStream out) throws IOException {
+		out.writeLong(count);
+		out.writeDouble(meanPickupWait);
+		out.writeDouble(meanRideDelay);
+		out.writeDouble(meanWait);
+		out.writeDouble(m2Wait);
+		pickupWaits.writeState(out);
+		rideDelays.writeState(out);
+	}
+
+	/* replace the statistics with the ones written by writeState */
+	void readState(DataInputStream in) throws IOException {
+		count = in.readLong();
+		meanPickupWait = in.readDouble();
+		meanRideDelay = in.readDouble();
+		meanWait = in.readDouble();
+		m2Wait = in.readDouble();
+		pickupWaits.readState(in);
+		rideDelays.readState(in);
+	}
+
+	Statistics getStatistics() {
+		int[] pickupPercentiles = new int[Statistics.PERCENTILES.length];
+		int[] ridePercentiles = new int[Statistics.PERCENTILES.length];
+		for (int i = 0; i < Statistics.PERCENTILES.length; i++) {
+			pickupPercentiles[i] = pickupWaits.getValueAtPercentile(Statistics.PERCENTILES[i]);
+			ridePercentiles[i] = rideDelays.getValueAtPercentile(Statistics.PERCENTILES[i]);
+		}
+		double standardDeviation = count > 0 ? Math.sqrt(m2Wait / count) : 0;
+
+		return new Statistics(meanPickupWait, meanRideDelay, standardDeviation, count, pickupPercentiles, ridePercentiles);
+	}
+}
@@ -0,0 +1,161 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/* requests waiting to be assigned, in waiting order, also indexed by start floor and direction
+ * so that the requests moving elevators can take are found without going through the others.
+ * The requests are linked through their own fields: nothing is allocated per request */
+class WaitingList {
+
+	private final int minFloor;
+	private final int maxFloor;
+
+	/* all the requests in waiting order, linked through Request.nextWaiting */
+	private Request first;
+	private Request last;
+	private int size;
+	private int nextOrder;
+
+	/* requests going up and going down of each start floor in waiting order,
+	 * linked through Request.nextAtFloor, and the floors having some */
+	private final Request[] upHead;
+	private final Request[] upTail;
+	private final Request[] downHead;
+	private final Request[] downTail;
+	private final FloorSet upFloors;
+	private final FloorSet downFloors;
+
+	WaitingList(int maxFloor, int minFloor) {
+		this.minFloor = minFloor;
+		this.maxFloor = maxFloor;
+		int floors = maxFloor - minFloor + 1;
+		upHead = new Request[floors];
+		upTail = new Request[floors];
+		downHead = new Request[floors];
+		downTail = new Request[floors];
+		upFloors = new FloorSet(maxFloor, minFloor);
+		downFloors = new FloorSet(maxFloor, minFloor);
+	}
+
+	void add(Request r) {
+		r.waiting = true;
+		r.waitingOrder = nextOrder++;
+		r.prevWaiting = last;
+		r.nextWaiting = null;
+		if ( last == null ){
+			first = r;
+		}else{
+			last.nextWaiting = r;
+		}
+		last = r;
+		size++;
+
+		int start = r.getStart();
+		if ( start < minFloor || start > maxFloor ) return;
+		int i = start - minFloor;
+		if ( r.getDestination() > start ){
+			append(r, upHead, upTail, i);
+			upFloors.add(start);
+		}else if ( r.getDestination() < start ){
+			append(r, downHead, downTail, i);
+			downFloors.add(start);
+		}
+	}
+
+	void remove(Request r) {
+		if ( r.prevWaiting == null ){
+			first = r.nextWaiting;
+		}else{
+			r.prevWaiting.nextWaiting = r.nextWaiting;
+		}
+		if ( r.nextWaiting == null ){
+			last = r.prevWaiting;
+		}else{
+			r.nextWaiting.prevWaiting = r.prevWaiting;
+		}
+		r.prevWaiting = null;
+		r.nextWaiting = null;
+		r.waiting = false;
+		size--;
+
+		int start = r.getStart();
+		if ( start < minFloor || start > maxFloor ) return;
+		int i = start - minFloor;
+		if ( r.getDestination() > start ){
+			if ( unlink(r, upHead, upTail, i) ) upFloors.remove(start);
+		}else if ( r.getDestination() < start ){
+			if ( unlink(r, downHead, downTail, i) ) downFloors.remove(start);
+		}
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/* return the request waiting for the longest time, the others follow through Request.nextWaiting */
+	Request first() {
+		return first;
+	}
+
+	/* add to candidates, in waiting order, the requests going up from the given floor or above
+	 * and the requests going down from the other given floor or below */
+	void collect(int lowestGoingUp, int highestGoingDown, ArrayList<Request> candidates) {
+		if ( !upFloors.isEmpty() && upFloors.last() >= lowestGoingUp ){
+			int floor = upFloors.higher(lowestGoingUp - 1);
+			while ( true ){
+				for (Request r = upHead[floor - minFloor]; r != null; r = r.nextAtFloor) candidates.add(r);
+				if ( floor == upFloors.last() ) break;
+				floor = upFloors.higher(floor);
+			}
+		}
+		if ( !downFloors.isEmpty() && downFloors.first() <= highestGoingDown ){
+			int floor = downFloors.lower(highestGoingDown + 1);
+			while ( true ){
+				for (Request r = downHead[floor - minFloor]; r != null; r = r.nextAtFloor) candidates.add(r);
+				if ( floor == downFloors.first() ) break;
+				floor = downFloors.lower(floor);
+			}
+		}
+		Collections.sort(candidates, WAITING_ORDER);
+	}
+
+	private static final Comparator<Request> WAITING_ORDER = new Comparator<Request>() {
+		public int compare(Request a, Request b) {
+			return a.waitingOrder < b.waitingOrder ? -1 : (a.waitingOrder == b.waitingOrder ? 0 : 1);
+		}
+	};
+
+	private static void append(Request r, Request[] head, Request[] tail, int i) {
+		r.prevAtFloor = tail[i];
+		r.nextAtFloor = null;
+		if ( tail[i] == null ){
+			head[i] = r;
+		}else{
+			tail[i].nextAtFloor = r;
+		}
+		tail[i] = r;
+	}
+
+	/* return true if the list of the floor is left empty */
+	private static boolean unlink(Request r, Request[] head, Request[] tail, int i) {
+		if ( r.prevAtFloor == null ){
+			head[i] = r.nextAtFloor;
+		}else{
+			r.prevAtFloor.nextAtFloor = r.nextAtFloor;
+		}
+		if ( r.nextAtFloor == null ){
+			tail[i] = r.prevAtFloor;
+		}else{
+			r.nextAtFloor.prevAtFloor = r.prevAtFloor;
+		}
+		r.prevAtFloor = null;
+		r.nextAtFloor = null;
+		return head[i] == null;
+	}
+}
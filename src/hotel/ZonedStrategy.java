@@ -0,0 +1,34 @@
+package hotel;
+
+/* sectored dispatch: the floors are divided in as many sectors of consecutive floors as elevators
+ * and each elevator serves first the requests whose upper floor, the start or the destination,
+ * is in its sector. An elevator takes the requests of other sectors only when the elevators
+ * of their sectors cannot, otherwise the delays are the ones of the greedy strategy */
+public class ZonedStrategy implements DispatchStrategy {
+
+	/* cost added to the requests of other sectors, higher than any delay */
+	private static final int OUT_OF_SECTOR = 1 << 24;
+
+	private GreedyDelayStrategy greedy = new GreedyDelayStrategy();
+	private int sectors;
+
+	public ZonedStrategy( int sectors ) {
+		super();
+		this.sectors = Math.max(1, sectors);
+	}
+
+	public int cost(ElevatorView e, int start, int dest, int passengers) {
+		int delay = greedy.cost(e, start, dest, passengers);
+		if ( delay < 0 ) return -1;
+
+		int floors = e.getMaxFloor() - e.getMinFloor() + 1;
+		int upper = Math.max(start, dest) - e.getMinFloor();
+		int sector = (int) ((long) upper * sectors / floors);
+		if ( sector != e.getElevatorId() % sectors ) delay += OUT_OF_SECTOR;
+		return delay;
+	}
+
+	public boolean movingTakesOnlyAhead() {
+		return true;
+	}
+}
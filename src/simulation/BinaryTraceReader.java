@@ -0,0 +1,172 @@
+package simulation;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/* reader of the binary traffic files written by TraceConverter.
+ *
+ * Format, big endian:
+ *   header:  magic "ELVT", version (1 byte), bytes per floor (1 byte), min floor (int), max floor (int)
+ *   records: time elapsed since the previous request (unsigned varint),
+ *            start floor and destination floor minus the min floor (1 or 2 bytes each)
+ *
+ * The file is memory mapped one chunk at a time like MappedTraceReader */
+public class BinaryTraceReader implements TraceReader {
+
+	public static final int MAGIC = 0x454C5654;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 14;
+
+	/* varint of an int and two floors of two bytes */
+	private static final int MAX_RECORD_SIZE = 5 + 2 + 2;
+
+	private FileInputStream file;
+	private FileChannel channel;
+	private long size;
+	private int chunkSize;
+
+	private MappedByteBuffer buffer;
+	/* offset in the file of the first byte of the buffer */
+	private long bufferStart;
+
+	private int floorBytes;
+	private int minFloor;
+	private int maxFloor;
+
+	private int time;
+	private int startFloor;
+	private int destinationFloor;
+
+	public BinaryTraceReader(String fileName) throws IOException {
+		this(fileName, MappedTraceReader.DEFAULT_CHUNK_SIZE);
+	}
+
+	public BinaryTraceReader(String fileName, int chunkSize) throws IOException {
+		this(fileName, HEADER_SIZE, -1, 0, chunkSize);
+	}
+
+	/* reader of the records from the offset from, the start of a record, to the offset to,
+	 * the start of a record or -1 for the end of the file. The times of the records being
+	 * relative to the previous one, previousTime is the time of the record before from */
+	public BinaryTraceReader(String fileName, long from, long to, int previousTime) throws IOException {
+		this(fileName, from, to, previousTime, MappedTraceReader.DEFAULT_CHUNK_SIZE);
+	}
+
+	public BinaryTraceReader(String fileName, long from, long to, int previousTime, int chunkSize) throws IOException {
+		super();
+		this.chunkSize = Math.max(chunkSize, MAX_RECORD_SIZE);
+		file = new FileInputStream(fileName);
+		channel = file.getChannel();
+		size = to < 0 ? channel.size() : Math.min(to, channel.size());
+		readHeader();
+		bufferStart = Math.max(from, HEADER_SIZE);
+		time = previousTime;
+	}
+
+	/* return true if the file starts with the magic number of the binary traces */
+	public static boolean isBinaryTrace(String fileName) throws IOException {
+		DataInputStream input = new DataInputStream(new FileInputStream(fileName));
+		try {
+			return input.available() >= 4 && input.readInt() == MAGIC;
+		} finally {
+			input.close();
+		}
+	}
+
+	public boolean next() throws IOException {
+		if ( buffer == null || (buffer.remaining() < MAX_RECORD_SIZE && bufferStart + buffer.limit() < size) ){
+			/* the record may go on after the current chunk: map the next one from the record */
+			if ( !mapNextChunk() ) return false;
+		}
+		if ( !buffer.hasRemaining() ) return false;
+
+		int position = buffer.position();
+		try {
+			time += readVarint();
+			startFloor = readFloor();
+			destinationFloor = readFloor();
+		} catch (BufferUnderflowException e) {
+			throw new IOException("truncated record at offset " + (bufferStart + position));
+		}
+		return true;
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getStart() {
+		return startFloor;
+	}
+
+	public int getDestination() {
+		return destinationFloor;
+	}
+
+	/* offset in the file of the next record to be read */
+	public long getPosition() {
+		return buffer == null ? bufferStart : bufferStart + buffer.position();
+	}
+
+	public int getMinFloor() {
+		return minFloor;
+	}
+
+	public int getMaxFloor() {
+		return maxFloor;
+	}
+
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+		file.close();
+	}
+
+	private void readHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while ( header.hasRemaining() && channel.read(header) >= 0 );
+		header.flip();
+
+		if ( header.remaining() < HEADER_SIZE || header.getInt() != MAGIC ) throw new IOException("not a binary trace");
+		int version = header.get() & 0xFF;
+		if ( version != VERSION ) throw new IOException("unsupported binary trace version " + version);
+		floorBytes = header.get() & 0xFF;
+		if ( floorBytes != 1 && floorBytes != 2 ) throw new IOException("invalid floor size " + floorBytes);
+		minFloor = header.getInt();
+		maxFloor = header.getInt();
+	}
+
+	/* map the chunk starting at the first byte not read yet
+	 * return false if the whole file has been read */
+	private boolean mapNextChunk() throws IOException {
+		long position = buffer == null ? bufferStart : bufferStart + buffer.position();
+		if ( position >= size ) return false;
+
+		bufferStart = position;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position));
+		return true;
+	}
+
+	private int readVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if ( b >= 0 ) return value;
+		}
+		throw new IOException("malformed time at offset " + (bufferStart + buffer.position()));
+	}
+
+	private int readFloor() {
+		if ( floorBytes == 1 ){
+			return minFloor + (buffer.get() & 0xFF);
+		}else{
+			return minFloor + (buffer.getShort() & 0xFFFF);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package simulation;
+
+import hotel.Building;
+import hotel.DispatcherHost;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/* stress test of the DispatcherHost: many buildings run by a few workers, called at random at
+ * a given rate per building and time unit. Every report interval the time units run per second are
+ * printed with the lag of the buildings, to see from how many buildings the workers fall behind.
+ *
+ * usage: HostStress [-buildings n] [-workers n] [-tickMicros n] [-floors n] [-elevators n]
+ *                   [-rate callsPerTimeUnit] [-seconds n] [-report seconds] [-seed n] */
+public class HostStress {
+
+	public static void main(String[] args) throws InterruptedException {
+		int buildings = 1000;
+		int nbWorkers = Runtime.getRuntime().availableProcessors();
+		int tickMicros = 1000;
+		int floors = 30;
+		int nbElevators = 4;
+		double rate = 0.05;
+		int seconds = 10;
+		int report = 1;
+		long seed = 1;
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			if ( args[i].equals("-buildings") ){
+				buildings = Integer.parseInt(value);
+			}else if ( args[i].equals("-workers") ){
+				nbWorkers = Integer.parseInt(value);
+			}else if ( args[i].equals("-tickMicros") ){
+				tickMicros = Integer.parseInt(value);
+			}else if ( args[i].equals("-floors") ){
+				floors = Integer.parseInt(value);
+			}else if ( args[i].equals("-elevators") ){
+				nbElevators = Integer.parseInt(value);
+			}else if ( args[i].equals("-rate") ){
+				rate = Double.parseDouble(value);
+			}else if ( args[i].equals("-seconds") ){
+				seconds = Integer.parseInt(value);
+			}else if ( args[i].equals("-report") ){
+				report = Integer.parseInt(value);
+			}else if ( args[i].equals("-seed") ){
+				seed = Long.parseLong(value);
+			}else{
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+			}
+		}
+		if ( args.length % 2 != 0 ) throw new IllegalArgumentException("unknown argument " + args[args.length - 1]);
+
+		long tickNanos = tickMicros * 1000L;
+		DispatcherHost host = new DispatcherHost(nbWorkers, tickNanos);
+		for (int b = 0; b < buildings; b++) {
+			host.addBuilding(new Building(floors, 0, nbElevators, 10));
+		}
+
+		SplittableRandom random = new SplittableRandom(seed);
+		/* mean nanoseconds between two calls to any of the buildings */
+		double interval = tickNanos / (rate * buildings);
+		long calls = 0;
+		long lastSteps = 0;
+
+		System.out.println("seconds\tcalls\tstepsPerSecond\tmaxLagMicros\tlagging");
+		host.start();
+		long start = System.nanoTime();
+		long end = start + seconds * 1000000000L;
+		long nextReport = start + report * 1000000000L;
+		double nextCall = start;
+		long now;
+		while ( (now = System.nanoTime()) < end ){
+			/* calls due by now, arriving as a Poisson process */
+			while ( nextCall <= now ){
+				int from = random.nextInt(floors + 1);
+				int to = random.nextInt(floors);
+				if ( to >= from ) to++;
+				host.call(random.nextInt(buildings), from, to);
+				calls++;
+				nextCall += -Math.log(1 - random.nextDouble()) * interval;
+			}
+			if ( now >= nextReport ){
+				long steps = host.getTotalSteps();
+				long maxLag = 0;
+				for (int b = 0; b < buildings; b++) maxLag = Math.max(maxLag, host.getLagNanos(b));
+				System.out.println((now - start) / 1000000000L + "\t" + calls + "\t" + (steps - lastSteps) / report
+						+ "\t" + maxLag / 1000 + "\t" + host.countLagging(tickNanos));
+				lastSteps = steps;
+				nextReport += report * 1000000000L;
+			}
+			LockSupport.parkNanos(100000);
+		}
+		host.stop();
+
+		long assigned = 0;
+		long maxLag = 0;
+		for (int b = 0; b < buildings; b++) {
+			assigned += host.getAssigned(b);
+			maxLag = Math.max(maxLag, host.getMaxLagNanos(b));
+		}
+		System.out.println(buildings + " buildings on " + nbWorkers + " workers: " + calls + " calls, " + assigned + " assigned, "
+				+ host.getTotalSteps() + " time units run, max tick lag " + maxLag / 1000 + " us");
+	}
+}
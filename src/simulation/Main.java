@@ -1,60 +1,309 @@
 package simulation;
 
+import hotel.BatchAssigner;
+import hotel.BatchDispatcher;
 import hotel.Building;
+import hotel.DestinationDispatcher;
+import hotel.DispatchMetrics;
+import hotel.DispatchStrategies;
+import hotel.Elevator;
 import hotel.ElevatorsSW;
+import hotel.EventDrivenEngine;
+import hotel.EventJournal;
+import hotel.MultiBankBuilding;
+import hotel.PredictiveParking;
 import hotel.Request;
+import hotel.SimulationEngine;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.StringTokenizer;
+import java.util.ArrayList;
+
+import javax.management.JMException;
 
 public class Main {
 
 	public static void main(String[] args) {
 		String fileName = args[0];
-		String line = null;
-		int time, startFloor, destFloor;
+		/* with -events the simulation jumps between events instead of running every time unit */
+		boolean eventDriven = false;
+		/* with -parallel n the candidates are scored in parallel in buildings of at least n elevators */
+		int parallelThreshold = Integer.MAX_VALUE;
+		/* with -batch the requests arriving at the same time are assigned jointly,
+		 * with -batch greedy one by one to compare the cost of the batches */
+		boolean batchDispatch = false;
+		boolean jointBatch = true;
+		/* with -destination [zone size] the requests of the same time unit from the same floor
+		 * to the same zone are grouped in one elevator */
+		int zoneSize = 0;
+		/* with -capacity n an elevator takes at most n requests at the same time */
+		int capacity = Elevator.UNLIMITED_CAPACITY;
+		/* with -strategy name the elevators are chosen by another dispatch strategy */
+		String strategy = null;
+		/* with -metrics the dispatcher is measured and its metrics are published through JMX,
+		 * the ones of each bank with -banks */
+		boolean metrics = false;
+		/* with -parking predictive the idle elevators park at the floors expected to call next */
+		boolean predictiveParking = false;
+		/* with -banks min-max:n,.. the elevators are split in banks serving their own floors,
+		 * the trips crossing banks change elevators at a floor both banks serve */
+		String banks = null;
+		/* with -threads n the banks are run on n threads */
+		int threads = 1;
+		/* with -transfer t the second leg of a trip is called t time units after the first is delivered */
+		int transferTime = MultiBankBuilding.DEFAULT_TRANSFER_TIME;
+		/* with -journal dir the decisions are journaled in the directory */
+		String journalDir = null;
+		/* with -recover dir the simulation starts again from the journal of the directory,
+		 * skipping the requests of the trace before the time recovered, and goes on journaling */
+		boolean recover = false;
+		/* with -commit t the journal commits every t time units, with -checkpoint t it takes a checkpoint every t time units */
+		int commitInterval = EventJournal.DEFAULT_COMMIT_INTERVAL;
+		int checkpointInterval = EventJournal.DEFAULT_CHECKPOINT_INTERVAL;
+		/* with -from t and -to t only the requests from time t included to time t excluded are replayed,
+		 * the trace being read from the offset of the time in its index, built or brought up to date first */
+		int from = Integer.MIN_VALUE;
+		int to = Integer.MAX_VALUE;
+		
+		for (int i = 1; i < args.length; i++) {
+			if ( args[i].equals("-events") ){
+				eventDriven = true;
+			}else if ( args[i].equals("-parallel") && i + 1 < args.length ){
+				parallelThreshold = Integer.parseInt(args[++i]);
+			}else if ( args[i].equals("-batch") ){
+				batchDispatch = true;
+				if ( i + 1 < args.length && args[i + 1].equals("greedy") ){
+					jointBatch = false;
+					i++;
+				}
+			}else if ( args[i].equals("-destination") ){
+				zoneSize = DestinationDispatcher.DEFAULT_ZONE_SIZE;
+				if ( i + 1 < args.length && args[i + 1].matches("\\d+") ) zoneSize = Integer.parseInt(args[++i]);
+			}else if ( args[i].equals("-capacity") && i + 1 < args.length ){
+				capacity = Integer.parseInt(args[++i]);
+			}else if ( args[i].equals("-strategy") && i + 1 < args.length ){
+				strategy = args[++i];
+			}else if ( args[i].equals("-metrics") ){
+				metrics = true;
+			}else if ( args[i].equals("-banks") && i + 1 < args.length ){
+				banks = args[++i];
+			}else if ( args[i].equals("-threads") && i + 1 < args.length ){
+				threads = Integer.parseInt(args[++i]);
+			}else if ( args[i].equals("-transfer") && i + 1 < args.length ){
+				transferTime = Integer.parseInt(args[++i]);
+			}else if ( args[i].equals("-journal") && i + 1 < args.length ){
+				journalDir = args[++i];
+			}else if ( args[i].equals("-recover") && i + 1 < args.length ){
+				journalDir = args[++i];
+				recover = true;
+			}else if ( args[i].equals("-commit") && i + 1 < args.length ){
+				commitInterval = Integer.parseInt(args[++i]);
+			}else if ( args[i].equals("-checkpoint") && i + 1 < args.length ){
+				checkpointInterval = Integer.parseInt(args[++i]);
+			}else if ( args[i].equals("-from") && i + 1 < args.length ){
+				from = Integer.parseInt(args[++i]);
+			}else if ( args[i].equals("-to") && i + 1 < args.length ){
+				to = Integer.parseInt(args[++i]);
+			}else if ( args[i].equals("-parking") && i + 1 < args.length ){
+				String parking = args[++i];
+				if ( parking.equals("predictive") ){
+					predictiveParking = true;
+				}else if ( !parking.equals("ends") ){
+					throw new IllegalArgumentException("unknown parking policy " + parking);
+				}
+			}
+		}
+
+		if ( banks != null ){
+			MultiBankBuilding site = newMultiBankBuilding(banks, transferTime, capacity, strategy, predictiveParking);
+			site.setEventDriven(eventDriven);
+			site.setThreads(threads);
+			DispatchMetrics[] bankMetrics = new DispatchMetrics[metrics ? site.getBankCount() : 0];
+			try {
+				for (int i = 0; i < bankMetrics.length; i++) {
+					bankMetrics[i] = new DispatchMetrics();
+					bankMetrics[i].register("bank-" + i);
+					site.setListener(i, bankMetrics[i]);
+				}
+				TraceReader input = openTrace(fileName, from, to);
+				simulate(input, site);
+				input.close();
+				site.printStatistics();
+				for (int i = 0; i < bankMetrics.length; i++) {
+					System.out.println("bank " + i + " dispatcher:");
+					bankMetrics[i].printStatistics();
+					bankMetrics[i].unregister();
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			} catch (JMException e) {
+				e.printStackTrace();
+			} finally {
+				site.shutdown();
+			}
+			return;
+		}
 
 		/* initialize hotel: max floor 100
 		 * 					 min floor 0
 		 * 					 4 elevators
 		 * 					 10 seconds to open the door  */
-		Building DrumpGalactic = new Building(100, 0, 4, 10);
+		Building DrumpGalactic = new Building(100, 0, 4, 10, capacity);
+		if ( strategy != null ) DrumpGalactic.setDispatchStrategy(DispatchStrategies.forName(strategy, DrumpGalactic));
+		if ( predictiveParking ) DrumpGalactic.setParkingPolicy(new PredictiveParking(DrumpGalactic));
 		ElevatorsSW sw = new ElevatorsSW(DrumpGalactic);
+		if ( parallelThreshold != Integer.MAX_VALUE ) sw.setParallelDispatch(parallelThreshold);
+		BatchAssigner batch = null;
+		if ( zoneSize > 0 ){
+			batch = new DestinationDispatcher(sw, zoneSize);
+		}else if ( batchDispatch ){
+			batch = new BatchDispatcher(sw, jointBatch);
+		}
+		DispatchMetrics dispatchMetrics = null;
+		EventJournal journal = null;
 		
 		try {
 			
-			BufferedReader input =  new BufferedReader(new FileReader(fileName));
-			while (( line = input.readLine() ) != null){
-				/* Read and parse input */
-				StringTokenizer tok = new StringTokenizer(line,",");
-				time = Integer.valueOf(tok.nextToken());
-				startFloor = Integer.valueOf(tok.nextToken());
-				destFloor = Integer.valueOf(tok.nextToken());
-				
-				/* if input moved to next time slice run next simulation step */
-				while ( time > sw.getTime() ) sw.nextSimulationStep();
-				
-				Request request = new Request(startFloor, destFloor, time);
-				//System.out.println("New request: "+request.getTimeRequest()+","+request.getStart()+","+request.getDestination());
-				
-				/* assign the request to an elevator if possible */
-				sw.assignElevator(request);
+			if ( metrics ){
+				dispatchMetrics = new DispatchMetrics();
+				dispatchMetrics.register("main");
+				sw.setListener(dispatchMetrics);
 			}
+			int resumeTime = Integer.MIN_VALUE;
+			if ( recover ){
+				long start = System.nanoTime();
+				journal = EventJournal.recover(new File(journalDir), sw, EventJournal.DEFAULT_SEGMENT_SIZE, commitInterval, checkpointInterval);
+				resumeTime = sw.getTime();
+				System.out.println("recovered time " + resumeTime + " from the checkpoint of time " + journal.getLastCheckpoint()
+						+ " replaying " + journal.getEvents() + " events in " + (System.nanoTime() - start) / 1000000 + " ms");
+			}else if ( journalDir != null ){
+				journal = EventJournal.create(new File(journalDir), sw, EventJournal.DEFAULT_SEGMENT_SIZE, commitInterval, checkpointInterval);
+			}
+			TraceReader input = openTrace(fileName, from, to);
+			SimulationEngine engine = null;
+			if ( eventDriven ) engine = new EventDrivenEngine(sw);
+			simulate(input, sw, engine, batch, resumeTime);
 			input.close();
-			
-			/* keep running the simulation until all requests are satisfied */
-			while ( sw.elaboratingRequests() ) sw.nextSimulationStep();
+			if ( journal != null ) journal.close();
 		
 			/* print statistics in output */
 			sw.printStatistics();
+			if ( batch != null ) batch.printStatistics();
+			if ( dispatchMetrics != null ){
+				dispatchMetrics.printStatistics();
+				dispatchMetrics.unregister();
+			}
+			if ( journal != null ){
+				System.out.println("journal: " + journal.getEvents() + " events, " + journal.getCommits() + " commits, "
+						+ journal.getFlushes() + " flushes, " + journal.getFlushNanos() / 1000000 + " ms flushing off the simulation thread");
+			}
 			
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (IOException e) {
 			e.printStackTrace();
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/* feed the requests of the trace to the elevators software,
+	 * then keep running the simulation until all requests are satisfied.
+	 * With a batch assigner the requests of the same time unit are assigned together */
+	static void simulate(TraceReader input, ElevatorsSW sw, SimulationEngine engine, BatchAssigner batch) throws IOException {
+		simulate(input, sw, engine, batch, Integer.MIN_VALUE);
+	}
+	
+	/* as above, skipping the requests of the trace before resumeTime:
+	 * sw has already been given them before its state was saved */
+	static void simulate(TraceReader input, ElevatorsSW sw, SimulationEngine engine, BatchAssigner batch, int resumeTime) throws IOException {
+		int time, startFloor, destFloor;
+		int requestId = 0;
+		ArrayList<Request> sameTimeRequests = new ArrayList<Request>();
+		
+		while ( input.next() ){
+			/* Read and parse input */
+			time = input.getTime();
+			startFloor = input.getStart();
+			destFloor = input.getDestination();
+			
+			if ( time < resumeTime ){
+				requestId++;
+				continue;
+			}
+			
+			/* the batch of the previous time unit is complete */
+			if ( !sameTimeRequests.isEmpty() && time > sw.getTime() ){
+				batch.assignBatch(sameTimeRequests);
+				sameTimeRequests.clear();
+			}
+			
+			/* if input moved to next time slice run next simulation step */
+			if ( engine != null ){
+				engine.advanceTo(time);
+			}else{
+				while ( time > sw.getTime() ) sw.nextSimulationStep();
+			}
+			
+			Request request = sw.newRequest(requestId++, startFloor, destFloor, time);
+			//System.out.println("New request: "+request.getTimeRequest()+","+request.getStart()+","+request.getDestination());
+			
+			/* assign the request to an elevator if possible */
+			if ( batch != null ){
+				sameTimeRequests.add(request);
+			}else{
+				sw.assignElevator(request);
+			}
+		}
+		if ( !sameTimeRequests.isEmpty() ) batch.assignBatch(sameTimeRequests);
+		
+		/* keep running the simulation until all requests are satisfied */
+		if ( engine != null ){
+			engine.runUntilSatisfied();
+		}else{
+			while ( sw.elaboratingRequests() ) sw.nextSimulationStep();
+		}
+	}
+	
+	/* feed the trips of the trace to the banks of the building,
+	 * then keep running the simulation until all trips are completed */
+	static void simulate(TraceReader input, MultiBankBuilding site) throws IOException {
+		int tripId = 0;
+		while ( input.next() ){
+			site.advanceTo(input.getTime());
+			site.call(tripId++, input.getTime(), input.getStart(), input.getDestination());
+		}
+		site.runUntilSatisfied();
+	}
+	
+	/* return the building of the banks min-max:elevators separated by commas, 10 seconds to open the door */
+	static MultiBankBuilding newMultiBankBuilding(String banks, int transferTime, int capacity, String strategy, boolean predictiveParking) {
+		MultiBankBuilding site = new MultiBankBuilding(transferTime);
+		for (String bank : banks.split(",")) {
+			String[] spec = bank.split("[-:]");
+			if ( spec.length != 3 ) throw new IllegalArgumentException("bank " + bank + " is not min-max:elevators");
+			Building b = new Building(Integer.parseInt(spec[1]), Integer.parseInt(spec[0]), Integer.parseInt(spec[2]), 10, capacity);
+			if ( strategy != null ) b.setDispatchStrategy(DispatchStrategies.forName(strategy, b));
+			if ( predictiveParking ) b.setParkingPolicy(new PredictiveParking(b));
+			site.addBank(b);
+		}
+		return site;
+	}
+	
+	/* open the trace to read the requests from the time from included to the time to excluded,
+	 * through the index of the trace unless all of them are read */
+	static TraceReader openTrace(String fileName, int from, int to) throws IOException {
+		if ( from == Integer.MIN_VALUE && to == Integer.MAX_VALUE ) return openTrace(fileName);
+		return TraceIndex.open(fileName).reader(from, to);
+	}
+	
+	/* open the trace with the reader of its format, binary or text */
+	static TraceReader openTrace(String fileName) throws IOException {
+		if ( BinaryTraceReader.isBinaryTrace(fileName) ){
+			return new BinaryTraceReader(fileName);
+		}else{
+			return new MappedTraceReader(fileName);
 		}
 	}
 
@@ -0,0 +1,175 @@
+package simulation;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/* reader of the time,start,dest traffic files.
+ * The file is memory mapped one chunk at a time, so files larger than 2 GB can be read,
+ * and the numbers are parsed straight from the mapped bytes without creating any object per line */
+public class MappedTraceReader implements TraceReader {
+
+	/* default size of the mapped chunks */
+	public static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+
+	private static final int LINE = 0;
+	private static final int BLANK = 1;
+	private static final int INCOMPLETE = 2;
+
+	private FileInputStream file;
+	private FileChannel channel;
+	private long size;
+	private int chunkSize;
+
+	private MappedByteBuffer buffer;
+	/* offset in the file of the first byte of the buffer */
+	private long bufferStart;
+
+	private int time;
+	private int startFloor;
+	private int destinationFloor;
+
+	public MappedTraceReader(String fileName) throws IOException {
+		this(fileName, DEFAULT_CHUNK_SIZE);
+	}
+
+	public MappedTraceReader(String fileName, int chunkSize) throws IOException {
+		this(fileName, 0, -1, chunkSize);
+	}
+
+	/* reader of the lines from the offset from, the start of a line, to the offset to,
+	 * the start of a line or -1 for the end of the file */
+	public MappedTraceReader(String fileName, long from, long to) throws IOException {
+		this(fileName, from, to, DEFAULT_CHUNK_SIZE);
+	}
+
+	public MappedTraceReader(String fileName, long from, long to, int chunkSize) throws IOException {
+		super();
+		this.chunkSize = chunkSize;
+		file = new FileInputStream(fileName);
+		channel = file.getChannel();
+		size = to < 0 ? channel.size() : Math.min(to, channel.size());
+		bufferStart = from;
+	}
+
+	/* read the next request of the trace
+	 * return false at the end of the file */
+	public boolean next() throws IOException {
+		while ( true ){
+			if ( buffer != null && buffer.hasRemaining() ){
+				int result = parseLine();
+				if ( result == LINE ) return true;
+				if ( result == BLANK ) continue;
+			}
+			/* the current chunk is over or ends in the middle of a line: map the next one */
+			if ( !mapNextChunk() ) return false;
+		}
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getStart() {
+		return startFloor;
+	}
+
+	public int getDestination() {
+		return destinationFloor;
+	}
+
+	/* offset in the file of the next line to be read */
+	public long getPosition() {
+		return buffer == null ? bufferStart : bufferStart + buffer.position();
+	}
+
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+		file.close();
+	}
+
+	/* map the chunk starting at the first byte not read yet
+	 * return false if the whole file has been read */
+	private boolean mapNextChunk() throws IOException {
+		long position = getPosition();
+		if ( position >= size ) return false;
+
+		if ( buffer != null && position == bufferStart ){
+			/* not even one line fits in a chunk */
+			throw new IOException("line longer than " + chunkSize + " bytes at offset " + position);
+		}
+		bufferStart = position;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position));
+		return true;
+	}
+
+	/* parse the line starting at the buffer position and move the position after it */
+	private int parseLine() throws IOException {
+		int limit = buffer.limit();
+		boolean lastChunk = bufferStart + limit == size;
+		int i = buffer.position();
+		int field = 0;
+		int value = 0;
+		boolean negative = false;
+		boolean digits = false;
+		boolean endOfLine = false;
+
+		while ( i < limit ){
+			byte c = buffer.get(i++);
+			if ( c >= '0' && c <= '9' ){
+				value = value * 10 + (c - '0');
+				digits = true;
+			}else if ( c == ',' || c == '\n' ){
+				if ( digits ){
+					setField(field, negative ? -value : value);
+				}else if ( c == ',' || field > 0 ){
+					throw malformed(i);
+				}
+				if ( digits ) field++;
+				value = 0;
+				negative = false;
+				digits = false;
+				if ( c == '\n' ){
+					endOfLine = true;
+					break;
+				}
+			}else if ( c == '-' && !digits && !negative ){
+				negative = true;
+			}else if ( c != '\r' && c != ' ' ){
+				throw malformed(i);
+			}
+		}
+
+		if ( !endOfLine ){
+			/* the line goes on in the next chunk */
+			if ( !lastChunk ) return INCOMPLETE;
+			/* last line of the file without new line */
+			if ( digits ) setField(field++, negative ? -value : value);
+		}
+
+		buffer.position(i);
+		if ( field == 0 ) return BLANK;
+		if ( field != 3 ) throw malformed(i);
+		return LINE;
+	}
+
+	private void setField(int field, int value) {
+		switch (field) {
+		case 0:
+			time = value;
+			break;
+		case 1:
+			startFloor = value;
+			break;
+		case 2:
+			destinationFloor = value;
+			break;
+		}
+	}
+
+	private IOException malformed(int i) {
+		return new IOException("malformed trace line before offset " + (bufferStart + i));
+	}
+}
@@ -0,0 +1,163 @@
+package simulation;
+
+import hotel.Building;
+import hotel.DispatchMetrics;
+import hotel.DispatchStrategies;
+import hotel.ElevatorsSW;
+import hotel.EventDrivenEngine;
+import hotel.Statistics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* run the same trace on every building of a parameter grid, one simulation per worker thread,
+ * and print a comparison table
+ *
+ * usage: Sweep <trace> [-events] [-threads n] [maxFloor=..] [minFloor=..] [elevators=..] [doorTime=..] [strategy=..]
+ * each parameter takes a comma separated list of values or a range a..b,
+ * strategy a list of dispatch strategies (greedy, nearest, zoned, eta),
+ * the missing ones take the values of the building in Main.
+ * The table shows the average time taken to choose an elevator next to the wait times */
+public class Sweep {
+
+	/* result of the simulation of one building of the grid */
+	private static class Run {
+		int maxFloor;
+		int minFloor;
+		int elevators;
+		int doorTime;
+		String strategy;
+		Statistics stats;
+		double dispatchMicros;
+		int endTime;
+		long elapsedMillis;
+	}
+
+	public static void main(String[] args) {
+		if ( args.length < 1 ){
+			System.err.println("usage: Sweep <trace> [-events] [-threads n] [maxFloor=..] [minFloor=..] [elevators=..] [doorTime=..] [strategy=..]");
+			System.exit(1);
+		}
+
+		boolean eventDriven = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int[] maxFloors = { 100 };
+		int[] minFloors = { 0 };
+		int[] elevators = { 4 };
+		int[] doorTimes = { 10 };
+		String[] strategies = { "greedy" };
+
+		for (int i = 1; i < args.length; i++) {
+			String arg = args[i];
+			if ( arg.equals("-events") ){
+				eventDriven = true;
+			}else if ( arg.equals("-threads") && i + 1 < args.length ){
+				threads = Integer.parseInt(args[++i]);
+			}else if ( arg.startsWith("maxFloor=") ){
+				maxFloors = parseValues(arg);
+			}else if ( arg.startsWith("minFloor=") ){
+				minFloors = parseValues(arg);
+			}else if ( arg.startsWith("elevators=") ){
+				elevators = parseValues(arg);
+			}else if ( arg.startsWith("doorTime=") ){
+				doorTimes = parseValues(arg);
+			}else if ( arg.startsWith("strategy=") ){
+				strategies = arg.substring(arg.indexOf('=') + 1).split(",");
+			}else{
+				throw new IllegalArgumentException("unknown argument " + arg);
+			}
+		}
+
+		try {
+			Trace trace = Trace.load(args[0]);
+
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			ArrayList<Future<Run>> runs = new ArrayList<Future<Run>>();
+			for (int maxFloor : maxFloors) {
+				for (int minFloor : minFloors) {
+					for (int nbElevators : elevators) {
+						for (int doorTime : doorTimes) {
+							for (String strategy : strategies) {
+								runs.add(pool.submit(simulation(trace, eventDriven, maxFloor, minFloor, nbElevators, doorTime, strategy.trim())));
+							}
+						}
+					}
+				}
+			}
+			pool.shutdown();
+
+			System.out.println(String.format("%8s %8s %9s %8s %8s %10s %10s %10s %10s %9s %9s %10s %8s %8s %9s",
+					"maxFloor", "minFloor", "elevators", "doorTime", "strategy", "avgPickup", "avgDelay", "avgWait", "stdDev", "p95Pickup", "p99Pickup", "dispatchUs", "requests", "endTime", "millis"));
+			for (Future<Run> future : runs) {
+				try {
+					Run r = future.get();
+					int[] pickup = r.stats.getPickupWaitPercentiles();
+					System.out.println(String.format("%8d %8d %9d %8d %8s %10.1f %10.1f %10.1f %10.1f %9d %9d %10.3f %8d %8d %9d",
+							r.maxFloor, r.minFloor, r.elevators, r.doorTime, r.strategy,
+							r.stats.getAverageTimeToBePicked(), r.stats.getAverageDelayAfterPick(), r.stats.getAverageWaitTime(),
+							r.stats.getStandardDeviation(), pickup[1], pickup[2], r.dispatchMicros, r.stats.getRequests(), r.endTime, r.elapsedMillis));
+				} catch (ExecutionException e) {
+					System.out.println("simulation failed: " + e.getCause());
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* simulation of one building, fully isolated from the others but for the shared trace */
+	private static Callable<Run> simulation(final Trace trace, final boolean eventDriven,
+			final int maxFloor, final int minFloor, final int nbElevators, final int doorTime, final String strategy) {
+		return new Callable<Run>() {
+			public Run call() throws IOException {
+				long start = System.nanoTime();
+				Building building = new Building(maxFloor, minFloor, nbElevators, doorTime);
+				building.setDispatchStrategy(DispatchStrategies.forName(strategy, building));
+				ElevatorsSW sw = new ElevatorsSW(building);
+				DispatchMetrics metrics = new DispatchMetrics();
+				sw.setListener(metrics);
+				Main.simulate(trace.reader(), sw, eventDriven ? new EventDrivenEngine(sw) : null, null);
+
+				Run r = new Run();
+				r.maxFloor = maxFloor;
+				r.minFloor = minFloor;
+				r.elevators = nbElevators;
+				r.doorTime = doorTime;
+				r.strategy = strategy;
+				r.dispatchMicros = metrics.getAverageDispatchNanos() / 1000.0;
+				r.stats = sw.getStatistics();
+				r.endTime = sw.getTime();
+				r.elapsedMillis = (System.nanoTime() - start) / 1000000;
+				return r;
+			}
+		};
+	}
+
+	/* parse name=v1,v2,... or name=a..b */
+	private static int[] parseValues(String arg) {
+		String values = arg.substring(arg.indexOf('=') + 1);
+		int range = values.indexOf("..");
+		if ( range >= 0 ){
+			int from = Integer.parseInt(values.substring(0, range));
+			int to = Integer.parseInt(values.substring(range + 2));
+			int[] result = new int[Math.max(to - from + 1, 0)];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = from + i;
+			}
+			return result;
+		}
+		String[] tokens = values.split(",");
+		int[] result = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			result[i] = Integer.parseInt(tokens[i].trim());
+		}
+		return result;
+	}
+}
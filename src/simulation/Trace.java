@@ -0,0 +1,83 @@
+package simulation;
+
+import java.io.IOException;
+
+/* trace loaded in memory. It is never modified, so simulations running in parallel
+ * can share it, each one reading it through its own reader */
+public class Trace {
+
+	private final int[] times;
+	private final int[] starts;
+	private final int[] destinations;
+
+	private Trace(int[] times, int[] starts, int[] destinations) {
+		super();
+		this.times = times;
+		this.starts = starts;
+		this.destinations = destinations;
+	}
+
+	/* read the whole trace, binary or text */
+	public static Trace load(String fileName) throws IOException {
+		int[] times = new int[1024];
+		int[] starts = new int[1024];
+		int[] destinations = new int[1024];
+		int n = 0;
+
+		TraceReader input = Main.openTrace(fileName);
+		try {
+			while ( input.next() ){
+				if ( n == times.length ){
+					times = copyOf(times, n * 2);
+					starts = copyOf(starts, n * 2);
+					destinations = copyOf(destinations, n * 2);
+				}
+				times[n] = input.getTime();
+				starts[n] = input.getStart();
+				destinations[n] = input.getDestination();
+				n++;
+			}
+		} finally {
+			input.close();
+		}
+		return new Trace(copyOf(times, n), copyOf(starts, n), copyOf(destinations, n));
+	}
+
+	public int size() {
+		return times.length;
+	}
+
+	/* return a new reader going through the requests of the trace from the first one */
+	public TraceReader reader() {
+		return new TraceReader() {
+			private int next = 0;
+
+			public boolean next() {
+				if ( next == times.length ) return false;
+				next++;
+				return true;
+			}
+
+			public int getTime() {
+				return times[next - 1];
+			}
+
+			public int getStart() {
+				return starts[next - 1];
+			}
+
+			public int getDestination() {
+				return destinations[next - 1];
+			}
+
+			public void close() {
+			}
+		};
+	}
+
+	private static int[] copyOf(int[] a, int n) {
+		int[] b = new int[n];
+		System.arraycopy(a, 0, b, 0, Math.min(a.length, n));
+		return b;
+	}
+}
@@ -0,0 +1,116 @@
+package simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/* convert a time,start,dest traffic file to the binary format read by BinaryTraceReader
+ *
+ * usage: TraceConverter <input.txt> <output.bin> [minFloor maxFloor]
+ * without the floor range of the building, the range of the floors in the trace is used */
+public class TraceConverter {
+
+	public static void main(String[] args) {
+		if ( args.length != 2 && args.length != 4 ){
+			System.err.println("usage: TraceConverter <input.txt> <output.bin> [minFloor maxFloor]");
+			System.exit(1);
+		}
+
+		try {
+			int minFloor, maxFloor;
+			if ( args.length == 4 ){
+				minFloor = Integer.parseInt(args[2]);
+				maxFloor = Integer.parseInt(args[3]);
+			}else{
+				int[] range = floorRange(args[0]);
+				minFloor = range[0];
+				maxFloor = range[1];
+			}
+			long count = convert(args[0], args[1], minFloor, maxFloor);
+			System.out.println(count + " requests converted");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/* write the binary version of the trace
+	 * return the number of requests written */
+	public static long convert(String input, String output, int minFloor, int maxFloor) throws IOException {
+		int floorBytes;
+		if ( maxFloor - minFloor < 1 << 8 ){
+			floorBytes = 1;
+		}else if ( maxFloor - minFloor < 1 << 16 ){
+			floorBytes = 2;
+		}else{
+			throw new IOException("floor range " + minFloor + ".." + maxFloor + " too large");
+		}
+
+		MappedTraceReader in = new MappedTraceReader(input);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output), 1 << 16));
+		long count = 0;
+		int previousTime = 0;
+
+		try {
+			out.writeInt(BinaryTraceReader.MAGIC);
+			out.writeByte(BinaryTraceReader.VERSION);
+			out.writeByte(floorBytes);
+			out.writeInt(minFloor);
+			out.writeInt(maxFloor);
+
+			while ( in.next() ){
+				if ( in.getTime() < previousTime ){
+					throw new IOException("request " + count + " goes back in time");
+				}
+				writeVarint(out, in.getTime() - previousTime);
+				writeFloor(out, in.getStart(), minFloor, maxFloor, floorBytes);
+				writeFloor(out, in.getDestination(), minFloor, maxFloor, floorBytes);
+				previousTime = in.getTime();
+				count++;
+			}
+		} finally {
+			in.close();
+			out.close();
+		}
+		return count;
+	}
+
+	/* return the lowest and the highest floor used in the trace */
+	private static int[] floorRange(String input) throws IOException {
+		int[] range = { Integer.MAX_VALUE, Integer.MIN_VALUE };
+		MappedTraceReader in = new MappedTraceReader(input);
+		try {
+			while ( in.next() ){
+				range[0] = Math.min(range[0], Math.min(in.getStart(), in.getDestination()));
+				range[1] = Math.max(range[1], Math.max(in.getStart(), in.getDestination()));
+			}
+		} finally {
+			in.close();
+		}
+		if ( range[0] > range[1] ){
+			/* empty trace */
+			range[0] = 0;
+			range[1] = 0;
+		}
+		return range;
+	}
+
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while ( (value & ~0x7F) != 0 ){
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static void writeFloor(DataOutputStream out, int floor, int minFloor, int maxFloor, int floorBytes) throws IOException {
+		if ( floor < minFloor || floor > maxFloor ){
+			throw new IOException("floor " + floor + " out of range " + minFloor + ".." + maxFloor);
+		}
+		if ( floorBytes == 1 ){
+			out.writeByte(floor - minFloor);
+		}else{
+			out.writeShort(floor - minFloor);
+		}
+	}
+}
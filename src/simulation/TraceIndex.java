@@ -0,0 +1,355 @@
+package simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+
+/* sidecar index of a trace, binary or text, kept in the file of the trace name followed by .idx:
+ * for each bucket of bucketSize time units from the bucket of the first request, the offset in the trace
+ * of the first request at or after the start of the bucket, and the time of the request before it,
+ * from which the binary records count their times. A reader can then start at any time of the trace
+ * without going through the requests before it, and the trace can be split in time shards of about
+ * the same size read in parallel.
+ *
+ * The index is built in one pass over the trace. For a trace still being appended to, it is brought
+ * up to date from the end of the part already indexed, recognized by the checksum of its first and last bytes:
+ * if the trace has been rewritten meanwhile the index is built again from the start. A text trace is
+ * indexed up to its last complete line, the line being written is indexed by the next update.
+ *
+ * Format of the index, big endian:
+ *   header:  magic "ELVI", version (1 byte), binary trace (1 byte), bucket size (int),
+ *            bytes of the trace indexed (long), CRC32 of the first and last bytes indexed (long),
+ *            requests indexed (long), time of the last request (int), first bucket (int), buckets (int)
+ *   buckets: offset of the first request (long), time of the request before it (int) */
+public class TraceIndex {
+
+	public static final int MAGIC = 0x454C5649;
+	public static final int VERSION = 1;
+	public static final String SUFFIX = ".idx";
+
+	/* default time units of a bucket */
+	public static final int DEFAULT_BUCKET_SIZE = 60;
+
+	/* bytes at the start and before the end of the indexed part whose checksum recognizes the trace */
+	private static final int TAIL_SIZE = 64;
+
+	private final String traceName;
+	private final boolean binary;
+	private final int bucketSize;
+
+	private long indexedBytes;
+	private long checksum;
+	private long requests;
+	private int lastTime;
+	private int firstBucket;
+	private int buckets;
+	private long[] offsets = new long[64];
+	private int[] previousTimes = new int[64];
+
+	/* bytes of the trace read by the last update, and if it went on from the previous index */
+	private long bytesRead;
+	private boolean incremental;
+
+	private TraceIndex(String traceName, boolean binary, int bucketSize) {
+		super();
+		this.traceName = traceName;
+		this.binary = binary;
+		this.bucketSize = bucketSize;
+		indexedBytes = binary ? BinaryTraceReader.HEADER_SIZE : 0;
+		lastTime = Integer.MIN_VALUE;
+	}
+
+	/* return the index of the trace, brought up to date, with buckets of the default size */
+	public static TraceIndex open(String traceName) throws IOException {
+		return open(traceName, DEFAULT_BUCKET_SIZE);
+	}
+
+	/* return the index of the trace, brought up to date and saved. The saved index is built again
+	 * if its buckets are of another size, or if it does not match the trace */
+	public static TraceIndex open(String traceName, int bucketSize) throws IOException {
+		if ( bucketSize < 1 ) throw new IllegalArgumentException("bucket size must be at least 1");
+		boolean binary = BinaryTraceReader.isBinaryTrace(traceName);
+		TraceIndex index = read(traceName, binary, bucketSize);
+		if ( index == null ) index = new TraceIndex(traceName, binary, bucketSize);
+		if ( index.update() ) index.write();
+		return index;
+	}
+
+	/* read the saved index, null if there is none or if it cannot be used for the trace */
+	private static TraceIndex read(String traceName, boolean binary, int bucketSize) throws IOException {
+		File file = new File(traceName + SUFFIX);
+		if ( !file.exists() ) return null;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if ( in.readInt() != MAGIC || in.readByte() != VERSION ) return null;
+			if ( in.readBoolean() != binary || in.readInt() != bucketSize ) return null;
+			TraceIndex index = new TraceIndex(traceName, binary, bucketSize);
+			index.indexedBytes = in.readLong();
+			index.checksum = in.readLong();
+			index.requests = in.readLong();
+			index.lastTime = in.readInt();
+			index.firstBucket = in.readInt();
+			index.buckets = in.readInt();
+			index.offsets = new long[Math.max(index.buckets, 64)];
+			index.previousTimes = new int[index.offsets.length];
+			for (int b = 0; b < index.buckets; b++) {
+				index.offsets[b] = in.readLong();
+				index.previousTimes[b] = in.readInt();
+			}
+			if ( index.checksum != checksum(traceName, index.indexedBytes) ) return null;
+			return index;
+		} catch (IOException e) {
+			/* truncated index: build it again */
+			return null;
+		} finally {
+			in.close();
+		}
+	}
+
+	/* save the index, through a temporary file for the readers never to see half of it */
+	private void write() throws IOException {
+		File file = new File(traceName + SUFFIX);
+		File temporary = new File(traceName + SUFFIX + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeBoolean(binary);
+			out.writeInt(bucketSize);
+			out.writeLong(indexedBytes);
+			out.writeLong(checksum);
+			out.writeLong(requests);
+			out.writeInt(lastTime);
+			out.writeInt(firstBucket);
+			out.writeInt(buckets);
+			for (int b = 0; b < buckets; b++) {
+				out.writeLong(offsets[b]);
+				out.writeInt(previousTimes[b]);
+			}
+		} finally {
+			out.close();
+		}
+		if ( !temporary.renameTo(file) ){
+			file.delete();
+			if ( !temporary.renameTo(file) ) throw new IOException("cannot write the index " + file);
+		}
+	}
+
+	/* CRC32 of the first and the last TAIL_SIZE bytes of the trace before the given offset,
+	 * -1 if the trace is shorter */
+	private static long checksum(String traceName, long end) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(traceName, "r");
+		try {
+			if ( file.length() < end ) return -1;
+			int n = (int) Math.min(TAIL_SIZE, end);
+			byte[] bytes = new byte[n];
+			CRC32 crc = new CRC32();
+			file.readFully(bytes);
+			crc.update(bytes, 0, n);
+			file.seek(end - n);
+			file.readFully(bytes);
+			crc.update(bytes, 0, n);
+			return crc.getValue();
+		} finally {
+			file.close();
+		}
+	}
+
+	/* offset after the last new line of the text trace, not before the given offset */
+	private static long lastLineEnd(String traceName, long from) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(traceName, "r");
+		try {
+			byte[] block = new byte[4096];
+			long end = file.length();
+			while ( end > from ){
+				int n = (int) Math.min(block.length, end - from);
+				file.seek(end - n);
+				file.readFully(block, 0, n);
+				for (int i = n - 1; i >= 0; i--) {
+					if ( block[i] == '\n' ) return end - n + i + 1;
+				}
+				end -= n;
+			}
+			return from;
+		} finally {
+			file.close();
+		}
+	}
+
+	/* index the requests added to the trace since the last update
+	 * return false if there were none */
+	private boolean update() throws IOException {
+		long end = binary ? new File(traceName).length() : lastLineEnd(traceName, indexedBytes);
+		incremental = requests > 0;
+		bytesRead = end - indexedBytes;
+		if ( end <= indexedBytes ) return false;
+
+		long position = indexedBytes;
+		if ( binary ){
+			BinaryTraceReader input = new BinaryTraceReader(traceName, indexedBytes, end, lastTime == Integer.MIN_VALUE ? 0 : lastTime);
+			try {
+				while ( input.next() ){
+					add(input.getTime(), position);
+					position = input.getPosition();
+				}
+			} finally {
+				input.close();
+			}
+		}else{
+			MappedTraceReader input = new MappedTraceReader(traceName, indexedBytes, end);
+			try {
+				while ( input.next() ){
+					add(input.getTime(), position);
+					position = input.getPosition();
+				}
+			} finally {
+				input.close();
+			}
+		}
+		indexedBytes = end;
+		checksum = checksum(traceName, end);
+		return true;
+	}
+
+	/* index the request of the given time starting at the given offset */
+	private void add(int time, long offset) throws IOException {
+		if ( time < lastTime ) throw new IOException("request of time " + time + " after time " + lastTime + " at offset " + offset);
+		int bucket = Math.floorDiv(time, bucketSize);
+		if ( buckets == 0 ) firstBucket = bucket;
+		/* the buckets up to the one of the request start with it */
+		while ( firstBucket + buckets <= bucket ){
+			if ( buckets == offsets.length ){
+				long[] moreOffsets = new long[buckets * 2];
+				int[] moreTimes = new int[buckets * 2];
+				System.arraycopy(offsets, 0, moreOffsets, 0, buckets);
+				System.arraycopy(previousTimes, 0, moreTimes, 0, buckets);
+				offsets = moreOffsets;
+				previousTimes = moreTimes;
+			}
+			offsets[buckets] = offset;
+			previousTimes[buckets] = requests == 0 ? 0 : lastTime;
+			buckets++;
+		}
+		lastTime = time;
+		requests++;
+	}
+
+	/* return a reader of the requests of the trace from the time from, included, to the time to, excluded,
+	 * starting at the bucket of from. The requests added to the trace after the index are read too */
+	public TraceReader reader(final int from, final int to) throws IOException {
+		int first = bucketIndex(from);
+		/* the requests from the bucket after the one of to - 1 are all after to */
+		int last = to == Integer.MIN_VALUE ? 0 : bucketIndex(to - 1) + 1;
+		long start = first < buckets ? offsets[first] : indexedBytes;
+		long end = last < buckets ? offsets[last] : -1;
+		int previousTime = first < buckets ? previousTimes[first] : requests == 0 ? 0 : lastTime;
+
+		final TraceReader input = binary ? new BinaryTraceReader(traceName, start, end, previousTime) : new MappedTraceReader(traceName, start, end);
+		return new TraceReader() {
+			public boolean next() throws IOException {
+				while ( input.next() ){
+					if ( input.getTime() >= to ) return false;
+					if ( input.getTime() >= from ) return true;
+				}
+				return false;
+			}
+
+			public int getTime() {
+				return input.getTime();
+			}
+
+			public int getStart() {
+				return input.getStart();
+			}
+
+			public int getDestination() {
+				return input.getDestination();
+			}
+
+			public void close() throws IOException {
+				input.close();
+			}
+		};
+	}
+
+	/* return the index of the bucket of the time, clamped to 0..buckets */
+	private int bucketIndex(int time) {
+		long bucket = (long) Math.floorDiv(time, bucketSize) - firstBucket;
+		return (int) Math.max(0, Math.min(buckets, bucket));
+	}
+
+	/* return the times splitting the trace in at most n shards of about the same size, at bucket boundaries:
+	 * shard i goes from times[i], included, to times[i + 1], excluded, the first one from Integer.MIN_VALUE
+	 * and the last one to Integer.MAX_VALUE */
+	public int[] shards(int n) {
+		if ( n < 1 ) throw new IllegalArgumentException("at least one shard is needed");
+		int[] times = new int[n + 1];
+		int count = 0;
+		times[count++] = Integer.MIN_VALUE;
+		long start = buckets == 0 ? indexedBytes : offsets[0];
+		int b = 1;
+		for (int i = 1; i < n; i++) {
+			long target = start + (indexedBytes - start) * i / n;
+			while ( b < buckets && offsets[b] < target ) b++;
+			if ( b == buckets ) break;
+			/* computed in long, the buckets being kept as floor divisions of the times */
+			long time = ((long) firstBucket + b) * bucketSize;
+			if ( time > times[count - 1] && time < Integer.MAX_VALUE ) times[count++] = (int) time;
+			b++;
+		}
+		times[count++] = Integer.MAX_VALUE;
+		int[] shards = new int[count];
+		System.arraycopy(times, 0, shards, 0, count);
+		return shards;
+	}
+
+	public String getTraceName() {
+		return traceName;
+	}
+
+	public int getBucketSize() {
+		return bucketSize;
+	}
+
+	public int getBuckets() {
+		return buckets;
+	}
+
+	/* return the number of requests indexed */
+	public long getRequests() {
+		return requests;
+	}
+
+	/* return the start of the bucket of the first request indexed, Integer.MIN_VALUE if there is none
+	 * or if the bucket starts before it */
+	public int getFirstTime() {
+		return buckets == 0 ? Integer.MIN_VALUE : (int) Math.max(Integer.MIN_VALUE, (long) firstBucket * bucketSize);
+	}
+
+	/* return the time of the last request indexed, Integer.MIN_VALUE if there is none */
+	public int getLastTime() {
+		return lastTime;
+	}
+
+	/* return the bytes of the trace indexed */
+	public long getIndexedBytes() {
+		return indexedBytes;
+	}
+
+	/* return the bytes of the trace read when the index was opened */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/* return true if the index was opened from a saved one, false if it was built from the start */
+	public boolean isIncremental() {
+		return incremental;
+	}
+}
@@ -0,0 +1,142 @@
+package simulation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* build the time index of a trace, or bring it up to date, then with -shards n read the trace in n time shards
+ * on parallel threads and print the statistics of the requests of each shard and of the whole trace.
+ *
+ * usage: TraceIndexer <trace> [-bucket n] [-shards n] [-threads n] */
+public class TraceIndexer {
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String fileName = args[0];
+		int bucketSize = TraceIndex.DEFAULT_BUCKET_SIZE;
+		int nbShards = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 1; i + 1 < args.length; i += 2) {
+			if ( args[i].equals("-bucket") ){
+				bucketSize = Integer.parseInt(args[i + 1]);
+			}else if ( args[i].equals("-shards") ){
+				nbShards = Integer.parseInt(args[i + 1]);
+			}else if ( args[i].equals("-threads") ){
+				threads = Integer.parseInt(args[i + 1]);
+			}else{
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+			}
+		}
+
+		long start = System.nanoTime();
+		TraceIndex index = TraceIndex.open(fileName, bucketSize);
+		System.out.println((index.isIncremental() ? "updated" : "built") + " index of " + index.getRequests() + " requests in "
+				+ index.getBuckets() + " buckets of " + bucketSize + " time units, " + index.getBytesRead() + " bytes read in "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+		if ( nbShards < 1 ) return;
+
+		int[] times = index.shards(nbShards);
+		List<Shard> shards = new ArrayList<Shard>();
+		for (int i = 0; i + 1 < times.length; i++) {
+			shards.add(new Shard(index, times[i], times[i + 1]));
+		}
+		start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, shards.size())));
+		try {
+			for (Future<Shard> f : executor.invokeAll(shards)) f.get();
+		} catch (ExecutionException e) {
+			throw new IOException("shard failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println("from\tto\trequests\tup\tdown\taverageFloors\tbusiestStart");
+		Shard total = new Shard(index, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		for (Shard s : shards) {
+			s.print();
+			total.add(s);
+		}
+		total.print();
+		System.out.println(shards.size() + " shards read in " + elapsed / 1000000 + " ms");
+	}
+
+	/* statistics of the requests of a time shard of the trace */
+	private static class Shard implements Callable<Shard> {
+
+		final TraceIndex index;
+		final int from;
+		final int to;
+		long requests;
+		long up;
+		long down;
+		long floors;
+		/* requests by start floor, from the lowest start floor seen */
+		long[] starts = new long[0];
+		int minStart;
+
+		Shard(TraceIndex index, int from, int to) {
+			this.index = index;
+			this.from = from;
+			this.to = to;
+		}
+
+		public Shard call() throws IOException {
+			TraceReader input = index.reader(from, to);
+			try {
+				while ( input.next() ){
+					requests++;
+					int start = input.getStart();
+					int dest = input.getDestination();
+					if ( dest > start ){
+						up++;
+					}else if ( dest < start ){
+						down++;
+					}
+					floors += Math.abs(dest - start);
+					countStart(start, 1);
+				}
+			} finally {
+				input.close();
+			}
+			return this;
+		}
+
+		private void countStart(int floor, long n) {
+			if ( starts.length == 0 ) minStart = floor;
+			int low = Math.min(minStart, floor);
+			int high = Math.max(minStart + starts.length - 1, floor);
+			if ( low != minStart || high - low + 1 != starts.length ){
+				long[] wider = new long[high - low + 1];
+				System.arraycopy(starts, 0, wider, minStart - low, starts.length);
+				starts = wider;
+				minStart = low;
+			}
+			starts[floor - minStart] += n;
+		}
+
+		void add(Shard s) {
+			requests += s.requests;
+			up += s.up;
+			down += s.down;
+			floors += s.floors;
+			for (int i = 0; i < s.starts.length; i++) {
+				if ( s.starts[i] > 0 ) countStart(s.minStart + i, s.starts[i]);
+			}
+		}
+
+		void print() {
+			int busiest = 0;
+			for (int i = 1; i < starts.length; i++) {
+				if ( starts[i] > starts[busiest] ) busiest = i;
+			}
+			System.out.println((from == Integer.MIN_VALUE ? "start" : String.valueOf(from)) + "\t" + (to == Integer.MAX_VALUE ? "end" : String.valueOf(to))
+					+ "\t" + requests + "\t" + up + "\t" + down + "\t" + (requests == 0 ? 0 : (double) floors / requests)
+					+ "\t" + (starts.length == 0 ? "-" : String.valueOf(minStart + busiest)));
+		}
+	}
+}
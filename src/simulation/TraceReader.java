@@ -0,0 +1,19 @@
+package simulation;
+
+import java.io.IOException;
+
+/* cursor over the requests of a traffic trace, in time order */
+public interface TraceReader {
+
+	/* read the next request of the trace
+	 * return false at the end of the trace */
+	boolean next() throws IOException;
+
+	int getTime();
+
+	int getStart();
+
+	int getDestination();
+
+	void close() throws IOException;
+}
@@ -0,0 +1,158 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+/* synthetic traffic trace generated on the fly from a seed, to be fed to the simulation like a file trace.
+ * The requests arrive as a Poisson process of the given rate per time unit, the same seed giving the same trace.
+ * The profile sets the share of the trips from the lobby, the min floor, of the trips to the lobby
+ * and of the trips between two other floors:
+ *   poisson    trips between any two floors
+ *   upPeak     morning arrivals, mostly from the lobby
+ *   downPeak   evening departures, mostly to the lobby
+ *   lunch      as many trips to the lobby as from it, some between floors
+ * The floors other than the lobby are chosen by their popularity: with exponent 0 every floor is as
+ * popular, otherwise the k-th most popular floor, in an order drawn from the seed, has weight 1 / k^exponent.
+ *
+ * Only the cumulative popularity of the floors is kept: the memory does not grow with the number of requests */
+public class TrafficGenerator implements TraceReader {
+
+	public static final String[] PROFILES = { "poisson", "upPeak", "downPeak", "lunch" };
+
+	/* share of the trips from the lobby and of the trips to the lobby of each profile, the others are between floors */
+	private static final double[] FROM_LOBBY = { 0, 0.85, 0.05, 0.45 };
+	private static final double[] TO_LOBBY = { 0, 0.05, 0.85, 0.45 };
+
+	private SplittableRandom random;
+	private double rate;
+	private long requests;
+	private int minFloor;
+	private double fromLobby;
+	private double toLobby;
+	/* true if the trips between floors may start or end at the lobby */
+	private boolean lobbyBetweenFloors;
+	/* cumulative popularity of the floors above the lobby, floor minFloor + 1 + i at index i */
+	private double[] popularity;
+
+	private double clock;
+	private long generated;
+	private int time;
+	private int startFloor;
+	private int destinationFloor;
+
+	public TrafficGenerator(String profile, double rate, long requests, int maxFloor, int minFloor, long seed) {
+		this(profile, rate, requests, maxFloor, minFloor, 0, seed);
+	}
+
+	public TrafficGenerator(String profile, double rate, long requests, int maxFloor, int minFloor, double exponent, long seed) {
+		super();
+		int p = profileIndex(profile);
+		if ( rate <= 0 ) throw new IllegalArgumentException("rate must be positive");
+		if ( maxFloor - minFloor < 2 ) throw new IllegalArgumentException("at least three floors are needed");
+		if ( exponent < 0 ) throw new IllegalArgumentException("popularity exponent must not be negative");
+		this.random = new SplittableRandom(seed);
+		this.rate = rate;
+		this.requests = requests;
+		this.minFloor = minFloor;
+		this.fromLobby = FROM_LOBBY[p];
+		this.toLobby = TO_LOBBY[p];
+		this.lobbyBetweenFloors = p == 0;
+		this.popularity = cumulativePopularity(maxFloor - minFloor, exponent, random);
+	}
+
+	private static int profileIndex(String profile) {
+		for (int i = 0; i < PROFILES.length; i++) {
+			if ( PROFILES[i].equals(profile) ) return i;
+		}
+		throw new IllegalArgumentException("unknown traffic profile " + profile);
+	}
+
+	/* weight 1 / rank^exponent given to the floors in a random order, summed up */
+	private static double[] cumulativePopularity(int floors, double exponent, SplittableRandom random) {
+		int[] rank = new int[floors];
+		for (int i = 0; i < floors; i++) rank[i] = i + 1;
+		if ( exponent > 0 ){
+			for (int i = floors - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = rank[i];
+				rank[i] = rank[j];
+				rank[j] = swap;
+			}
+		}
+		double[] cumulative = new double[floors];
+		double sum = 0;
+		for (int i = 0; i < floors; i++) {
+			sum += Math.pow(rank[i], -exponent);
+			cumulative[i] = sum;
+		}
+		return cumulative;
+	}
+
+	/* generate the next request
+	 * return false once all the requests are generated */
+	public boolean next() {
+		if ( generated == requests ) return false;
+		/* exponential time to the next arrival */
+		clock += -Math.log(1 - random.nextDouble()) / rate;
+		if ( clock > Integer.MAX_VALUE ) return false;
+		time = (int) clock;
+		generated++;
+
+		double trip = random.nextDouble();
+		if ( trip < fromLobby ){
+			startFloor = minFloor;
+			destinationFloor = popularFloor();
+		}else if ( trip < fromLobby + toLobby ){
+			startFloor = popularFloor();
+			destinationFloor = minFloor;
+		}else{
+			/* between two floors, the lobby included as any other floor in the poisson profile */
+			startFloor = anyFloor();
+			do {
+				destinationFloor = anyFloor();
+			} while ( destinationFloor == startFloor );
+		}
+		return true;
+	}
+
+	/* floor above the lobby drawn by popularity */
+	private int popularFloor() {
+		double x = random.nextDouble() * popularity[popularity.length - 1];
+		int low = 0;
+		int high = popularity.length - 1;
+		while ( low < high ){
+			int mid = (low + high) >>> 1;
+			if ( popularity[mid] <= x ){
+				low = mid + 1;
+			}else{
+				high = mid;
+			}
+		}
+		return minFloor + 1 + low;
+	}
+
+	/* any floor, the lobby as popular as an average floor in the poisson profile and not at all in the others */
+	private int anyFloor() {
+		if ( lobbyBetweenFloors && random.nextInt(popularity.length + 1) == 0 ) return minFloor;
+		return popularFloor();
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getStart() {
+		return startFloor;
+	}
+
+	public int getDestination() {
+		return destinationFloor;
+	}
+
+	/* return the number of requests generated so far */
+	public long getGenerated() {
+		return generated;
+	}
+
+	public void close() {
+	}
+}
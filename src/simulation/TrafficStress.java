@@ -0,0 +1,102 @@
+package simulation;
+
+import hotel.Building;
+import hotel.DispatchStrategies;
+import hotel.ElevatorsSW;
+import hotel.EventDrivenEngine;
+import hotel.Request;
+import hotel.SimulationEngine;
+
+/* stress test of the dispatch on synthetic traffic: the requests of a TrafficGenerator are given
+ * to the elevators software as they are generated, no trace is written. Every report interval
+ * the throughput of the simulation in requests per second is printed with the requests
+ * still waiting for an elevator, to see at which rate or size the dispatch falls behind.
+ *
+ * usage: TrafficStress [-profile poisson|upPeak|downPeak|lunch] [-rate r] [-requests n] [-floors n]
+ *                      [-elevators n] [-popularity exponent] [-seed n] [-strategy name] [-events] [-report n] */
+public class TrafficStress {
+
+	public static void main(String[] args) {
+		String profile = "poisson";
+		double rate = 0.5;
+		long requests = 10000000;
+		int floors = 100;
+		int nbElevators = 16;
+		double exponent = 0;
+		long seed = 1;
+		String strategy = null;
+		boolean eventDriven = false;
+		long report = 1000000;
+
+		for (int i = 0; i < args.length; i++) {
+			if ( args[i].equals("-events") ){
+				eventDriven = true;
+			}else if ( i + 1 < args.length ){
+				String value = args[++i];
+				if ( args[i - 1].equals("-profile") ){
+					profile = value;
+				}else if ( args[i - 1].equals("-rate") ){
+					rate = Double.parseDouble(value);
+				}else if ( args[i - 1].equals("-requests") ){
+					requests = Long.parseLong(value);
+				}else if ( args[i - 1].equals("-floors") ){
+					floors = Integer.parseInt(value);
+				}else if ( args[i - 1].equals("-elevators") ){
+					nbElevators = Integer.parseInt(value);
+				}else if ( args[i - 1].equals("-popularity") ){
+					exponent = Double.parseDouble(value);
+				}else if ( args[i - 1].equals("-seed") ){
+					seed = Long.parseLong(value);
+				}else if ( args[i - 1].equals("-strategy") ){
+					strategy = value;
+				}else if ( args[i - 1].equals("-report") ){
+					report = Long.parseLong(value);
+				}else{
+					throw new IllegalArgumentException("unknown argument " + args[i - 1]);
+				}
+			}else{
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+			}
+		}
+
+		Building building = new Building(floors, 0, nbElevators, 10);
+		if ( strategy != null ) building.setDispatchStrategy(DispatchStrategies.forName(strategy, building));
+		ElevatorsSW sw = new ElevatorsSW(building);
+		SimulationEngine engine = null;
+		if ( eventDriven ) engine = new EventDrivenEngine(sw);
+		TrafficGenerator input = new TrafficGenerator(profile, rate, requests, floors, 0, exponent, seed);
+
+		System.out.println("requests\ttime\twaiting\tinFlight\trequestsPerSecond\tusedMB");
+		long start = System.nanoTime();
+		long windowStart = start;
+		int requestId = 0;
+		while ( input.next() ){
+			int time = input.getTime();
+			if ( engine != null ){
+				engine.advanceTo(time);
+			}else{
+				while ( time > sw.getTime() ) sw.nextSimulationStep();
+			}
+			Request request = sw.newRequest(requestId++, input.getStart(), input.getDestination(), time);
+			sw.assignElevator(request);
+
+			if ( input.getGenerated() % report == 0 ){
+				long now = System.nanoTime();
+				Runtime runtime = Runtime.getRuntime();
+				System.out.println(input.getGenerated() + "\t" + sw.getTime() + "\t" + sw.getWaitingRequestCount() + "\t" + sw.getRequestsInFlight()
+						+ "\t" + (long) (report * 1e9 / (now - windowStart)) + "\t" + (runtime.totalMemory() - runtime.freeMemory()) / (1 << 20));
+				windowStart = now;
+			}
+		}
+		if ( engine != null ){
+			engine.runUntilSatisfied();
+		}else{
+			while ( sw.elaboratingRequests() ) sw.nextSimulationStep();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println(input.getGenerated() + " requests in " + elapsed / 1000000 + " ms ("
+				+ (long) (input.getGenerated() * 1e9 / elapsed) + " per second)");
+		sw.printStatistics();
+	}
+}
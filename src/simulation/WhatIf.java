@@ -0,0 +1,83 @@
+package simulation;
+
+import hotel.Building;
+import hotel.DispatchStrategies;
+import hotel.ElevatorsSW;
+import hotel.EventDrivenEngine;
+import hotel.Request;
+import hotel.SimulationSnapshot;
+import hotel.Statistics;
+
+import java.io.IOException;
+
+/* replay a trace up to a given time once, then try several dispatch strategies from there:
+ * each branch is forked from the snapshot taken at that time instead of replaying the trace.
+ *
+ * usage: WhatIf <trace> <branchTime> [-events] [strategy...]
+ * the strategies are the ones of DispatchStrategies, all of them if none is given */
+public class WhatIf {
+
+	public static void main(String[] args) throws IOException {
+		if ( args.length < 2 ){
+			System.err.println("usage: WhatIf <trace> <branchTime> [-events] [strategy...]");
+			System.exit(1);
+		}
+		String fileName = args[0];
+		int branchTime = Integer.parseInt(args[1]);
+		boolean eventDriven = false;
+		int nbStrategies = 0;
+		String[] strategies = new String[args.length];
+		for (int i = 2; i < args.length; i++) {
+			if ( args[i].equals("-events") ){
+				eventDriven = true;
+			}else{
+				strategies[nbStrategies++] = args[i];
+			}
+		}
+		if ( nbStrategies == 0 ){
+			strategies = DispatchStrategies.NAMES;
+			nbStrategies = strategies.length;
+		}
+
+		/* replay the trace up to the branch time with the building of Main */
+		long start = System.nanoTime();
+		ElevatorsSW sw = new ElevatorsSW(new Building(100, 0, 4, 10));
+		TraceReader input = Main.openTrace(fileName);
+		int requestId = 0;
+		while ( input.next() && input.getTime() < branchTime ){
+			while ( input.getTime() > sw.getTime() ) sw.nextSimulationStep();
+			Request request = sw.newRequest(requestId++, input.getStart(), input.getDestination(), input.getTime());
+			sw.assignElevator(request);
+		}
+		input.close();
+		while ( sw.getTime() < branchTime ) sw.nextSimulationStep();
+		long replayNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		SimulationSnapshot snapshot = sw.snapshot();
+		long snapshotNanos = System.nanoTime() - start;
+		System.out.println("replay to time " + branchTime + ": " + replayNanos / 1000000 + " ms, "
+				+ requestId + " requests, " + sw.getWaitingRequestCount() + " waiting, " + sw.getRequestsInFlight() + " in flight");
+		System.out.println("snapshot: " + snapshot.size() + " bytes in " + snapshotNanos / 1000 + " us");
+
+		System.out.println("strategy\tforkUs\tavgPickup\tavgWait\tp95Pickup\tp99Pickup\trequests\trunMs");
+		for (int i = 0; i < nbStrategies; i++) {
+			start = System.nanoTime();
+			ElevatorsSW branch = snapshot.fork();
+			Building b = branch.getBuilding();
+			b.setDispatchStrategy(DispatchStrategies.forName(strategies[i], b));
+			long forkNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			input = Main.openTrace(fileName);
+			Main.simulate(input, branch, eventDriven ? new EventDrivenEngine(branch) : null, null, snapshot.getTime());
+			input.close();
+			long runNanos = System.nanoTime() - start;
+
+			Statistics stats = branch.getStatistics();
+			int[] pickup = stats.getPickupWaitPercentiles();
+			System.out.println(strategies[i] + "\t" + forkNanos / 1000 + "\t" + stats.getAverageTimeToBePicked() + "\t" + stats.getAverageWaitTime()
+					+ "\t" + pickup[1] + "\t" + pickup[2] + "\t" + stats.getRequests() + "\t" + runNanos / 1000000);
+		}
+	}
+}
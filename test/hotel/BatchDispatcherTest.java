@@ -0,0 +1,127 @@
+package hotel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BatchDispatcherTest {
+
+	@Test
+	public void solveFindsTheAssignmentOfMinimumCost() {
+		Random random = new Random(5);
+		for (int test = 0; test < 500; test++) {
+			int rows = 1 + random.nextInt(5);
+			int columns = rows + random.nextInt(3);
+			long[][] cost = new long[rows][columns];
+			for (long[] row : cost) {
+				for (int j = 0; j < columns; j++) {
+					row[j] = random.nextInt(5) == 0 ? BatchDispatcher.INFEASIBLE : random.nextInt(50);
+				}
+			}
+			int[] columnOf = BatchDispatcher.solve(cost, rows, columns);
+			boolean[] taken = new boolean[columns];
+			long total = 0;
+			for (int i = 0; i < rows; i++) {
+				assertTrue("column taken twice", !taken[columnOf[i]]);
+				taken[columnOf[i]] = true;
+				total += cost[i][columnOf[i]];
+			}
+			assertEquals(Arrays.deepToString(cost), minimumCost(cost, 0, new boolean[columns]), total);
+		}
+	}
+
+	@Test
+	public void jointBatchAvoidsTheElevatorTheArrivalOrderWastes() {
+		/* elevator 0 goes up to floor 5 for a call down, elevator 1 waits at floor 1.
+		 * One by one, the call from floor 8 takes the free elevator 1 and leaves elevator 0 to the call
+		 * from floor 4, delaying the call of floor 5; jointly the free elevator goes to floor 4
+		 * and elevator 0 goes on to floor 8 after floor 5 */
+		int[] greedy = assignBatch(false, new int[][] { { 8, 12 }, { 4, 12 } });
+		int[] joint = assignBatch(true, new int[][] { { 8, 12 }, { 4, 12 } });
+		assertArrayEquals(new int[] { 1, 0, 30 }, greedy);
+		assertArrayEquals(new int[] { 0, 1, 20 }, joint);
+	}
+
+	@Test
+	public void greedyBatchesMatchTheRequestsAssignedOneByOne() {
+		assertEquals(run(null), run(false));
+	}
+
+	@Test
+	public void jointBatchesDeliverEveryRequest() {
+		String[] figures = run(true).split(" ");
+		assertEquals("3000", figures[1]);
+	}
+
+	/* return the elevators given to the requests of the batch and the total cost, after a call from floor 5 down */
+	private static int[] assignBatch(boolean joint, int[][] trips) {
+		ElevatorsSW sw = new ElevatorsSW(new Building(20, 0, 2, 10));
+		sw.assignElevator(sw.newRequest(0, 5, 0, 0));
+		final int[] chosen = new int[trips.length + 1];
+		sw.setListener(new DispatchListener() {
+			public void requestDispatched(int time, int requestId, int elevatorNb, long nanos) {
+				chosen[requestId - 1] = elevatorNb;
+			}
+
+			public void requestDelivered(int time, Request r) {
+			}
+
+			public void stepCompleted(ElevatorsSW sw) {
+			}
+		});
+		BatchDispatcher dispatcher = new BatchDispatcher(sw, joint);
+		ArrayList<Request> batch = new ArrayList<Request>();
+		for (int i = 0; i < trips.length; i++) batch.add(sw.newRequest(i + 1, trips[i][0], trips[i][1], 0));
+		assertEquals(trips.length, dispatcher.assignBatch(batch));
+		chosen[trips.length] = (int) dispatcher.getTotalCost();
+		return chosen;
+	}
+
+	/* replay random trips arriving several at a time, assigned by a batch dispatcher jointly or not,
+	 * or one by one without any if joint is null; return the statistics once every trip is delivered */
+	private static String run(Boolean joint) {
+		ElevatorsSW sw = new ElevatorsSW(new Building(30, 0, 3, 10));
+		BatchDispatcher dispatcher = joint == null ? null : new BatchDispatcher(sw, joint);
+		Random random = new Random(13);
+		ArrayList<Request> batch = new ArrayList<Request>();
+		int id = 0;
+		for (int t = 0; id < 3000; t++) {
+			while ( sw.getTime() < t ) sw.nextSimulationStep();
+			for (int n = random.nextInt(4); n > 0 && id < 3000; n--) {
+				int start = random.nextInt(3) == 0 ? random.nextInt(31) : 0;
+				int dest = random.nextInt(30);
+				if ( dest >= start ) dest++;
+				Request r = sw.newRequest(id++, start, dest, t);
+				if ( dispatcher == null ){
+					sw.assignElevator(r);
+				}else{
+					batch.add(r);
+				}
+			}
+			if ( !batch.isEmpty() ) dispatcher.assignBatch(batch);
+			batch.clear();
+		}
+		while ( sw.elaboratingRequests() ) sw.nextSimulationStep();
+		Statistics s = sw.getStatistics();
+		return sw.getTime() + " " + s.getRequests() + " " + s.getAverageTimeToBePicked() + " " + s.getAverageDelayAfterPick();
+	}
+
+	/* minimum total cost of the rows from the given one, each taking a column not taken yet */
+	private static long minimumCost(long[][] cost, int row, boolean[] taken) {
+		if ( row == cost.length ) return 0;
+		long min = Long.MAX_VALUE;
+		for (int j = 0; j < taken.length; j++) {
+			if ( taken[j] ) continue;
+			taken[j] = true;
+			min = Math.min(min, cost[row][j] + minimumCost(cost, row + 1, taken));
+			taken[j] = false;
+		}
+		return min;
+	}
+}
@@ -0,0 +1,33 @@
+package hotel;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class DemandModelTest {
+
+	private static final int DAY = DemandModel.DEFAULT_BUCKET_LENGTH * DemandModel.DEFAULT_BUCKETS;
+
+	@Test
+	public void callsOfTheSameDayAreNotDecayed() {
+		DemandModel model = new DemandModel(10, 0);
+		model.record(100, 3, 7);
+		model.record(800, 3, 7);
+		assertEquals(2, model.expectedCalls(850, 3, Elevator.UP), 1e-9);
+	}
+
+	@Test
+	public void callsCountHalfAfterTheHalfLifeInDays() {
+		DemandModel model = new DemandModel(10, 0);
+		model.record(100, 3, 7);
+		assertEquals(0.5, model.expectedCalls(DemandModel.DEFAULT_HALF_LIFE * DAY + 100, 3, Elevator.UP), 1e-9);
+	}
+
+	@Test
+	public void negativeTimesFallInTheBucketsOfTheDayBefore() {
+		DemandModel model = new DemandModel(10, 0);
+		model.record(-1, 3, 7);
+		assertEquals(1, model.expectedCalls(-1, 3, Elevator.UP), 1e-9);
+		assertEquals(1, model.expectedCalls(DAY - 1, 3, Elevator.UP) / Math.pow(0.5, 1.0 / DemandModel.DEFAULT_HALF_LIFE), 1e-9);
+	}
+}
@@ -0,0 +1,72 @@
+package hotel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DestinationDispatcherTest {
+
+	@Test
+	public void groupOfTheSameFloorAndZoneTakesOneElevator() {
+		ElevatorsSW sw = new ElevatorsSW(new Building(30, 0, 4, 10));
+		DestinationDispatcher dispatcher = new DestinationDispatcher(sw);
+		ArrayList<Request> batch = new ArrayList<Request>();
+		batch.add(sw.newRequest(0, 5, 12, 0));
+		batch.add(sw.newRequest(1, 5, 15, 0));
+		batch.add(sw.newRequest(2, 5, 18, 0));
+		assertEquals(3, dispatcher.assignBatch(batch));
+		int used = 0;
+		for (Elevator e : sw.getBuilding().getElevators()) {
+			if ( e.getLoad() > 0 ){
+				used++;
+				assertEquals(3, e.getLoad());
+			}
+		}
+		assertEquals(1, used);
+	}
+
+	@Test
+	public void groupLargerThanTheCapacityIsSplit() {
+		ElevatorsSW sw = new ElevatorsSW(new Building(30, 0, 4, 10, 2));
+		DestinationDispatcher dispatcher = new DestinationDispatcher(sw);
+		ArrayList<Request> batch = new ArrayList<Request>();
+		for (int i = 0; i < 5; i++) batch.add(sw.newRequest(i, 5, 11 + i, 0));
+		assertEquals(5, dispatcher.assignBatch(batch));
+		int used = 0;
+		for (Elevator e : sw.getBuilding().getElevators()) {
+			assertTrue(e.getLoad() <= 2);
+			if ( e.getLoad() > 0 ) used++;
+		}
+		assertEquals(3, used);
+	}
+
+	@Test
+	public void everyRequestIsDeliveredWithinTheCapacity() {
+		ElevatorsSW sw = new ElevatorsSW(new Building(30, 0, 3, 10, 2));
+		DestinationDispatcher dispatcher = new DestinationDispatcher(sw, 5);
+		Random random = new Random(11);
+		ArrayList<Request> batch = new ArrayList<Request>();
+		int id = 0;
+		for (int t = 0; t < 2000; t++) {
+			for (int n = random.nextInt(4); n > 0; n--) {
+				int start = random.nextInt(4) == 0 ? random.nextInt(31) : 0;
+				batch.add(sw.newRequest(id++, start, random.nextInt(31), t));
+			}
+			dispatcher.assignBatch(batch);
+			batch.clear();
+			sw.nextSimulationStep();
+			for (Elevator e : sw.getBuilding().getElevators()) assertTrue(e.getLoad() <= 2);
+		}
+		while ( sw.elaboratingRequests() ) sw.nextSimulationStep();
+		assertEquals(id, sw.getStatistics().getRequests());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void capacityBelowOneIsRejected() {
+		new Building(30, 0, 4, 10, 0);
+	}
+}
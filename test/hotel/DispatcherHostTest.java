@@ -0,0 +1,104 @@
+package hotel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class DispatcherHostTest {
+
+	@Test
+	public void callOutsideTheFloorsFailsAloneAndTheWorkerGoesOn() throws Exception {
+		DispatcherHost host = new DispatcherHost(1, 100000);
+		host.addBuilding(new Building(10, 0, 2, 10));
+		host.addBuilding(new Building(10, 0, 2, 10));
+		host.start();
+		try {
+			try {
+				host.call(0, 3, 50).get(5, TimeUnit.SECONDS);
+				fail("call to a floor outside the building accepted");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IllegalArgumentException);
+			}
+			assertTrue(host.call(0, 3, 7).get(5, TimeUnit.SECONDS).getElevatorId() >= 0);
+			assertTrue(host.call(1, 7, 3).get(5, TimeUnit.SECONDS).getElevatorId() >= 0);
+			assertNull(host.getFailure(0));
+		} finally {
+			host.stop();
+		}
+	}
+
+	@Test
+	public void callAddedAfterStopIsCancelled() throws Exception {
+		DispatcherHost host = new DispatcherHost(1, 100000);
+		host.addBuilding(new Building(10, 0, 2, 10));
+		host.start();
+		host.stop();
+		/* a caller has found the host running, then stop has emptied the queue before the call is added */
+		CompletableFuture<Assignment> late = host.enqueue(0, 1, 5);
+		try {
+			late.get(5, TimeUnit.SECONDS);
+			fail("call added after stop assigned");
+		} catch (CancellationException e) {
+			/* cancelled as expected */
+		}
+	}
+
+	@Test
+	public void everyCallIsCompletedWhenStopRacesWithCall() throws Exception {
+		for (int round = 0; round < 50; round++) {
+			final DispatcherHost host = new DispatcherHost(2, 10000);
+			final int buildings = 8;
+			for (int b = 0; b < buildings; b++) host.addBuilding(new Building(20, 0, 4, 10));
+			host.start();
+			int callers = 4;
+			final CountDownLatch started = new CountDownLatch(callers);
+			final List<List<CompletableFuture<Assignment>>> futures = new ArrayList<List<CompletableFuture<Assignment>>>();
+			Thread[] threads = new Thread[callers];
+			for (int p = 0; p < callers; p++) {
+				final List<CompletableFuture<Assignment>> mine = new ArrayList<CompletableFuture<Assignment>>();
+				futures.add(mine);
+				threads[p] = new Thread(new Runnable() {
+					public void run() {
+						started.countDown();
+						for (int i = 0; i < 2000; i++) {
+							mine.add(host.call(i % buildings, i % 20, (i + 7) % 20));
+						}
+					}
+				});
+				threads[p].start();
+			}
+			started.await();
+			host.stop();
+			for (Thread t : threads) t.join();
+
+			long calls = 0;
+			long completed = 0;
+			for (List<CompletableFuture<Assignment>> mine : futures) {
+				for (CompletableFuture<Assignment> f : mine) {
+					calls++;
+					try {
+						f.get(5, TimeUnit.SECONDS);
+					} catch (CancellationException e) {
+						/* cancelled by stop, or refused once stopped */
+					} catch (TimeoutException e) {
+						fail("call left pending after stop in round " + round);
+					}
+					completed++;
+				}
+			}
+			assertEquals(calls, completed);
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package hotel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ElevatorsSWTest {
+
+	@Test
+	public void requestEndingWhereItStartsIsDeliveredOnce() {
+		ElevatorsSW sw = new ElevatorsSW(new Building(10, 0, 4, 10));
+		int[][] trace = { { 0, 3, 3 }, { 5, 2, 7 } };
+		int next = 0;
+		while ( next < trace.length || sw.elaboratingRequests() ){
+			while ( next < trace.length && trace[next][0] == sw.getTime() ){
+				sw.assignElevator(sw.newRequest(next, trace[next][1], trace[next][2], sw.getTime()));
+				next++;
+			}
+			sw.nextSimulationStep();
+		}
+		Statistics s = sw.getStatistics();
+		assertEquals(2, s.getRequests());
+		assertTrue(s.getAverageDelayAfterPick() >= 0);
+	}
+}
@@ -0,0 +1,98 @@
+package hotel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EtaTableTest {
+
+	@Test
+	public void updatedTableMatchesTableBuiltAgain() {
+		checkAgainstTableBuiltAgain(new Building(30, 0, 3, 10), 7);
+	}
+
+	@Test
+	public void updatedTableMatchesTableBuiltAgainAboveTheGroundFloor() {
+		checkAgainstTableBuiltAgain(new Building(100, 50, 2, 10), 8);
+	}
+
+	/* assign random calls, checking at each time unit the table kept up to date against a new one */
+	private static void checkAgainstTableBuiltAgain(Building building, long seed) {
+		ElevatorsSW sw = new ElevatorsSW(building);
+		EtaTable table = sw.getEtaTable();
+		Random random = new Random(seed);
+		int floors = building.getMaxFloor() - building.getMinFloor() + 1;
+		int[] updated = new int[floors];
+		int[] built = new int[floors];
+		for (int id = 0; id < 400; id++) {
+			/* bursts of calls, then quiet time units for the elevators to follow their sweeps */
+			if ( random.nextInt(4) == 0 ){
+				for (int t = random.nextInt(40); t > 0; t--) {
+					sw.nextSimulationStep();
+					EtaTable fresh = new EtaTable(building);
+					fresh.build(sw.getTime());
+					for (boolean up : new boolean[] { Elevator.UP, Elevator.DOWN }) {
+						table.copyEtas(up, updated);
+						fresh.copyEtas(up, built);
+						assertArrayEquals("time " + sw.getTime(), built, updated);
+					}
+				}
+			}
+			int start = building.getMinFloor() + random.nextInt(floors);
+			int dest = building.getMinFloor() + random.nextInt(floors);
+			sw.assignElevator(sw.newRequest(id, start, dest, sw.getTime()));
+		}
+	}
+
+	@Test
+	public void enginesUpdateTheTableAtTheirEvents() {
+		for (int engine = 0; engine < 2; engine++) {
+			final Building building = new Building(30, 0, 3, 10);
+			ElevatorsSW sw = new ElevatorsSW(building);
+			final int[] steps = new int[1];
+			sw.setListener(new DispatchListener() {
+				public void requestDispatched(int time, int requestId, int elevatorNb, long nanos) {
+				}
+
+				public void requestDelivered(int time, Request r) {
+				}
+
+				public void stepCompleted(ElevatorsSW sw) {
+					steps[0]++;
+					assertSameEtas(building, sw);
+				}
+			});
+			sw.getEtaTable();
+			SimulationEngine e = engine == 0 ? new EventDrivenEngine(sw) : new ArrayTickEngine(sw);
+			Random random = new Random(9);
+			for (int id = 0; id < 300; id++) {
+				e.advanceTo(sw.getTime() + random.nextInt(random.nextInt(4) == 0 ? 60 : 3));
+				assertSameEtas(building, sw);
+				sw.assignElevator(sw.newRequest(id, random.nextInt(31), random.nextInt(31), sw.getTime()));
+			}
+			e.runUntilSatisfied();
+			assertSameEtas(building, sw);
+			assertEquals(sw.getTime(), sw.getEtaTable().getTime());
+			/* the time units without event have been skipped */
+			assertTrue(steps[0] < sw.getTime());
+		}
+	}
+
+	/* check the table kept up to date against a new one */
+	private static void assertSameEtas(Building building, ElevatorsSW sw) {
+		int floors = building.getMaxFloor() - building.getMinFloor() + 1;
+		int[] updated = new int[floors];
+		int[] built = new int[floors];
+		EtaTable fresh = new EtaTable(building);
+		fresh.build(sw.getTime());
+		for (boolean up : new boolean[] { Elevator.UP, Elevator.DOWN }) {
+			sw.getEtaTable().copyEtas(up, updated);
+			fresh.copyEtas(up, built);
+			assertArrayEquals("time " + sw.getTime(), built, updated);
+		}
+	}
+}
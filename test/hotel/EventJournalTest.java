@@ -0,0 +1,170 @@
+package hotel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventJournalTest {
+
+	/* small intervals: several checkpoints and batches in a short run, in a segment of its own */
+	private static final int SEGMENT_SIZE = 1 << 20;
+	private static final int COMMIT_INTERVAL = 50;
+	private static final int CHECKPOINT_INTERVAL = 500;
+
+	private static final int TRIPS = 3000;
+	private static final int CRASH_TIME = 2120;
+
+	private static final int COMMIT = 7;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void recoveryFromASegmentTruncatedMidBatchMatchesTheRunStoppedAtTheDurableCommit() throws IOException {
+		File dir = journalUntilCrash();
+		int[] commits = lastCommits(dir);
+		/* the crash cuts the last batch in the middle of its records */
+		RandomAccessFile raf = new RandomAccessFile(lastSegment(dir), "rw");
+		raf.setLength((commits[1] + commits[2]) / 2);
+		raf.close();
+		assertRecoveredAt(dir, commits[0]);
+	}
+
+	@Test
+	public void recoveryStopsBeforeABatchWithABadChecksum() throws IOException {
+		File dir = journalUntilCrash();
+		int[] commits = lastCommits(dir);
+		/* the last value of the last event of the batch is garbled */
+		RandomAccessFile raf = new RandomAccessFile(lastSegment(dir), "rw");
+		raf.seek(commits[2] - 4);
+		int value = raf.readInt();
+		raf.seek(commits[2] - 4);
+		raf.writeInt(value ^ 0x5a5a);
+		raf.close();
+		assertRecoveredAt(dir, commits[0]);
+	}
+
+	@Test
+	public void recoveryOfACleanJournalReachesItsLastCommit() throws IOException {
+		File dir = folder.newFolder("journal");
+		ElevatorsSW sw = newSimulation();
+		EventJournal journal = EventJournal.create(dir, sw, SEGMENT_SIZE, COMMIT_INTERVAL, CHECKPOINT_INTERVAL);
+		run(sw, 0, CRASH_TIME);
+		journal.close();
+		assertEquals(sw.getTime(), journal.getDurableCommit());
+		assertRecoveredAt(dir, sw.getTime());
+	}
+
+	/* journal the trips until the crash time, the journal being closed so that its last batch is complete */
+	private File journalUntilCrash() throws IOException {
+		File dir = folder.newFolder("journal");
+		ElevatorsSW sw = newSimulation();
+		EventJournal journal = EventJournal.create(dir, sw, SEGMENT_SIZE, COMMIT_INTERVAL, CHECKPOINT_INTERVAL);
+		run(sw, 0, CRASH_TIME);
+		journal.close();
+		assertTrue(segments(dir).length > 0);
+		return dir;
+	}
+
+	/* recover the journal, check the state is the one of a run stopped at the given commit time
+	 * and that both go on the same way once the journal is committed again */
+	private void assertRecoveredAt(File dir, int commitTime) throws IOException {
+		ElevatorsSW recovered = newSimulation();
+		EventJournal journal = EventJournal.recover(dir, recovered, SEGMENT_SIZE, COMMIT_INTERVAL, CHECKPOINT_INTERVAL);
+		assertEquals(commitTime, recovered.getTime());
+		assertEquals(commitTime, journal.getDurableCommit());
+
+		ElevatorsSW expected = newSimulation();
+		run(expected, 0, commitTime);
+		assertArrayEquals(state(expected), state(recovered));
+
+		run(expected, commitTime, Integer.MAX_VALUE);
+		run(recovered, commitTime, Integer.MAX_VALUE);
+		journal.close();
+		assertArrayEquals(state(expected), state(recovered));
+	}
+
+	private static ElevatorsSW newSimulation() {
+		return new ElevatorsSW(new Building(30, 0, 3, 10));
+	}
+
+	/* replay the random trips of the times from the first one given to the last one excluded
+	 * and run the simulation up to the last one, until every trip is delivered for the end of the trips */
+	private static void run(ElevatorsSW sw, int from, int to) {
+		Random random = new Random(23);
+		int time = 0;
+		for (int trip = 0; trip < TRIPS; trip++) {
+			time += random.nextInt(3);
+			int start = random.nextInt(31);
+			int dest = (start + 1 + random.nextInt(30)) % 31;
+			if ( time < from ) continue;
+			if ( time >= to ) break;
+			while ( sw.getTime() < time ) sw.nextSimulationStep();
+			sw.assignElevator(sw.newRequest(trip, start, dest, time));
+		}
+		if ( to == Integer.MAX_VALUE ){
+			while ( sw.elaboratingRequests() ) sw.nextSimulationStep();
+		}else{
+			while ( sw.getTime() < to ) sw.nextSimulationStep();
+		}
+	}
+
+	/* return the state of the simulation, as written in its snapshots */
+	private static byte[] state(ElevatorsSW sw) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		sw.snapshot().writeTo(bytes);
+		return bytes.toByteArray();
+	}
+
+	private static File[] segments(File dir) {
+		File[] files = dir.listFiles();
+		Arrays.sort(files);
+		return files;
+	}
+
+	private static File lastSegment(File dir) {
+		File[] files = segments(dir);
+		return files[files.length - 1];
+	}
+
+	/* return the time of the commit before the last batch of the last segment,
+	 * the position after it and the position of the last commit */
+	private static int[] lastCommits(File dir) throws IOException {
+		List<int[]> commits = new ArrayList<int[]>();
+		DataInputStream in = new DataInputStream(new FileInputStream(lastSegment(dir)));
+		try {
+			int position = 0;
+			int type;
+			while ( (type = in.readInt()) != 0 ){
+				int length = in.readInt();
+				int time = in.readInt();
+				in.skipBytes(length - 4);
+				if ( type == COMMIT ) commits.add(new int[] { time, position, position + 8 + length });
+				position += 8 + length;
+			}
+		} finally {
+			in.close();
+		}
+		assertTrue("commits in the last segment " + commits.size(), commits.size() >= 2);
+		int[] previous = commits.get(commits.size() - 2);
+		int[] last = commits.get(commits.size() - 1);
+		/* the last batch has records to cut */
+		assertTrue(last[1] > previous[2]);
+		return new int[] { previous[0], previous[2], last[1] };
+	}
+}
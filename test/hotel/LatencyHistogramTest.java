@@ -0,0 +1,72 @@
+package hotel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	private static final double[] PERCENTILES = { 1, 10, 50, 90, 95, 99, 99.9, 100 };
+
+	@Test
+	public void valuesBelow128AreExact() {
+		LatencyHistogram h = new LatencyHistogram();
+		int[] values = new int[1000];
+		Random random = new Random(3);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextInt(128);
+			h.record(values[i]);
+		}
+		Arrays.sort(values);
+		for (double p : PERCENTILES) {
+			assertEquals("percentile " + p, exact(values, p), h.getValueAtPercentile(p));
+		}
+	}
+
+	@Test
+	public void percentilesAreWithinOne64thOfTheExactValues() {
+		LatencyHistogram h = new LatencyHistogram();
+		int[] values = new int[100000];
+		Random random = new Random(7);
+		for (int i = 0; i < values.length; i++) {
+			/* spread over several powers of two */
+			values[i] = (int) Math.exp(random.nextDouble() * Math.log(1000000));
+			h.record(values[i]);
+		}
+		Arrays.sort(values);
+		for (double p : PERCENTILES) {
+			int exact = exact(values, p);
+			int reported = h.getValueAtPercentile(p);
+			assertTrue("percentile " + p + ": " + reported + " for " + exact, reported >= exact && reported - exact <= exact / 64);
+		}
+		assertEquals(values[values.length - 1], h.getValueAtPercentile(100));
+		assertEquals(values.length, h.getTotalCount());
+	}
+
+	@Test
+	public void negativeValuesAreCountedAsZero() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(-5);
+		h.record(-1);
+		h.record(3);
+		assertEquals(3, h.getTotalCount());
+		assertEquals(0, h.getValueAtPercentile(50));
+		assertEquals(3, h.getValueAtPercentile(100));
+		assertEquals(3, h.getMaxValue());
+	}
+
+	@Test
+	public void emptyHistogramReportsZero() {
+		assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+	}
+
+	/* nearest rank of the sorted values */
+	private static int exact(int[] sorted, double percentile) {
+		int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+}
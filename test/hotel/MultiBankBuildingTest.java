@@ -0,0 +1,92 @@
+package hotel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MultiBankBuildingTest {
+
+	@Test
+	public void elevatorsStartInTheFloorsOfTheirBank() {
+		MultiBankBuilding site = newSite(1, false);
+		for (int b = 0; b < site.getBankCount(); b++) {
+			Building building = site.getBank(b).getBuilding();
+			for (Elevator e : building.getElevators()) {
+				assertTrue(e.getCurrentFloor() >= building.getMinFloor() && e.getCurrentFloor() <= building.getMaxFloor());
+			}
+		}
+		assertEquals(50, site.getBank(1).getBuilding().getElevators().get(0).getCurrentFloor());
+	}
+
+	@Test
+	public void threadsGiveTheSameStatisticsAsOneThread() {
+		String expected = run(newSite(1, false));
+		assertEquals(expected, run(newSite(3, false)));
+		assertEquals(expected, run(newSite(3, true)));
+	}
+
+	@Test
+	public void listenersOfTheBanksReceiveTheirEventsAlongTheTransfers() {
+		String expected = run(newSite(1, false));
+		MultiBankBuilding site = newSite(1, false);
+		final long[] delivered = new long[site.getBankCount()];
+		for (int b = 0; b < site.getBankCount(); b++) {
+			final int bank = b;
+			site.setListener(b, new DispatchListener() {
+				public void requestDispatched(int time, int requestId, int elevatorNb, long nanos) {
+				}
+
+				public void requestDelivered(int time, Request r) {
+					delivered[bank]++;
+				}
+
+				public void stepCompleted(ElevatorsSW sw) {
+				}
+			});
+		}
+		assertEquals(expected, run(site));
+		for (int b = 0; b < site.getBankCount(); b++) {
+			assertEquals(site.getBank(b).getStatistics().getRequests(), delivered[b]);
+		}
+	}
+
+	/* low rise, high rise and a bank sharing floors with both */
+	private static MultiBankBuilding newSite(int threads, boolean eventDriven) {
+		MultiBankBuilding site = new MultiBankBuilding();
+		site.addBank(50, 0, 2, 10);
+		site.addBank(100, 50, 2, 10);
+		site.addBank(60, 40, 1, 10);
+		site.setEventDriven(eventDriven);
+		site.setThreads(threads);
+		return site;
+	}
+
+	/* replay random trips, return the statistics of each bank */
+	private static String run(MultiBankBuilding site) {
+		Random random = new Random(5);
+		int time = 0;
+		for (int trip = 0; trip < 3000; trip++) {
+			time += random.nextInt(6);
+			int start = random.nextInt(3) == 0 ? random.nextInt(101) : 0;
+			int dest = random.nextInt(101);
+			site.advanceTo(time);
+			site.call(trip, time, start, dest);
+		}
+		site.runUntilSatisfied();
+		site.shutdown();
+		StringBuilder sb = new StringBuilder();
+		for (int b = 0; b < site.getBankCount(); b++) {
+			Statistics s = site.getBank(b).getStatistics();
+			sb.append(s.getRequests()).append(' ').append(s.getAverageTimeToBePicked()).append(' ')
+					.append(s.getAverageDelayAfterPick()).append(' ').append(s.getStandardDeviation()).append(' ')
+					.append(Arrays.toString(s.getPickupWaitPercentiles())).append(' ')
+					.append(Arrays.toString(s.getRideDelayPercentiles())).append('\n');
+		}
+		sb.append(site.getTrips()).append(' ').append(site.getTransfers()).append(' ').append(site.getTime());
+		return sb.toString();
+	}
+}
@@ -0,0 +1,149 @@
+package hotel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+import org.junit.Test;
+
+/* load of the real time dispatcher: producer threads call elevators at a given rate for a second,
+ * with a tick of a millisecond. The bounds leave room for a single slow processor */
+public class RealTimeDispatcherLoadTest {
+
+	private static final long SECOND = 1000000000L;
+
+	@Test
+	public void intakeKeepsUpWithAHundredThousandCallsPerSecond() throws Exception {
+		Load load = new Load(100000, 2, 16);
+		load.run(false);
+		/* the calls are taken as fast as they are offered, whatever the lag of the time units behind the clock */
+		assertTrue("calls " + load.calls, load.calls >= 90000);
+		assertTrue("time units " + load.ticks, load.ticks > 0);
+		/* every call is assigned, or cancelled by stop while waiting for an elevator */
+		assertEquals(load.calls, load.assigned + load.cancelled);
+	}
+
+	@Test
+	public void callsOfALightLoadAreAssignedWithinAFewTicks() throws Exception {
+		Load load = new Load(200, 2, 16);
+		load.run(true);
+		assertTrue("calls " + load.calls, load.calls >= 180);
+		assertEquals(load.calls, load.assigned);
+		long[] latencies = load.latencies();
+		Arrays.sort(latencies);
+		long median = latencies[latencies.length / 2];
+		long p99 = latencies[latencies.length * 99 / 100];
+		assertTrue("median assignment latency " + median / 1000 + " us", median < 20 * 1000000L);
+		assertTrue("99th percentile of the assignment latency " + p99 / 1000 + " us", p99 < 200 * 1000000L);
+	}
+
+	/* calls made to a dispatcher of a hundred floors at a rate shared by the producers during a second */
+	private static class Load {
+
+		final int callsPerSecond;
+		final int producers;
+		final RealTimeDispatcher dispatcher;
+
+		/* assignment latency of each call, by call number */
+		final AtomicLongArray latencyNanos;
+		final AtomicInteger numbers = new AtomicInteger();
+		long calls;
+		long ticks;
+		long assigned;
+		long cancelled;
+
+		Load( int callsPerSecond, int producers, int elevators ) {
+			this.callsPerSecond = callsPerSecond;
+			this.producers = producers;
+			this.dispatcher = new RealTimeDispatcher(new ElevatorsSW(new Building(100, 0, elevators, 10)), 1000000);
+			/* room for the calls of a producer running late */
+			this.latencyNanos = new AtomicLongArray(callsPerSecond * 2 + producers);
+		}
+
+		/* run the load, then stop the dispatcher at once or once every call is assigned */
+		void run(boolean awaitAssignments) throws InterruptedException {
+			final long end = System.nanoTime() + SECOND;
+			final int rate = Math.max(1, callsPerSecond / producers);
+			final CompletableFuture<?>[][] futures = new CompletableFuture<?>[producers][];
+			dispatcher.start();
+			Thread[] threads = new Thread[producers];
+			for (int p = 0; p < producers; p++) {
+				final int producer = p;
+				threads[p] = new Thread(new Runnable() {
+					public void run() {
+						futures[producer] = produce(rate, end);
+					}
+				}, "producer-" + p);
+				threads[p].start();
+			}
+			for (Thread t : threads) t.join();
+			long deadline = System.nanoTime() + 5 * SECOND;
+			while ( awaitAssignments && dispatcher.getAssigned() < dispatcher.getCalls() && System.nanoTime() < deadline ){
+				Thread.sleep(1);
+			}
+			calls = dispatcher.getCalls();
+			ticks = dispatcher.getTicks();
+			dispatcher.stop();
+
+			/* stop has completed every future: assigned, or cancelled */
+			for (CompletableFuture<?>[] mine : futures) {
+				for (CompletableFuture<?> f : mine) {
+					try {
+						f.get(5, TimeUnit.SECONDS);
+						assigned++;
+					} catch (Exception e) {
+						cancelled++;
+					}
+				}
+			}
+		}
+
+		/* call at the rate until the end, return the futures of the calls */
+		private CompletableFuture<?>[] produce(int rate, long end) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			CompletableFuture<?>[] mine = new CompletableFuture<?>[rate + 1];
+			int sent = 0;
+			long start = System.nanoTime();
+			long now;
+			while ( (now = System.nanoTime()) < end && sent < mine.length ){
+				/* calls due by now at the rate of this producer */
+				long due = Math.min(mine.length, (now - start) * rate / SECOND);
+				if ( sent >= due ){
+					LockSupport.parkNanos(100000);
+					continue;
+				}
+				for (; sent < due; sent++) {
+					int from = random.nextInt(101);
+					int to = random.nextInt(100);
+					if ( to >= from ) to++;
+					final int number = numbers.getAndIncrement();
+					final long callTime = System.nanoTime();
+					mine[sent] = dispatcher.call(from, to).whenComplete(new BiConsumer<Assignment, Throwable>() {
+						public void accept(Assignment a, Throwable error) {
+							if ( a != null ) latencyNanos.set(number, System.nanoTime() - callTime);
+						}
+					});
+				}
+			}
+			return Arrays.copyOf(mine, sent);
+		}
+
+		/* return the latencies recorded, the calls assigned */
+		long[] latencies() {
+			long[] l = new long[numbers.get()];
+			int n = 0;
+			for (int i = 0; i < l.length; i++) {
+				if ( latencyNanos.get(i) > 0 ) l[n++] = latencyNanos.get(i);
+			}
+			return Arrays.copyOf(l, n);
+		}
+	}
+}
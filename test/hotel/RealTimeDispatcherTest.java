@@ -0,0 +1,148 @@
+package hotel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class RealTimeDispatcherTest {
+
+	@Test
+	public void callOutsideTheFloorsFailsAloneAndTheDispatcherGoesOn() throws Exception {
+		RealTimeDispatcher dispatcher = new RealTimeDispatcher(new ElevatorsSW(new Building(10, 0, 2, 10)), 100000);
+		dispatcher.start();
+		try {
+			try {
+				dispatcher.call(3, 50).get(5, TimeUnit.SECONDS);
+				fail("call to a floor outside the building accepted");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IllegalArgumentException);
+			}
+			Assignment a = dispatcher.call(3, 7).get(5, TimeUnit.SECONDS);
+			assertTrue(a.getElevatorId() >= 0);
+		} finally {
+			dispatcher.stop();
+		}
+	}
+
+	@Test
+	public void callLinkedAfterStopIsCancelled() throws Exception {
+		RealTimeDispatcher dispatcher = new RealTimeDispatcher(new ElevatorsSW(new Building(10, 0, 2, 10)), 100000);
+		dispatcher.start();
+		/* a producer has found the dispatcher running, then stop has emptied the queue before the call is linked */
+		dispatcher.stop();
+		CompletableFuture<Assignment> late = dispatcher.enqueue(1, 5);
+		try {
+			late.get(5, TimeUnit.SECONDS);
+			fail("call linked after stop assigned");
+		} catch (CancellationException e) {
+			/* cancelled as expected */
+		}
+	}
+
+	@Test
+	public void failingTimeUnitStopsTheDispatcherAndFailsTheCalls() throws Exception {
+		ElevatorsSW sw = new ElevatorsSW(new Building(10, 0, 2, 10));
+		final CountDownLatch stepping = new CountDownLatch(1);
+		final CountDownLatch queued = new CountDownLatch(1);
+		final IllegalStateException broken = new IllegalStateException("broken step");
+		sw.setListener(new DispatchListener() {
+			public void requestDispatched(int time, int requestId, int elevatorNb, long nanos) {
+			}
+
+			public void requestDelivered(int time, Request r) {
+			}
+
+			public void stepCompleted(ElevatorsSW sw) {
+				/* the first time unit fails once calls have been queued behind it */
+				stepping.countDown();
+				try {
+					queued.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				throw broken;
+			}
+		});
+		RealTimeDispatcher dispatcher = new RealTimeDispatcher(sw, 100000);
+		dispatcher.start();
+		try {
+			stepping.await();
+			List<CompletableFuture<Assignment>> futures = new ArrayList<CompletableFuture<Assignment>>();
+			for (int i = 0; i < 10; i++) futures.add(dispatcher.call(i % 10, (i + 3) % 10));
+			queued.countDown();
+			for (CompletableFuture<Assignment> f : futures) {
+				assertFailedWith(broken, f);
+			}
+			assertTrue(dispatcher.getFailure() == broken);
+			/* calls made once the dispatcher is over are refused */
+			assertFailedWith(broken, dispatcher.call(1, 5));
+		} finally {
+			dispatcher.stop();
+		}
+	}
+
+	private static void assertFailedWith(Throwable expected, CompletableFuture<Assignment> f) throws Exception {
+		try {
+			f.get(5, TimeUnit.SECONDS);
+			fail("call assigned by a failed dispatcher");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() == expected);
+		}
+	}
+
+	@Test
+	public void everyCallIsCompletedWhenStopRacesWithCall() throws Exception {
+		for (int round = 0; round < 50; round++) {
+			final RealTimeDispatcher dispatcher = new RealTimeDispatcher(new ElevatorsSW(new Building(20, 0, 4, 10)), 10000);
+			dispatcher.start();
+			int producers = 4;
+			final CountDownLatch started = new CountDownLatch(producers);
+			final List<List<CompletableFuture<Assignment>>> futures = new ArrayList<List<CompletableFuture<Assignment>>>();
+			Thread[] threads = new Thread[producers];
+			for (int p = 0; p < producers; p++) {
+				final List<CompletableFuture<Assignment>> mine = new ArrayList<CompletableFuture<Assignment>>();
+				futures.add(mine);
+				threads[p] = new Thread(new Runnable() {
+					public void run() {
+						started.countDown();
+						for (int i = 0; i < 2000; i++) {
+							mine.add(dispatcher.call(i % 20, (i + 7) % 20));
+						}
+					}
+				});
+				threads[p].start();
+			}
+			started.await();
+			dispatcher.stop();
+			for (Thread t : threads) t.join();
+
+			long calls = 0;
+			long completed = 0;
+			for (List<CompletableFuture<Assignment>> mine : futures) {
+				for (CompletableFuture<Assignment> f : mine) {
+					calls++;
+					try {
+						f.get(5, TimeUnit.SECONDS);
+					} catch (CancellationException e) {
+						/* cancelled by stop, or refused once stopped */
+					} catch (TimeoutException e) {
+						fail("call left pending after stop in round " + round);
+					}
+					completed++;
+				}
+			}
+			assertEquals(calls, completed);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package hotel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SimulationSnapshotTest {
+
+	private static final int TRIPS = 2000;
+	private static final int SNAPSHOT_TRIP = 800;
+
+	@Test
+	public void restoredPredictiveParkingContinuesAsTheFullRun() throws IOException {
+		String expected = run(newSimulation(), 0, TRIPS);
+
+		/* snapshot half way, written and read back as the journal does */
+		ElevatorsSW sw = newSimulation();
+		run(sw, 0, SNAPSHOT_TRIP);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		sw.snapshot().writeTo(bytes);
+		SimulationSnapshot snapshot = SimulationSnapshot.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+
+		/* restored in a simulation having learnt nothing, and forked */
+		ElevatorsSW restored = newSimulation();
+		restored.restore(snapshot);
+		assertEquals(sw.getTime(), restored.getTime());
+		assertEquals(demandOf(sw).getCalls(), demandOf(restored).getCalls());
+		assertEquals(expected, run(restored, SNAPSHOT_TRIP, TRIPS));
+
+		ElevatorsSW forked = snapshot.fork();
+		assertTrue(forked.getBuilding().getParkingPolicy() instanceof PredictiveParking);
+		assertEquals(expected, run(forked, SNAPSHOT_TRIP, TRIPS));
+	}
+
+	@Test
+	public void restoringASnapshotWithoutDemandModelEmptiesIt() {
+		ElevatorsSW sw = new ElevatorsSW(new Building(50, 0, 4, 10));
+		SimulationSnapshot snapshot = sw.snapshot();
+		ElevatorsSW predictive = newSimulation();
+		run(predictive, 0, 100);
+		assertTrue(demandOf(predictive).getCalls() > 0);
+		predictive.restore(snapshot);
+		assertEquals(0, demandOf(predictive).getCalls());
+		assertEquals(0, demandOf(predictive).expectedCalls(0, 0), 0);
+	}
+
+	private static ElevatorsSW newSimulation() {
+		Building b = new Building(50, 0, 4, 10);
+		b.setParkingPolicy(new PredictiveParking(b));
+		return new ElevatorsSW(b);
+	}
+
+	private static DemandModel demandOf(ElevatorsSW sw) {
+		return ((PredictiveParking) sw.getBuilding().getParkingPolicy()).getDemandModel();
+	}
+
+	/* replay the random trips from the first one given up to the last one excluded, most of them from
+	 * a few floors with pauses long enough for the elevators to park; return the statistics once the
+	 * trips are all delivered if the last one is the end of the trips */
+	private static String run(ElevatorsSW sw, int from, int to) {
+		Random random = new Random(11);
+		int time = 0;
+		for (int trip = 0; trip < to; trip++) {
+			time += random.nextInt(40);
+			int start = random.nextInt(4) == 0 ? random.nextInt(51) : 10 * random.nextInt(3);
+			int dest = random.nextInt(51);
+			if ( dest == start ) dest = (start + 25) % 51;
+			if ( trip < from ) continue;
+			while ( sw.getTime() < time ) sw.nextSimulationStep();
+			sw.assignElevator(sw.newRequest(trip, start, dest, time));
+		}
+		if ( to < TRIPS ){
+			/* the snapshot is taken at the time of the next trip */
+			time += random.nextInt(40);
+			while ( sw.getTime() < time ) sw.nextSimulationStep();
+			return null;
+		}
+		while ( sw.elaboratingRequests() ) sw.nextSimulationStep();
+		Statistics s = sw.getStatistics();
+		return sw.getTime() + " " + s.getRequests() + " " + s.getAverageTimeToBePicked() + " " + s.getAverageDelayAfterPick()
+				+ " " + s.getStandardDeviation() + " " + Arrays.toString(s.getPickupWaitPercentiles())
+				+ " " + Arrays.toString(s.getRideDelayPercentiles()) + " " + demandOf(sw).getCalls();
+	}
+}
@@ -0,0 +1,85 @@
+package hotel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class StatisticsCollectorTest {
+
+	private static final int DOOR_TIME = 10;
+
+	@Test
+	public void meansAndStandardDeviationAreOverTheWaitOfEachRequest() {
+		StatisticsCollector collector = new StatisticsCollector();
+		Random random = new Random(13);
+		int n = 5000;
+		double[] waits = new double[n];
+		double pickupSum = 0;
+		double rideSum = 0;
+		for (int i = 0; i < n; i++) {
+			int start = random.nextInt(50);
+			int dest = 50 + random.nextInt(50);
+			int time = random.nextInt(10000);
+			int pickupWait = random.nextInt(600);
+			int rideDelay = random.nextInt(300);
+			/* direct trip: a time unit per floor, the one to leave and the door at the start */
+			int arrival = time + pickupWait + (dest - start) + 1 + DOOR_TIME + rideDelay;
+			collector.record(delivered(i, start, dest, time, time + pickupWait, arrival), DOOR_TIME);
+			pickupSum += pickupWait;
+			rideSum += rideDelay;
+			waits[i] = pickupWait + rideDelay;
+		}
+		double mean = (pickupSum + rideSum) / n;
+		double squares = 0;
+		for (double w : waits) squares += (w - mean) * (w - mean);
+
+		Statistics s = collector.getStatistics();
+		assertEquals(n, s.getRequests());
+		assertEquals(pickupSum / n, s.getAverageTimeToBePicked(), 1e-9);
+		assertEquals(rideSum / n, s.getAverageDelayAfterPick(), 1e-9);
+		assertEquals(mean, s.getAverageWaitTime(), 1e-9);
+		assertEquals(Math.sqrt(squares / n), s.getStandardDeviation(), 1e-9);
+	}
+
+	@Test
+	public void standardDeviationOfEqualWaitsIsZero() {
+		StatisticsCollector collector = new StatisticsCollector();
+		/* same wait, reached with different pickup waits and ride delays */
+		collector.record(delivered(0, 0, 10, 0, 100, 100 + 11 + DOOR_TIME + 50), DOOR_TIME);
+		collector.record(delivered(1, 20, 5, 30, 180, 180 + 16 + DOOR_TIME), DOOR_TIME);
+		collector.record(delivered(2, 3, 4, 7, 7, 7 + 2 + DOOR_TIME + 150), DOOR_TIME);
+		Statistics s = collector.getStatistics();
+		assertEquals(150, s.getAverageWaitTime(), 1e-9);
+		assertEquals(0, s.getStandardDeviation(), 1e-9);
+	}
+
+	@Test
+	public void negativeRideDelaysCountAsZeroInThePercentiles() {
+		StatisticsCollector collector = new StatisticsCollector();
+		/* arrived before a direct trip would: the mean keeps the negative delay, the percentiles do not */
+		collector.record(delivered(0, 0, 10, 0, 5, 5 + 11 + DOOR_TIME - 4), DOOR_TIME);
+		collector.record(delivered(1, 0, 10, 0, 5, 5 + 11 + DOOR_TIME - 2), DOOR_TIME);
+		Statistics s = collector.getStatistics();
+		assertEquals(-3, s.getAverageDelayAfterPick(), 1e-9);
+		assertArrayEquals(new int[Statistics.PERCENTILES.length], s.getRideDelayPercentiles());
+	}
+
+	@Test
+	public void requestEndingWhereItStartsHasNoDirectTrip() {
+		StatisticsCollector collector = new StatisticsCollector();
+		collector.record(delivered(0, 4, 4, 10, 25, 25), DOOR_TIME);
+		Statistics s = collector.getStatistics();
+		assertEquals(15, s.getAverageTimeToBePicked(), 1e-9);
+		assertEquals(0, s.getAverageDelayAfterPick(), 1e-9);
+	}
+
+	private static Request delivered(int id, int start, int dest, int time, int pickedUp, int arrival) {
+		Request r = new Request(id, start, dest, time);
+		r.setTimePickedUp(pickedUp);
+		r.setTimeArrival(arrival);
+		return r;
+	}
+}
@@ -0,0 +1,93 @@
+package simulation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/* replays of the traces compared with the figures of the original simulation, before any optimization:
+ * the end time, the number of requests, the time units waited before and after the pickups
+ * and a hash of the times each request is picked up and delivered */
+public class BaselineTest {
+
+	private static final String TRACE_1 = "elevator_traffic_1.txt";
+	private static final String TRACE_2 = "elevator_traffic_2.txt";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void tracesMatchTheBaselineWithFourElevators() throws IOException {
+		assertBaseline(Replay.run(Replay.trace(TRACE_1), 4, Replay.TICK), 11390, 20052, 8315953, 11662377, 6446921844742227462L);
+		assertBaseline(Replay.run(Replay.trace(TRACE_2), 4, Replay.TICK), 11119, 19978, 7530334, 11649667, -8010754265301946985L);
+	}
+
+	@Test
+	public void tracesMatchTheBaselineWithSevenElevators() throws IOException {
+		/* more elevators holding fewer stops each */
+		assertBaseline(Replay.run(Replay.trace(TRACE_1), 7, Replay.TICK), 10931, 20052, 5371849, 10074207, 4104666518252257980L);
+		assertBaseline(Replay.run(Replay.trace(TRACE_2), 7, Replay.TICK), 11118, 19978, 4539871, 10134039, -2109110495697076149L);
+	}
+
+	@Test
+	public void tracesMatchTheBaselineWithTwoElevators() throws IOException {
+		/* saturated elevators, thousands of requests waiting to be assigned again every time unit */
+		assertBaseline(Replay.run(Replay.trace(TRACE_1), 2, Replay.TICK), 12140, 20052, 17290505, 13648627, -1267799500265954096L);
+		assertBaseline(Replay.run(Replay.trace(TRACE_2), 2, Replay.TICK), 12131, 19978, 18171872, 13006383, 3378477780929792195L);
+	}
+
+	@Test
+	public void tracesMappedInSmallChunksMatchTheBaseline() throws IOException {
+		/* chunks ending in the middle of the lines, the last line of the second trace having no line feed */
+		for (int chunkSize : new int[] { 100, 4096 }) {
+			assertBaseline(Replay.run(new MappedTraceReader(Replay.trace(TRACE_1), chunkSize), 4, Replay.TICK),
+					11390, 20052, 8315953, 11662377, 6446921844742227462L);
+			assertBaseline(Replay.run(new MappedTraceReader(Replay.trace(TRACE_2), chunkSize), 4, Replay.TICK),
+					11119, 19978, 7530334, 11649667, -8010754265301946985L);
+		}
+	}
+
+	@Test
+	public void binaryTracesMatchTheBaseline() throws IOException {
+		/* floors on one byte, on two bytes for a range wider than the building, read whole and in small chunks */
+		for (int[] floors : new int[][] { { 0, 100 }, { -200, 400 } }) {
+			String binary1 = convert(TRACE_1, floors);
+			String binary2 = convert(TRACE_2, floors);
+			assertBaseline(Replay.run(binary1, 4, Replay.TICK), 11390, 20052, 8315953, 11662377, 6446921844742227462L);
+			assertBaseline(Replay.run(binary2, 4, Replay.TICK), 11119, 19978, 7530334, 11649667, -8010754265301946985L);
+			assertBaseline(Replay.run(new BinaryTraceReader(binary1, 64), 4, Replay.TICK),
+					11390, 20052, 8315953, 11662377, 6446921844742227462L);
+		}
+	}
+
+	/* write the binary version of the trace with the given floor range, return its path */
+	private String convert(String traceName, int[] floors) throws IOException {
+		String binary = new File(folder.getRoot(), traceName + "." + floors[0] + ".bin").getPath();
+		TraceConverter.convert(Replay.trace(traceName), binary, floors[0], floors[1]);
+		return binary;
+	}
+
+	private static void assertBaseline(Replay replay, int time, int requests, long pickupWait, long rideDelay, long hash) {
+		assertEquals(time, replay.sw.getTime());
+		assertEquals(requests, replay.requests);
+		assertEquals(pickupWait, replay.totalPickupWait);
+		assertEquals(rideDelay, replay.totalRideDelay);
+		assertEquals(hash, hash(replay));
+	}
+
+	/* hash of the times of the requests in the order of the trace, as computed on the original simulation */
+	private static long hash(Replay replay) {
+		int[] pickedUp = replay.pickedUp();
+		int[] delivered = replay.delivered();
+		long h = 1;
+		for (int i = 0; i < pickedUp.length; i++) {
+			h = h * 31 + pickedUp[i];
+			h = h * 31 + delivered[i];
+		}
+		return h;
+	}
+}
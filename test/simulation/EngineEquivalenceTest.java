@@ -0,0 +1,56 @@
+package simulation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class EngineEquivalenceTest {
+
+	@Test
+	public void eventDrivenEngineMatchesTheTickEngineOnTheTraces() throws IOException {
+		assertSameRun(Replay.trace("elevator_traffic_1.txt"), 4, Replay.EVENTS);
+		assertSameRun(Replay.trace("elevator_traffic_2.txt"), 4, Replay.EVENTS);
+		assertSameRun(Replay.trace("elevator_traffic_1.txt"), 7, Replay.EVENTS);
+	}
+
+	@Test
+	public void eventDrivenEngineMatchesTheTickEngineOnASparseTrace() throws IOException {
+		assertSameSparseRun(Replay.EVENTS);
+	}
+
+	@Test
+	public void arrayTickEngineMatchesTheTickEngineOnTheTraces() throws IOException {
+		assertSameRun(Replay.trace("elevator_traffic_1.txt"), 4, Replay.ARRAYS);
+		assertSameRun(Replay.trace("elevator_traffic_2.txt"), 4, Replay.ARRAYS);
+		assertSameRun(Replay.trace("elevator_traffic_1.txt"), 7, Replay.ARRAYS);
+	}
+
+	@Test
+	public void arrayTickEngineMatchesTheTickEngineOnASparseTrace() throws IOException {
+		assertSameSparseRun(Replay.ARRAYS);
+	}
+
+	/* run the trace with the tick engine and the given one, compare the statistics and the times of each request */
+	private static void assertSameRun(String traceName, int elevators, String engine) throws IOException {
+		assertSameRun(Replay.run(traceName, elevators, Replay.TICK), Replay.run(traceName, elevators, engine));
+	}
+
+	/* a night of calls about every half hour */
+	private static void assertSameSparseRun(String engine) throws IOException {
+		assertSameRun(Replay.run(sparseTrace(), 4, Replay.TICK), Replay.run(sparseTrace(), 4, engine));
+	}
+
+	private static TraceReader sparseTrace() {
+		return new TrafficGenerator("poisson", 1.0 / 1800, 2000, 100, 0, 17);
+	}
+
+	private static void assertSameRun(Replay expected, Replay actual) {
+		assertEquals(expected.sw.getStatistics().getRequests(), expected.requests);
+		assertEquals(expected.statistics(), actual.statistics());
+		assertArrayEquals(expected.pickedUp(), actual.pickedUp());
+		assertArrayEquals(expected.delivered(), actual.delivered());
+	}
+}
@@ -0,0 +1,100 @@
+package simulation;
+
+import hotel.ArrayTickEngine;
+import hotel.Building;
+import hotel.DispatchListener;
+import hotel.ElevatorsSW;
+import hotel.EventDrivenEngine;
+import hotel.Request;
+import hotel.SimulationEngine;
+import hotel.Statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/* replay of a trace through Main.simulate in the building of Main, keeping by request id
+ * the time each request is picked up and delivered */
+class Replay implements DispatchListener {
+
+	/* engines of Main: every time unit, -events and -arrays */
+	static final String TICK = "tick";
+	static final String EVENTS = "events";
+	static final String ARRAYS = "arrays";
+
+	final ElevatorsSW sw;
+	int requests;
+	int[] pickedUp = new int[1024];
+	int[] delivered = new int[1024];
+	/* time units each request waits before being picked up and after, as the original printStatistics counted them */
+	long totalPickupWait;
+	long totalRideDelay;
+
+	private Replay(ElevatorsSW sw) {
+		this.sw = sw;
+		sw.setListener(this);
+	}
+
+	/* return the path of a trace of the repository, the tests running from the directory of the core module */
+	static String trace(String name) {
+		File file = new File("../" + name);
+		return file.exists() ? file.getPath() : name;
+	}
+
+	static Replay run(TraceReader input, int elevators, String engine) throws IOException {
+		Replay replay = new Replay(new ElevatorsSW(new Building(100, 0, elevators, 10)));
+		SimulationEngine e = null;
+		if ( engine.equals(EVENTS) ){
+			e = new EventDrivenEngine(replay.sw);
+		}else if ( engine.equals(ARRAYS) ){
+			e = new ArrayTickEngine(replay.sw);
+		}
+		try {
+			Main.simulate(input, replay.sw, e, null);
+		} finally {
+			input.close();
+		}
+		return replay;
+	}
+
+	static Replay run(String traceName, int elevators, String engine) throws IOException {
+		return run(Main.openTrace(traceName), elevators, engine);
+	}
+
+	public void requestDispatched(int time, int requestId, int elevatorNb, long nanos) {
+	}
+
+	public void requestDelivered(int time, Request r) {
+		int id = r.getRequestId();
+		if ( id >= pickedUp.length ){
+			pickedUp = Arrays.copyOf(pickedUp, Math.max(id + 1, pickedUp.length * 2));
+			delivered = Arrays.copyOf(delivered, pickedUp.length);
+		}
+		pickedUp[id] = r.getTimePickedUp();
+		delivered[id] = time;
+		requests = Math.max(requests, id + 1);
+		totalPickupWait += r.getTimePickedUp() - r.getTimeRequest();
+		totalRideDelay += time - r.getTimePickedUp() - (Math.abs(r.getDestination() - r.getStart()) + 1) - 10;
+	}
+
+	public void stepCompleted(ElevatorsSW sw) {
+	}
+
+	/* return the times each request is picked up and delivered, by request id */
+	int[] pickedUp() {
+		return Arrays.copyOf(pickedUp, requests);
+	}
+
+	int[] delivered() {
+		return Arrays.copyOf(delivered, requests);
+	}
+
+	/* return the end time and every figure of the statistics */
+	String statistics() {
+		Statistics s = sw.getStatistics();
+		return "time " + sw.getTime() + " requests " + s.getRequests() + " pickup " + s.getAverageTimeToBePicked()
+				+ " delay " + s.getAverageDelayAfterPick() + " deviation " + s.getStandardDeviation()
+				+ " pickup percentiles " + Arrays.toString(s.getPickupWaitPercentiles())
+				+ " delay percentiles " + Arrays.toString(s.getRideDelayPercentiles());
+	}
+}
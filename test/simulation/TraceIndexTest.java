@@ -0,0 +1,199 @@
+package simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TraceIndexTest {
+
+	private static final int BUCKET_SIZE = 10;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void appendedRequestsAreIndexedFromThePreviousIndex() throws IOException {
+		String trace = newTrace();
+		List<int[]> requests = randomRequests(1500, 3);
+		append(trace, lines(requests.subList(0, 1000)));
+		TraceIndex index = TraceIndex.open(trace, BUCKET_SIZE);
+		assertFalse(index.isIncremental());
+		assertEquals(1000, index.getRequests());
+
+		String appended = lines(requests.subList(1000, requests.size()));
+		append(trace, appended);
+		/* the index opened before reads the requests appended after it */
+		assertReads(requests, index);
+
+		index = TraceIndex.open(trace, BUCKET_SIZE);
+		assertTrue(index.isIncremental());
+		assertEquals(appended.length(), index.getBytesRead());
+		assertEquals(requests.size(), index.getRequests());
+		assertEquals(new File(trace).length(), index.getIndexedBytes());
+		assertEquals(requests.get(requests.size() - 1)[0], index.getLastTime());
+		assertReads(requests, index);
+	}
+
+	@Test
+	public void lineBeingWrittenIsIndexedOnceComplete() throws IOException {
+		String trace = newTrace();
+		List<int[]> requests = randomRequests(300, 5);
+		String text = lines(requests);
+		/* the last line is cut after its start floor */
+		int cut = text.lastIndexOf(',');
+		append(trace, text.substring(0, cut));
+		TraceIndex index = TraceIndex.open(trace, BUCKET_SIZE);
+		assertEquals(requests.size() - 1, index.getRequests());
+		assertEquals(text.lastIndexOf('\n', text.length() - 2) + 1, index.getIndexedBytes());
+		assertEquals(requests.get(requests.size() - 2)[0], index.getLastTime());
+
+		/* the line is completed and more lines follow */
+		List<int[]> more = randomRequests(200, 7);
+		int last = requests.get(requests.size() - 1)[0];
+		for (int[] r : more) r[0] += last;
+		append(trace, text.substring(cut) + lines(more));
+		index = TraceIndex.open(trace, BUCKET_SIZE);
+		assertTrue(index.isIncremental());
+		List<int[]> all = new ArrayList<int[]>(requests);
+		all.addAll(more);
+		assertEquals(all.size(), index.getRequests());
+		assertReads(all, index);
+	}
+
+	@Test
+	public void rewrittenTraceIsIndexedAgain() throws IOException {
+		String trace = newTrace();
+		append(trace, lines(randomRequests(500, 3)));
+		TraceIndex.open(trace, BUCKET_SIZE);
+
+		List<int[]> requests = randomRequests(800, 11);
+		new File(trace).delete();
+		append(trace, lines(requests));
+		TraceIndex index = TraceIndex.open(trace, BUCKET_SIZE);
+		assertFalse(index.isIncremental());
+		assertReads(requests, index);
+	}
+
+	@Test
+	public void shardsSplitTheTraceInPartsOfAboutTheSameSize() throws IOException {
+		String trace = newTrace();
+		/* a busy hour between two quiet ones */
+		List<int[]> requests = new ArrayList<int[]>();
+		Random random = new Random(17);
+		int time = 0;
+		for (int i = 0; i < 12000; i++) {
+			time += i < 2000 || i >= 10000 ? random.nextInt(8) : random.nextInt(2);
+			requests.add(new int[] { time, random.nextInt(101), random.nextInt(101) });
+		}
+		append(trace, lines(requests));
+		String binary = trace + ".bin";
+		TraceConverter.convert(trace, binary, 0, 100);
+
+		for (String name : new String[] { trace, binary }) {
+			TraceIndex index = TraceIndex.open(name, BUCKET_SIZE);
+			int n = 4;
+			int[] times = index.shards(n);
+			assertEquals(n + 1, times.length);
+			assertEquals(Integer.MIN_VALUE, times[0]);
+			assertEquals(Integer.MAX_VALUE, times[n]);
+
+			/* each request read once, in order, the shards holding about a quarter of them each */
+			List<int[]> read = new ArrayList<int[]>();
+			for (int s = 0; s < n; s++) {
+				assertTrue(times[s] < times[s + 1]);
+				if ( s > 0 ) assertEquals(0, times[s] % BUCKET_SIZE);
+				int before = read.size();
+				read.addAll(read(index.reader(times[s], times[s + 1])));
+				int size = read.size() - before;
+				assertTrue(name + " shard " + s + " of " + size + " requests", Math.abs(size - requests.size() / n) < requests.size() / n / 10);
+			}
+			assertSameRequests(requests, read);
+		}
+	}
+
+	@Test
+	public void shardsOfAShortTraceAreFewer() throws IOException {
+		String trace = newTrace();
+		append(trace, "5,1,2\n8,2,1\n");
+		int[] times = TraceIndex.open(trace, BUCKET_SIZE).shards(4);
+		/* a single bucket cannot be split */
+		assertEquals(2, times.length);
+		assertEquals(Integer.MIN_VALUE, times[0]);
+		assertEquals(Integer.MAX_VALUE, times[1]);
+	}
+
+	private String newTrace() throws IOException {
+		return new File(folder.getRoot(), "trace.txt").getPath();
+	}
+
+	/* requests with increasing times, several of them at the same time */
+	private static List<int[]> randomRequests(int n, long seed) {
+		List<int[]> requests = new ArrayList<int[]>();
+		Random random = new Random(seed);
+		int time = 0;
+		for (int i = 0; i < n; i++) {
+			time += random.nextInt(4);
+			requests.add(new int[] { time, random.nextInt(101), random.nextInt(101) });
+		}
+		return requests;
+	}
+
+	private static String lines(List<int[]> requests) {
+		StringBuilder sb = new StringBuilder();
+		for (int[] r : requests) sb.append(r[0]).append(',').append(r[1]).append(',').append(r[2]).append('\n');
+		return sb.toString();
+	}
+
+	private static void append(String trace, String text) throws IOException {
+		FileOutputStream out = new FileOutputStream(trace, true);
+		try {
+			out.write(text.getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+	}
+
+	private static List<int[]> read(TraceReader input) throws IOException {
+		List<int[]> read = new ArrayList<int[]>();
+		try {
+			while ( input.next() ) read.add(new int[] { input.getTime(), input.getStart(), input.getDestination() });
+		} finally {
+			input.close();
+		}
+		return read;
+	}
+
+	/* the whole trace and time ranges starting and ending inside buckets are read as the requests filtered */
+	private static void assertReads(List<int[]> requests, TraceIndex index) throws IOException {
+		assertSameRequests(requests, read(index.reader(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+		int last = requests.get(requests.size() - 1)[0];
+		for (int from = -5; from <= last + 5; from += last / 7 + 3) {
+			int to = from + last / 5 + 1;
+			List<int[]> expected = new ArrayList<int[]>();
+			for (int[] r : requests) {
+				if ( r[0] >= from && r[0] < to ) expected.add(r);
+			}
+			assertSameRequests(expected, read(index.reader(from, to)));
+		}
+	}
+
+	private static void assertSameRequests(List<int[]> expected, List<int[]> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			for (int j = 0; j < 3; j++) {
+				assertEquals("request " + i, expected.get(i)[j], actual.get(i)[j]);
+			}
+		}
+	}
+}